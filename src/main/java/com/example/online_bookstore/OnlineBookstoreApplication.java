@@ -2,8 +2,15 @@ package com.example.online_bookstore;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+// R2DBC is only used by the reactive catalog API, which builds its own pool; an auto-configured
+// ConnectionFactory bean would make Spring Boot skip the JDBC DataSource that JPA runs on
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
+@EnableAsync
+@EnableScheduling
 public class OnlineBookstoreApplication {
 
 	public static void main(String[] args) {
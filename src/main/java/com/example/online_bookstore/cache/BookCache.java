@@ -0,0 +1,163 @@
+package com.example.online_bookstore.cache;
+
+import com.example.online_bookstore.dto.BookDto;
+import com.example.online_bookstore.dto.CacheStatsDto;
+import com.example.online_bookstore.event.BookChangedEvent;
+import com.example.online_bookstore.event.BookStockChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Read-through cache in front of BookRepository. Books are cached by id, including
+ * misses so repeated lookups of unknown ids stay off the database; categories only cache
+ * the ids they contain, so a stock change invalidates one book entry and no lists.
+ * Entries are invalidated after the transaction that changed them commits.
+ *
+ * The cache also owns the catalog version used for list ETags. It is bumped only after the
+ * matching entries are invalidated, so a new version is never served with stale cached data.
+ * Like the cache, it only sees changes made through this process: with several instances a
+ * change elsewhere moves neither, so the list ETag is weak and valid for one instance only.
+ *
+ * Single loads are atomic against invalidation, bulk loads are not: Caffeine stores what a
+ * bulk load read even if the book was invalidated meanwhile. Each invalidation therefore
+ * first bumps a generation for the id's slot, and a bulk load drops what it stored for any
+ * id whose slot moved while it ran.
+ */
+@Component
+public class BookCache {
+
+    private static final int GENERATION_SLOTS = 1024;
+
+    private final Cache<Long, Optional<BookDto>> booksById;
+    private final Cache<String, List<Long>> idsByCategory;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong catalogChanges = new AtomicLong();
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_SLOTS);
+
+    public BookCache(@Value("${bookstore.cache.books.max-size:10000}") long maxBooks,
+                     @Value("${bookstore.cache.categories.max-size:500}") long maxCategories,
+                     @Value("${bookstore.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        // Caffeine evicts with W-TinyLFU once the size bound is reached
+        this.booksById = Caffeine.newBuilder()
+                .maximumSize(maxBooks)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        this.idsByCategory = Caffeine.newBuilder()
+                .maximumSize(maxCategories)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    public Optional<BookDto> getById(Long id, Function<Long, Optional<BookDto>> loader) {
+        return booksById.get(id, loader);
+    }
+
+    /**
+     * Returns the cached books for the given ids, loading all misses with one call.
+     * Ids the loader does not return are cached as missing and left out of the result.
+     */
+    public Map<Long, BookDto> getAllById(Collection<Long> ids, Function<Set<Long>, Map<Long, BookDto>> loader) {
+        Map<Long, Long> loadedAt = new HashMap<>();
+        Map<Long, Optional<BookDto>> cached = booksById.getAll(ids, missing -> {
+            missing.forEach(id -> loadedAt.put(id, generations.get(slot(id))));
+            Map<Long, BookDto> loaded = loader.apply(Set.copyOf(missing));
+            Map<Long, Optional<BookDto>> result = new HashMap<>();
+            for (Long id : missing) {
+                result.put(id, Optional.ofNullable(loaded.get(id)));
+            }
+            return result;
+        });
+        // An invalidation after this check bumps the generation first, then removes the entry itself
+        loadedAt.forEach((id, generation) -> {
+            if (generations.get(slot(id)) != generation) {
+                booksById.invalidate(id);
+            }
+        });
+
+        Map<Long, BookDto> books = new HashMap<>();
+        cached.forEach((id, book) -> book.ifPresent(dto -> books.put(id, dto)));
+        return books;
+    }
+
+    public List<Long> getCategoryIds(String category, Function<String, List<Long>> loader) {
+        return idsByCategory.get(category, loader);
+    }
+
+    public String getCatalogVersion() {
+        return epoch + "-" + catalogChanges.get();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        invalidateBook(event.getBookId());
+
+        String previousCategory = event.getBefore() != null ? event.getBefore().getCategory() : null;
+        String currentCategory = event.getAfter() != null ? event.getAfter().getCategory() : null;
+        if (event.changedAny("category")) {
+            invalidateCategory(previousCategory);
+            invalidateCategory(currentCategory);
+        }
+        catalogChanges.incrementAndGet();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(BookStockChangedEvent event) {
+        stockChanged(event.getBookId());
+    }
+
+    // For stock that moves without an event, such as striped units settling or coming back on rollback
+    public void stockChanged(Long bookId) {
+        invalidateBook(bookId);
+        catalogChanges.incrementAndGet();
+    }
+
+    public List<CacheStatsDto> stats() {
+        return List.of(
+                toDto("booksById", booksById.estimatedSize(), booksById.stats()),
+                toDto("idsByCategory", idsByCategory.estimatedSize(), idsByCategory.stats()));
+    }
+
+    private void invalidateBook(Long bookId) {
+        generations.incrementAndGet(slot(bookId));
+        booksById.invalidate(bookId);
+    }
+
+    private static int slot(Long bookId) {
+        return Math.floorMod(bookId.hashCode(), GENERATION_SLOTS);
+    }
+
+    private void invalidateCategory(String category) {
+        if (category != null) {
+            idsByCategory.invalidate(category);
+        }
+    }
+
+    private CacheStatsDto toDto(String name, long size, CacheStats stats) {
+        return new CacheStatsDto(
+                name,
+                size,
+                stats.hitCount(),
+                stats.missCount(),
+                stats.hitRate(),
+                stats.evictionCount(),
+                stats.loadCount(),
+                stats.averageLoadPenalty() / 1_000_000.0);
+    }
+}
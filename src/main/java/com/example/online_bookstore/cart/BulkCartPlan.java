@@ -0,0 +1,123 @@
+package com.example.online_bookstore.cart;
+
+import com.example.online_bookstore.dto.CartBulkRequest;
+import com.example.online_bookstore.exception.BusinessLogicException;
+import com.example.online_bookstore.exception.ResourceNotFoundException;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * The quantity each book should end up with after a bulk cart request, worked out from the
+ * lines the cart has now before anything changes. Callers validate the whole plan first and
+ * then apply only the difference, so a request applies completely or not at all.
+ */
+public final class BulkCartPlan {
+
+    private final Map<Long, Integer> current;
+    private final Map<Long, Integer> target;
+
+    private BulkCartPlan(Map<Long, Integer> current, Map<Long, Integer> target) {
+        this.current = current;
+        this.target = target;
+    }
+
+    /**
+     * @param itemBooks the book of each line in the cart, by item id
+     * @param quantities the quantity of each line in the cart, by book id
+     */
+    public static BulkCartPlan resolve(List<CartBulkRequest.Operation> operations,
+                                       Map<Long, Long> itemBooks,
+                                       Map<Long, Integer> quantities) {
+        Map<Long, Integer> target = new LinkedHashMap<>(quantities);
+        for (CartBulkRequest.Operation operation : operations) {
+            switch (operation.getType()) {
+                case ADD -> {
+                    if (operation.getBookId() == null) {
+                        throw new BusinessLogicException("ADD needs a bookId");
+                    }
+                    target.merge(operation.getBookId(), requirePositive(operation), Integer::sum);
+                }
+                case UPDATE -> target.put(lineIn(target, operation, itemBooks), requirePositive(operation));
+                case REMOVE -> target.remove(lineIn(target, operation, itemBooks));
+            }
+        }
+        return new BulkCartPlan(quantities, target);
+    }
+
+    // Every book in the cart after the request, in cart order, with its final quantity
+    public Map<Long, Integer> target() {
+        return target;
+    }
+
+    public Set<Long> removedBookIds() {
+        return current.keySet().stream()
+                .filter(bookId -> !target.containsKey(bookId))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    public Set<Long> addedBookIds() {
+        return target.keySet().stream()
+                .filter(bookId -> !current.containsKey(bookId))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    // Books whose line is new or grows; only these need their stock checked
+    public Set<Long> increasedBookIds() {
+        return target.entrySet().stream()
+                .filter(line -> line.getValue() > current.getOrDefault(line.getKey(), 0))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    public void requireBooksFound(Collection<Long> foundBookIds) {
+        for (Long bookId : addedBookIds()) {
+            if (!foundBookIds.contains(bookId)) {
+                throw new ResourceNotFoundException("Book not found with id: " + bookId);
+            }
+        }
+    }
+
+    /**
+     * Rejects the plan, naming every book at once, if any line that is new or grows would
+     * exceed the stock available for its book.
+     */
+    public void requireStock(ToIntFunction<Long> availableStock, Function<Long, String> title) {
+        String titles = increasedBookIds().stream()
+                .filter(bookId -> availableStock.applyAsInt(bookId) < target.get(bookId))
+                .map(title)
+                .collect(Collectors.joining(", "));
+        if (!titles.isEmpty()) {
+            throw new BusinessLogicException("Not enough stock for book: " + titles);
+        }
+    }
+
+    private static int requirePositive(CartBulkRequest.Operation operation) {
+        if (operation.getQuantity() == null || operation.getQuantity() <= 0) {
+            throw new BusinessLogicException(operation.getType() + " needs a quantity greater than zero");
+        }
+        return operation.getQuantity();
+    }
+
+    // The book of the line an UPDATE or REMOVE names, by item id or else by book id
+    private static Long lineIn(Map<Long, Integer> target, CartBulkRequest.Operation operation, Map<Long, Long> itemBooks) {
+        if (operation.getItemId() != null) {
+            Long bookId = itemBooks.get(operation.getItemId());
+            if (bookId == null || !target.containsKey(bookId)) {
+                throw new ResourceNotFoundException("Cart item not found with id: " + operation.getItemId());
+            }
+            return bookId;
+        }
+        if (operation.getBookId() == null || !target.containsKey(operation.getBookId())) {
+            throw new ResourceNotFoundException("Book is not in the cart: " + operation.getBookId());
+        }
+        return operation.getBookId();
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.online_bookstore.cart;
+
+import com.example.online_bookstore.entity.Money;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory copy of one user's cart. Not thread-safe: WriteBehindCartStore only touches it
+ * while holding the lock stripe of its user.
+ */
+final class CachedCart {
+
+    final Long userId;
+    final Long cartId;
+    // Keyed by item id; lines loaded from the table come in id order and new ids only grow
+    final Map<Long, Line> lines = new LinkedHashMap<>();
+    // Persisted lines removed since the last flush
+    final Set<Long> removedItemIds = new HashSet<>();
+    // Moved by each change's delta, never summed over the lines again
+    Money totalPrice;
+    boolean dirty;
+    // Bumped by every change, so a checkout can tell whether the cart moved on after its flush
+    long changes;
+    // Set while a checkout transaction holds the flushed rows; timer flushes leave the cart alone
+    boolean checkingOut;
+    long lastAccessNanos = System.nanoTime();
+
+    CachedCart(Long userId, Long cartId, Money totalPrice) {
+        this.userId = userId;
+        this.cartId = cartId;
+        this.totalPrice = totalPrice == null ? Money.zero() : totalPrice;
+    }
+
+    Line findByBookId(Long bookId) {
+        for (Line line : lines.values()) {
+            if (line.bookId.equals(bookId)) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    void add(Line line) {
+        lines.put(line.itemId, line);
+        totalPrice = totalPrice.plus(line.subtotal());
+        dirty = true;
+        changes++;
+    }
+
+    void changeQuantity(Line line, int quantity) {
+        totalPrice = totalPrice.plus(line.price.times(quantity - line.quantity));
+        line.quantity = quantity;
+        line.changed = true;
+        dirty = true;
+        changes++;
+    }
+
+    void remove(Line line) {
+        lines.remove(line.itemId);
+        if (line.persisted) {
+            removedItemIds.add(line.itemId);
+        }
+        totalPrice = totalPrice.minus(line.subtotal());
+        dirty = true;
+        changes++;
+    }
+
+    void clear() {
+        for (Line line : lines.values()) {
+            if (line.persisted) {
+                removedItemIds.add(line.itemId);
+            }
+        }
+        lines.clear();
+        totalPrice = Money.zero();
+        dirty = true;
+        changes++;
+    }
+
+    /**
+     * Takes the changes made since the last flush as rows to write and marks them clean.
+     */
+    Flush takeChanges() {
+        Flush flush = new Flush(this);
+        for (Line line : lines.values()) {
+            if (!line.persisted) {
+                flush.inserted.add(line);
+                flush.inserts.add(new Object[]{line.itemId, cartId, line.bookId, line.quantity, line.price.toBigDecimal()});
+                line.persisted = true;
+                line.changed = false;
+            } else if (line.changed) {
+                flush.updated.add(line);
+                flush.updates.add(new Object[]{line.quantity, line.itemId});
+                line.changed = false;
+            }
+        }
+        for (Long itemId : removedItemIds) {
+            flush.deletes.add(new Object[]{itemId});
+        }
+        removedItemIds.clear();
+        flush.totals.add(new Object[]{totalPrice.toBigDecimal(), cartId});
+        dirty = false;
+        return flush;
+    }
+
+    /**
+     * Marks the changes of a flush that was not written, or was rolled back, as pending again.
+     * Lines removed in the meantime stay removed; their ids are already in removedItemIds.
+     */
+    void restore(Flush flush) {
+        for (Line line : flush.inserted) {
+            if (lines.get(line.itemId) == line) {
+                line.persisted = false;
+            }
+        }
+        for (Line line : flush.updated) {
+            if (lines.get(line.itemId) == line) {
+                line.changed = true;
+            }
+        }
+        for (Object[] delete : flush.deletes) {
+            removedItemIds.add((Long) delete[0]);
+        }
+        dirty = true;
+    }
+
+    /**
+     * Settles the cart after a committed checkout that ordered the given quantities, by item
+     * id. The table no longer has those lines; what was added while the checkout ran stays as
+     * new lines for the next flush: new books in full, extra copies of ordered ones as the
+     * difference. Lines lowered or removed meanwhile were ordered as they were and are gone.
+     */
+    void checkedOut(Map<Long, Integer> orderedQuantities) {
+        removedItemIds.clear();
+        totalPrice = Money.zero();
+        lines.values().removeIf(line -> {
+            int remaining = line.quantity - orderedQuantities.getOrDefault(line.itemId, 0);
+            if (remaining <= 0) {
+                return true;
+            }
+            line.quantity = remaining;
+            line.persisted = false;
+            line.changed = false;
+            totalPrice = totalPrice.plus(line.subtotal());
+            return false;
+        });
+        dirty = true;
+    }
+
+    static final class Line {
+        final Long itemId;
+        final Long bookId;
+        final Money price;
+        final String bookTitle;
+        final String bookAuthor;
+        final String bookImage;
+        int quantity;
+        boolean persisted;
+        boolean changed;
+
+        Line(Long itemId, Long bookId, int quantity, Money price,
+             String bookTitle, String bookAuthor, String bookImage, boolean persisted) {
+            this.itemId = itemId;
+            this.bookId = bookId;
+            this.quantity = quantity;
+            this.price = price;
+            this.bookTitle = bookTitle;
+            this.bookAuthor = bookAuthor;
+            this.bookImage = bookImage;
+            this.persisted = persisted;
+        }
+
+        Money subtotal() {
+            return price.times(quantity);
+        }
+    }
+
+    // The rows one flush of this cart writes, plus the lines it marked clean so they can be restored
+    static final class Flush {
+        final CachedCart cart;
+        final List<Line> inserted = new ArrayList<>();
+        final List<Line> updated = new ArrayList<>();
+        final List<Object[]> inserts = new ArrayList<>();
+        final List<Object[]> updates = new ArrayList<>();
+        final List<Object[]> deletes = new ArrayList<>();
+        final List<Object[]> totals = new ArrayList<>();
+
+        Flush(CachedCart cart) {
+            this.cart = cart;
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package com.example.online_bookstore.cart;
+
+import com.example.online_bookstore.dto.BookDto;
+import com.example.online_bookstore.dto.CartBulkRequest;
+import com.example.online_bookstore.dto.CartDto;
+import com.example.online_bookstore.dto.CartItemDto;
+import com.example.online_bookstore.entity.CartItem;
+import com.example.online_bookstore.entity.Money;
+import com.example.online_bookstore.exception.BusinessLogicException;
+import com.example.online_bookstore.exception.ResourceNotFoundException;
+import com.example.online_bookstore.repo.CartLineView;
+import com.example.online_bookstore.repo.CartRepository;
+import com.example.online_bookstore.repo.PooledLoSequence;
+import com.example.online_bookstore.service.BookService;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Optional write-behind store for carts. Active carts live in memory keyed by user id and
+ * change under the lock stripe of their user, so adding, updating and removing lines runs no
+ * statement at all. Changed carts are written back with JDBC batches on a timer, before an
+ * idle cart is evicted, at checkout and on shutdown.
+ *
+ * Checkout flushes the cart inside the checkout transaction and drops it from memory once
+ * that commits; a rollback marks the flushed changes pending again. Edits not yet flushed
+ * are lost if the process dies, and each user's requests must reach the same instance.
+ */
+@Component
+@ConditionalOnProperty(name = "bookstore.cart.write-behind.enabled", havingValue = "true")
+public class WriteBehindCartStore {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindCartStore.class);
+
+    private static final String INSERT_ITEM =
+            "insert into cart_items (id, cart_id, book_id, quantity, price) values (?, ?, ?, ?, ?)";
+    private static final String UPDATE_ITEM = "update cart_items set quantity = ? where id = ?";
+    private static final String DELETE_ITEM = "delete from cart_items where id = ?";
+    private static final String UPDATE_TOTAL = "update carts set total_price = ? where id = ?";
+
+    private final Map<Long, CachedCart> carts = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes;
+    // Serializes writers so a checkout never reads the table while a timer flush of its cart is uncommitted
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final CartRepository cartRepository;
+    private final BookService bookService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    // Ids come from cart_items_seq in the same pooled-lo blocks Hibernate uses, so both can insert
+    private final PooledLoSequence itemIds;
+    private final Duration idleTimeout;
+    private final int batchSize;
+
+    public WriteBehindCartStore(CartRepository cartRepository,
+                                BookService bookService,
+                                JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                EntityManagerFactory entityManagerFactory,
+                                @Value("${bookstore.cart.write-behind.lock-stripes:64}") int lockStripes,
+                                @Value("${bookstore.cart.write-behind.idle-timeout:30m}") Duration idleTimeout,
+                                @Value("${bookstore.cart.write-behind.batch-size:500}") int batchSize) {
+        this.cartRepository = cartRepository;
+        this.bookService = bookService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.itemIds = new PooledLoSequence(jdbcTemplate, entityManagerFactory, CartItem.class);
+        this.idleTimeout = idleTimeout;
+        this.batchSize = Math.max(batchSize, 1);
+
+        // A power of two so a stripe is picked with a mask
+        this.stripes = new ReentrantLock[Integer.highestOneBit(Math.max(lockStripes, 1) * 2 - 1)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public CartDto getCart(Long userId) {
+        return withCart(userId, WriteBehindCartStore::toDto);
+    }
+
+    public CartDto addItem(Long userId, Long bookId, int quantity) {
+        BookDto book = bookService.getBookById(bookId);
+        if (book.getStockQuantity() < quantity) {
+            throw new BusinessLogicException("Not enough stock for book: " + book.getTitle());
+        }
+        return withCart(userId, cart -> {
+            CachedCart.Line line = cart.findByBookId(bookId);
+            if (line != null) {
+                cart.changeQuantity(line, line.quantity + quantity);
+            } else {
+                cart.add(new CachedCart.Line(nextItemId(), bookId, quantity, Money.of(book.getPrice()),
+                        book.getTitle(), book.getAuthor(), book.getCoverImage(), false));
+            }
+            return toDto(cart);
+        });
+    }
+
+    public CartDto updateItem(Long userId, Long itemId, int quantity) {
+        return withCart(userId, cart -> {
+            cart.changeQuantity(lineOf(cart, itemId), quantity);
+            return toDto(cart);
+        });
+    }
+
+    public CartDto removeItem(Long userId, Long itemId) {
+        return withCart(userId, cart -> {
+            cart.remove(lineOf(cart, itemId));
+            return toDto(cart);
+        });
+    }
+
+    public CartDto clear(Long userId) {
+        return withCart(userId, cart -> {
+            cart.clear();
+            return toDto(cart);
+        });
+    }
+
+    // The whole request is planned and checked before the first line changes, all under one stripe
+    public CartDto applyBulk(Long userId, List<CartBulkRequest.Operation> operations) {
+        return withCart(userId, cart -> {
+            Map<Long, Long> itemBooks = new HashMap<>();
+            Map<Long, Integer> quantities = new LinkedHashMap<>();
+            for (CachedCart.Line line : cart.lines.values()) {
+                itemBooks.put(line.itemId, line.bookId);
+                quantities.put(line.bookId, line.quantity);
+            }
+            BulkCartPlan plan = BulkCartPlan.resolve(operations, itemBooks, quantities);
+
+            Map<Long, BookDto> books = bookService.getBooksById(plan.increasedBookIds());
+            plan.requireBooksFound(books.keySet());
+            plan.requireStock(bookId -> books.get(bookId).getStockQuantity(), bookId -> books.get(bookId).getTitle());
+
+            plan.removedBookIds().forEach(bookId -> cart.remove(cart.findByBookId(bookId)));
+            plan.target().forEach((bookId, quantity) -> {
+                CachedCart.Line line = cart.findByBookId(bookId);
+                if (line == null) {
+                    BookDto book = books.get(bookId);
+                    cart.add(new CachedCart.Line(nextItemId(), bookId, quantity, Money.of(book.getPrice()),
+                            book.getTitle(), book.getAuthor(), book.getCoverImage(), false));
+                } else if (line.quantity != quantity) {
+                    cart.changeQuantity(line, quantity);
+                }
+            });
+            return toDto(cart);
+        });
+    }
+
+    /**
+     * Writes the user's pending cart changes in the caller's checkout transaction, so the
+     * checkout reads the cart the user sees. When that transaction commits the cart leaves
+     * memory, since checkout empties it in the table; anything added while the checkout ran
+     * is not part of the order and stays for the next flush instead.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void flushForCheckout(Long userId) {
+        flushLock.lock();
+        try {
+            CheckoutSnapshot snapshot = lockedIfCached(userId, cart -> {
+                cart.checkingOut = true;
+                Map<Long, Integer> ordered = new HashMap<>();
+                cart.lines.values().forEach(line -> ordered.put(line.itemId, line.quantity));
+                return new CheckoutSnapshot(cart, cart.changes, ordered, cart.dirty ? cart.takeChanges() : null);
+            });
+            if (snapshot == null) {
+                return;
+            }
+            // Registered before writing, so a failed write still clears checkingOut on rollback
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    completeCheckout(userId, snapshot, status == STATUS_COMMITTED);
+                }
+            });
+            if (snapshot.flush() != null) {
+                write(List.of(snapshot.flush()));
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void completeCheckout(Long userId, CheckoutSnapshot snapshot, boolean committed) {
+        lockedIfCached(userId, cart -> {
+            if (cart != snapshot.cart()) {
+                return null;
+            }
+            cart.checkingOut = false;
+            if (!committed) {
+                if (snapshot.flush() != null) {
+                    cart.restore(snapshot.flush());
+                }
+            } else if (cart.changes == snapshot.changes()) {
+                carts.remove(userId);
+            } else {
+                cart.checkedOut(snapshot.orderedQuantities());
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Writes every changed cart in batches, then evicts carts idle for longer than the
+     * timeout. A cart whose own rows cannot be written (a book deleted meanwhile, say) is
+     * dropped from memory so it cannot hold back the others; it reloads from the table. A
+     * failed connection or transaction keeps every change pending instead.
+     */
+    @Scheduled(fixedDelayString = "${bookstore.cart.write-behind.flush-interval:2s}",
+            initialDelayString = "${bookstore.cart.write-behind.flush-interval:2s}")
+    public void flushDirtyCarts() {
+        flushAll(idleTimeout.toNanos());
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushAll(0);
+    }
+
+    private void flushAll(long idleNanos) {
+        List<Long> idle = new ArrayList<>();
+        flushLock.lock();
+        try {
+            List<CachedCart.Flush> batch = new ArrayList<>();
+            for (Long userId : carts.keySet()) {
+                CachedCart.Flush flush = lockedIfCached(userId, cart -> {
+                    if (System.nanoTime() - cart.lastAccessNanos >= idleNanos) {
+                        idle.add(userId);
+                    }
+                    return cart.dirty && !cart.checkingOut ? cart.takeChanges() : null;
+                });
+                if (flush != null) {
+                    batch.add(flush);
+                }
+                if (batch.size() >= batchSize) {
+                    writeBatch(batch);
+                    batch = new ArrayList<>();
+                }
+            }
+            writeBatch(batch);
+        } finally {
+            flushLock.unlock();
+        }
+        // Carts touched or changed since they were flushed stay
+        for (Long userId : idle) {
+            lockedIfCached(userId, cart ->
+                    !cart.dirty && !cart.checkingOut && System.nanoTime() - cart.lastAccessNanos >= idleNanos
+                            ? carts.remove(userId) : null);
+        }
+    }
+
+    /**
+     * Writes a batch in one transaction, falling back to one transaction per cart when a row
+     * is refused. Only a cart whose own rows fail is dropped. When no connection or
+     * transaction can be had, or the database is unreachable, every cart of the batch keeps
+     * its changes pending for the next flush.
+     */
+    private void writeBatch(List<CachedCart.Flush> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(batch));
+            return;
+        } catch (RuntimeException ex) {
+            if (!isRowFailure(ex)) {
+                log.warn("Cart flush of {} carts failed, keeping their changes for the next flush: {}",
+                        batch.size(), ex.getMessage());
+                batch.forEach(this::restore);
+                return;
+            }
+            log.warn("Cart flush of {} carts failed, retrying cart by cart: {}", batch.size(), ex.getMessage());
+        }
+        for (CachedCart.Flush flush : batch) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(List.of(flush)));
+            } catch (RuntimeException ex) {
+                if (isRowFailure(ex)) {
+                    log.warn("Dropping unsaved changes of cart {}: {}", flush.cart.cartId, ex.getMessage());
+                    lockedIfCached(flush.cart.userId, cart -> carts.remove(flush.cart.userId, flush.cart) ? cart : null);
+                } else {
+                    log.warn("Cart flush of cart {} failed, keeping its changes for the next flush: {}",
+                            flush.cart.cartId, ex.getMessage());
+                    restore(flush);
+                }
+            }
+        }
+    }
+
+    // A statement the database refused, as opposed to a connection, pool or transaction failure
+    private static boolean isRowFailure(RuntimeException ex) {
+        return ex instanceof DataAccessException
+                && !(ex instanceof TransientDataAccessException)
+                && !(ex instanceof DataAccessResourceFailureException);
+    }
+
+    private void restore(CachedCart.Flush flush) {
+        lockedIfCached(flush.cart.userId, cart -> {
+            if (cart == flush.cart) {
+                cart.restore(flush);
+            }
+            return null;
+        });
+    }
+
+    private void write(List<CachedCart.Flush> flushes) {
+        jdbcTemplate.batchUpdate(INSERT_ITEM, collect(flushes, flush -> flush.inserts));
+        jdbcTemplate.batchUpdate(UPDATE_ITEM, collect(flushes, flush -> flush.updates));
+        jdbcTemplate.batchUpdate(DELETE_ITEM, collect(flushes, flush -> flush.deletes));
+        jdbcTemplate.batchUpdate(UPDATE_TOTAL, collect(flushes, flush -> flush.totals));
+    }
+
+    private static List<Object[]> collect(List<CachedCart.Flush> flushes, Function<CachedCart.Flush, List<Object[]>> rows) {
+        return flushes.stream().flatMap(flush -> rows.apply(flush).stream()).collect(Collectors.toList());
+    }
+
+    // Runs the action on the user's cart under its stripe, loading the cart on first use
+    private <T> T withCart(Long userId, Function<CachedCart, T> action) {
+        ReentrantLock lock = stripeFor(userId);
+        lock.lock();
+        try {
+            CachedCart cart = carts.get(userId);
+            if (cart == null) {
+                cart = load(userId);
+                carts.put(userId, cart);
+            }
+            cart.lastAccessNanos = System.nanoTime();
+            return action.apply(cart);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Like withCart, but returns null without loading when the cart is not in memory
+    private <T> T lockedIfCached(Long userId, Function<CachedCart, T> action) {
+        ReentrantLock lock = stripeFor(userId);
+        lock.lock();
+        try {
+            CachedCart cart = carts.get(userId);
+            return cart == null ? null : action.apply(cart);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock stripeFor(Long userId) {
+        return stripes[Long.hashCode(userId) & (stripes.length - 1)];
+    }
+
+    private CachedCart load(Long userId) {
+        List<CartLineView> rows = cartRepository.findLinesByUserId(userId);
+        if (rows.isEmpty()) {
+            throw new ResourceNotFoundException("Cart not found for user: " + userId);
+        }
+        CachedCart cart = new CachedCart(userId, rows.get(0).getCartId(), rows.get(0).getTotalPrice());
+        for (CartLineView row : rows) {
+            if (row.getItemId() != null) {
+                cart.lines.put(row.getItemId(), new CachedCart.Line(row.getItemId(), row.getBookId(),
+                        row.getQuantity(), row.getPrice(), row.getBookTitle(), row.getBookAuthor(),
+                        row.getBookImage(), true));
+            }
+        }
+        return cart;
+    }
+
+    // Items of other users' carts are simply not found here, without revealing that they exist
+    private static CachedCart.Line lineOf(CachedCart cart, Long itemId) {
+        CachedCart.Line line = cart.lines.get(itemId);
+        if (line == null) {
+            throw new ResourceNotFoundException("Cart item not found with id: " + itemId);
+        }
+        return line;
+    }
+
+    private Long nextItemId() {
+        return itemIds.next();
+    }
+
+    private static CartDto toDto(CachedCart cart) {
+        List<CartItemDto> items = cart.lines.values().stream()
+                .map(line -> {
+                    CartItemDto dto = new CartItemDto();
+                    dto.setId(line.itemId);
+                    dto.setBookId(line.bookId);
+                    dto.setQuantity(line.quantity);
+                    dto.setPrice(line.price.toBigDecimal());
+                    dto.setSubtotal(line.subtotal().toBigDecimal());
+                    dto.setBookTitle(line.bookTitle);
+                    dto.setBookAuthor(line.bookAuthor);
+                    dto.setBookImage(line.bookImage);
+                    return dto;
+                })
+                .collect(Collectors.toList());
+
+        CartDto cartDto = new CartDto();
+        cartDto.setId(cart.cartId);
+        cartDto.setTotalPrice(cart.totalPrice.toBigDecimal());
+        cartDto.setItems(items);
+        cartDto.setItemCount(items.size());
+        return cartDto;
+    }
+
+    // The cart as a checkout flushed it: what it ordered, and the change count to compare against
+    private record CheckoutSnapshot(CachedCart cart, long changes, Map<Long, Integer> orderedQuantities,
+                                    CachedCart.Flush flush) {
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.online_bookstore.catalog;
+
+import com.example.online_bookstore.exception.BusinessLogicException;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Formats the catalog import reads and the export writes. CSV needs a header row naming
+ * BookDto properties (title, author, price, isbn, stockQuantity, ...); NDJSON is one BookDto
+ * object per line.
+ */
+public enum BookFeedFormat {
+    CSV("text/csv", ".csv"),
+    NDJSON("application/x-ndjson", ".ndjson");
+
+    private final String mediaType;
+    private final String extension;
+
+    BookFeedFormat(String mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static BookFeedFormat of(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new BusinessLogicException("Unsupported catalog format: " + name + " (expected csv or ndjson)");
+        }
+    }
+
+    // By file extension; .jsonl is accepted as NDJSON
+    public static BookFeedFormat forFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+            return NDJSON;
+        }
+        if (name.endsWith(".csv")) {
+            return CSV;
+        }
+        throw new BusinessLogicException("Cannot tell the catalog format of " + file + "; set bookstore.import.format");
+    }
+}
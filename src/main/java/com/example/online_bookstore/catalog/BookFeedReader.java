@@ -0,0 +1,119 @@
+package com.example.online_bookstore.catalog;
+
+import com.example.online_bookstore.dto.BookDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Reads a feed one record at a time, so memory does not grow with the size of the feed. A
+ * record that parses but does not map onto a BookDto comes back as a row with an error
+ * rather than stopping the read; only a feed that cannot be read any further throws.
+ */
+abstract class BookFeedReader implements Closeable {
+
+    record Row(long number, BookDto book, String error) {
+    }
+
+    // The next record, or null at the end of the feed
+    abstract Row next() throws IOException;
+
+    static BookFeedReader open(BookFeedFormat format, InputStream in, ObjectMapper objectMapper) throws IOException {
+        return switch (format) {
+            case CSV -> new Csv(in, objectMapper);
+            case NDJSON -> new Ndjson(in, objectMapper);
+        };
+    }
+
+    static String describe(Exception ex) {
+        Throwable cause = ex instanceof IllegalArgumentException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof MismatchedInputException mismatch && !mismatch.getPath().isEmpty()) {
+            String field = mismatch.getPath().get(mismatch.getPath().size() - 1).getFieldName();
+            return cause instanceof InvalidFormatException invalid
+                    ? "Invalid value for " + field + ": " + invalid.getValue()
+                    : "Invalid value for " + field;
+        }
+        return cause instanceof JsonProcessingException json ? json.getOriginalMessage() : cause.getMessage();
+    }
+
+    // Columns are mapped by header name; empty cells count as missing values
+    private static final class Csv extends BookFeedReader {
+        private final MappingIterator<Map<String, String>> records;
+        private final ObjectMapper objectMapper;
+        private long number;
+
+        Csv(InputStream in, ObjectMapper objectMapper) throws IOException {
+            this.records = new CsvMapper().readerForMapOf(String.class)
+                    .with(CsvSchema.emptySchema().withHeader())
+                    .readValues(in);
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        Row next() throws IOException {
+            if (!records.hasNextValue()) {
+                return null;
+            }
+            Map<String, String> record = records.nextValue();
+            number++;
+            record.values().removeIf(value -> value == null || value.isBlank());
+            try {
+                return new Row(number, objectMapper.convertValue(record, BookDto.class), null);
+            } catch (IllegalArgumentException ex) {
+                return new Row(number, null, describe(ex));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            records.close();
+        }
+    }
+
+    // Blank lines are skipped but still counted, so row numbers are line numbers
+    private static final class Ndjson extends BookFeedReader {
+        private final BufferedReader lines;
+        private final ObjectReader reader;
+        private long number;
+
+        Ndjson(InputStream in, ObjectMapper objectMapper) {
+            this.lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            this.reader = objectMapper.readerFor(BookDto.class);
+        }
+
+        @Override
+        Row next() throws IOException {
+            String line;
+            do {
+                line = lines.readLine();
+                if (line == null) {
+                    return null;
+                }
+                number++;
+            } while (line.isBlank());
+            try {
+                return new Row(number, reader.readValue(line), null);
+            } catch (JsonProcessingException ex) {
+                return new Row(number, null, describe(ex));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            lines.close();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.online_bookstore.catalog;
+
+import com.example.online_bookstore.dto.BookImportReport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Imports a feed file at startup, for loads too large to send over HTTP:
+ * {@code java -jar app.jar --bookstore.import.file=feed.csv}. The application exits when the
+ * import is done, with status 0 if every row was written and 2 if some were rejected.
+ */
+@Component
+@ConditionalOnProperty(name = "bookstore.import.file")
+public class BookImportRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(BookImportRunner.class);
+
+    private final BookImportService importService;
+    private final ConfigurableApplicationContext context;
+    private final Path file;
+    private final String format;
+    private final boolean exitWhenDone;
+
+    public BookImportRunner(BookImportService importService,
+                            ConfigurableApplicationContext context,
+                            @Value("${bookstore.import.file}") Path file,
+                            @Value("${bookstore.import.format:}") String format,
+                            @Value("${bookstore.import.exit-when-done:true}") boolean exitWhenDone) {
+        this.importService = importService;
+        this.context = context;
+        this.file = file;
+        this.format = format;
+        this.exitWhenDone = exitWhenDone;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        BookFeedFormat feedFormat = format.isBlank() ? BookFeedFormat.forFile(file) : BookFeedFormat.of(format);
+        BookImportReport report;
+        try (InputStream in = Files.newInputStream(file)) {
+            report = importService.importBooks(in, feedFormat);
+        }
+        log.info("Imported {}: {} rows read, {} inserted, {} updated, {} rejected in {} ms", file,
+                report.getRowsRead(), report.getInserted(), report.getUpdated(), report.getRejected(),
+                report.getDurationMillis());
+        report.getErrors().forEach(error ->
+                log.warn("Row {} (ISBN {}): {}", error.getRow(), error.getIsbn(), error.getMessage()));
+        if (report.isErrorsTruncated()) {
+            log.warn("Only the first {} rejected rows are listed", report.getErrors().size());
+        }
+
+        if (exitWhenDone) {
+            int status = report.getRejected() == 0 ? 0 : 2;
+            System.exit(SpringApplication.exit(context, () -> status));
+        }
+    }
+}
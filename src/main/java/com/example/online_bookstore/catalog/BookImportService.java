@@ -0,0 +1,293 @@
+package com.example.online_bookstore.catalog;
+
+import com.example.online_bookstore.dto.BookDto;
+import com.example.online_bookstore.dto.BookImportReport;
+import com.example.online_bookstore.entity.Book;
+import com.example.online_bookstore.event.BookChangedEvent;
+import com.example.online_bookstore.inventory.StripedInventory;
+import com.example.online_bookstore.repo.BookRepository;
+import com.example.online_bookstore.repo.PooledLoSequence;
+import com.example.online_bookstore.service.BookService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Loads supplier feeds into the catalog. The feed is read a record at a time and written in
+ * chunks, each in its own transaction: existing books with the row's ISBN are updated, other
+ * rows are inserted with ids from books_seq, all through JDBC batches. Memory holds one chunk
+ * and the reported errors, whatever the size of the feed. A chunk the database refuses is
+ * retried row by row so the bad rows can be named and the rest still land.
+ *
+ * Every written row publishes a BookChangedEvent, so caches, search and facet indexes and
+ * striped stock follow the import after each chunk commits, as they do for single edits.
+ */
+@Service
+public class BookImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(BookImportService.class);
+
+    private static final String INSERT_BOOK = "insert into books (id, title, author, description, price, isbn, "
+            + "cover_image, stock_quantity, category, version) values (?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+    private static final String UPDATE_BOOK = "update books set title = ?, author = ?, description = ?, price = ?, "
+            + "cover_image = ?, stock_quantity = ?, category = ?, version = version + 1 where id = ?";
+
+    // Column lengths on Book; checked up front so one long value does not send its chunk row by row
+    private static final int DESCRIPTION_LENGTH = 1000;
+    private static final int COLUMN_LENGTH = 255;
+
+    private static final CsvSchema EXPORT_SCHEMA = CsvSchema.builder()
+            .addColumn("id").addColumn("isbn").addColumn("title").addColumn("author")
+            .addColumn("description").addColumn("price").addColumn("stockQuantity")
+            .addColumn("category").addColumn("coverImage").addColumn("version")
+            .setUseHeader(true)
+            .build();
+
+    private final BookRepository bookRepository;
+    private final BookService bookService;
+    private final StripedInventory stripedInventory;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PooledLoSequence bookIds;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter csvWriter;
+    private final int chunkSize;
+    private final int maxReportedErrors;
+
+    public BookImportService(BookRepository bookRepository,
+                             BookService bookService,
+                             StripedInventory stripedInventory,
+                             ApplicationEventPublisher eventPublisher,
+                             JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             EntityManagerFactory entityManagerFactory,
+                             Validator validator,
+                             ObjectMapper objectMapper,
+                             @Value("${bookstore.import.chunk-size:1000}") int chunkSize,
+                             @Value("${bookstore.import.max-reported-errors:1000}") int maxReportedErrors) {
+        this.bookRepository = bookRepository;
+        this.bookService = bookService;
+        this.stripedInventory = stripedInventory;
+        this.eventPublisher = eventPublisher;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.bookIds = new PooledLoSequence(jdbcTemplate, entityManagerFactory, Book.class);
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        // The caller owns the stream; closing the CSV writer must not close it
+        this.csvWriter = new CsvMapper().writer(EXPORT_SCHEMA).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.chunkSize = Math.max(chunkSize, 1);
+        this.maxReportedErrors = Math.max(maxReportedErrors, 0);
+    }
+
+    /**
+     * Imports every row of the feed. Chunks already written stay written if the feed turns out
+     * to be unreadable part way; the report then ends with an error saying where it stopped.
+     */
+    public BookImportReport importBooks(InputStream in, BookFeedFormat format) {
+        long started = System.nanoTime();
+        BookImportReport report = new BookImportReport();
+        List<BookFeedReader.Row> chunk = new ArrayList<>(chunkSize);
+        try (BookFeedReader feed = BookFeedReader.open(format, in, objectMapper)) {
+            BookFeedReader.Row row;
+            while ((row = feed.next()) != null) {
+                report.setRowsRead(report.getRowsRead() + 1);
+                String error = row.error() != null ? row.error() : validate(row.book());
+                if (error != null) {
+                    reject(report, row, error);
+                    continue;
+                }
+                chunk.add(row);
+                if (chunk.size() == chunkSize) {
+                    writeChunk(chunk, report);
+                    chunk.clear();
+                }
+            }
+        } catch (IOException ex) {
+            log.warn("Catalog feed could not be read past row {}: {}", report.getRowsRead(), ex.getMessage());
+            report.setRowsRead(report.getRowsRead() + 1);
+            reject(report, new BookFeedReader.Row(report.getRowsRead(), null, null),
+                    "Feed could not be read from this row on: " + BookFeedReader.describe(ex));
+        }
+        writeChunk(chunk, report);
+        report.setDurationMillis((System.nanoTime() - started) / 1_000_000);
+        return report;
+    }
+
+    /**
+     * Writes the whole catalog in id order, streamed from a database cursor, in the same
+     * layout the import reads.
+     */
+    public void exportBooks(BookFeedFormat format, OutputStream out) throws IOException {
+        OutputStream buffered = new BufferedOutputStream(out);
+        try {
+            switch (format) {
+                case CSV -> {
+                    try (SequenceWriter rows = csvWriter.writeValues(buffered)) {
+                        bookService.streamAllBooks(book -> write(() -> rows.write(book)));
+                    }
+                }
+                case NDJSON -> {
+                    ObjectWriter writer = objectMapper.writerFor(BookDto.class);
+                    bookService.streamAllBooks(book -> write(() -> {
+                        buffered.write(writer.writeValueAsBytes(book));
+                        buffered.write('\n');
+                    }));
+                }
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        buffered.flush();
+    }
+
+    private String validate(BookDto book) {
+        Set<ConstraintViolation<BookDto>> violations = validator.validate(book);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+        if (book.getIsbn() == null || book.getIsbn().isBlank()) {
+            return "ISBN is required for import";
+        }
+        book.setIsbn(book.getIsbn().trim());
+        if (book.getDescription() != null && book.getDescription().length() > DESCRIPTION_LENGTH) {
+            return "Description is longer than " + DESCRIPTION_LENGTH + " characters";
+        }
+        for (String value : new String[] {book.getTitle(), book.getAuthor(), book.getIsbn(),
+                book.getCoverImage(), book.getCategory()}) {
+            if (value != null && value.length() > COLUMN_LENGTH) {
+                return "Values other than the description must be at most " + COLUMN_LENGTH + " characters";
+            }
+        }
+        return null;
+    }
+
+    private void writeChunk(List<BookFeedReader.Row> rows, BookImportReport report) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            int inserted = transactionTemplate.execute(status -> upsert(rows));
+            report.setInserted(report.getInserted() + inserted);
+            report.setUpdated(report.getUpdated() + rows.size() - inserted);
+        } catch (DataAccessException ex) {
+            if (rows.size() == 1) {
+                reject(report, rows.get(0), ex.getMostSpecificCause().getMessage());
+                return;
+            }
+            log.warn("Import chunk of {} rows failed, retrying row by row: {}", rows.size(), ex.getMessage());
+            for (BookFeedReader.Row row : rows) {
+                writeChunk(List.of(row), report);
+            }
+        }
+    }
+
+    /**
+     * Upserts one chunk and returns how many rows were inserted. When an ISBN occurs more than
+     * once in the chunk only its last row is written; the earlier ones count as updates.
+     */
+    private int upsert(List<BookFeedReader.Row> rows) {
+        Map<String, BookDto> latest = new LinkedHashMap<>();
+        rows.forEach(row -> latest.put(row.book().getIsbn(), row.book()));
+        Map<String, List<Book>> existing = bookRepository.findByIsbnIn(latest.keySet()).stream()
+                .collect(Collectors.groupingBy(Book::getIsbn));
+
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        List<BookChangedEvent> events = new ArrayList<>(latest.size());
+        for (BookDto book : latest.values()) {
+            List<Book> matches = existing.get(book.getIsbn());
+            if (matches == null) {
+                long id = bookIds.next();
+                inserts.add(new Object[] {id, book.getTitle(), book.getAuthor(), book.getDescription(), book.getPrice(),
+                        book.getIsbn(), book.getCoverImage(), book.getStockQuantity(), book.getCategory()});
+                events.add(new BookChangedEvent(id, null, imported(book, id, 0L)));
+                continue;
+            }
+            for (Book match : matches) {
+                BookDto before = new BookDto(match);
+                before.setStockQuantity(bookService.availableStock(match));
+                // The imported quantity replaces whatever the stripes had leased from the row
+                stripedInventory.releaseForOverwrite(match.getId());
+                updates.add(new Object[] {book.getTitle(), book.getAuthor(), book.getDescription(), book.getPrice(),
+                        book.getCoverImage(), book.getStockQuantity(), book.getCategory(), match.getId()});
+                events.add(new BookChangedEvent(match.getId(), before,
+                        imported(book, match.getId(), match.getVersion() + 1)));
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_BOOK, inserts);
+        jdbcTemplate.batchUpdate(UPDATE_BOOK, updates);
+        events.forEach(eventPublisher::publishEvent);
+        return inserts.size();
+    }
+
+    private static BookDto imported(BookDto row, Long id, Long version) {
+        BookDto book = new BookDto();
+        book.setId(id);
+        book.setTitle(row.getTitle());
+        book.setAuthor(row.getAuthor());
+        book.setDescription(row.getDescription());
+        book.setPrice(row.getPrice());
+        book.setIsbn(row.getIsbn());
+        book.setCoverImage(row.getCoverImage());
+        book.setStockQuantity(row.getStockQuantity());
+        book.setCategory(row.getCategory());
+        book.setVersion(version);
+        return book;
+    }
+
+    private void reject(BookImportReport report, BookFeedReader.Row row, String message) {
+        report.setRejected(report.getRejected() + 1);
+        if (report.getErrors().size() < maxReportedErrors) {
+            String isbn = row.book() != null ? row.book().getIsbn() : null;
+            report.getErrors().add(new BookImportReport.RowError(row.number(), isbn, message));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+
+    private static void write(IoAction action) {
+        try {
+            action.run();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @FunctionalInterface
+    private interface IoAction {
+        void run() throws IOException;
+    }
+}
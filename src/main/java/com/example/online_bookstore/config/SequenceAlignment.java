@@ -0,0 +1,63 @@
+package com.example.online_bookstore.config;
+
+import com.example.online_bookstore.entity.Book;
+import com.example.online_bookstore.entity.Cart;
+import com.example.online_bookstore.entity.CartItem;
+import com.example.online_bookstore.entity.Order;
+import com.example.online_bookstore.entity.OrderItem;
+import com.example.online_bookstore.entity.User;
+import com.example.online_bookstore.repo.EntitySequence;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Tables that moved from IDENTITY columns to pooled-lo sequences keep their existing rows, while
+ * the sequence Hibernate creates for them starts at 1. On PostgreSQL this moves each sequence
+ * past the highest id in its table before the application takes traffic; other databases are
+ * recreated from scratch and are left alone. Running it again is harmless: a sequence only
+ * ever moves forward.
+ */
+@Component
+public class SequenceAlignment {
+
+    private static final Logger log = LoggerFactory.getLogger(SequenceAlignment.class);
+
+    private static final List<Class<?>> ENTITIES = List.of(
+            Book.class, Cart.class, CartItem.class, Order.class, OrderItem.class, User.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    // Depending on the EntityManagerFactory also makes this run after the schema update created the sequences
+    public SequenceAlignment(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @PostConstruct
+    public void align() throws Exception {
+        String product = JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getDataSource(),
+                metaData -> metaData.getDatabaseProductName());
+        if (!"PostgreSQL".equals(product)) {
+            return;
+        }
+        for (Class<?> entity : ENTITIES) {
+            EntitySequence sequence = EntitySequence.of(entityManagerFactory, entity);
+            // With pooled-lo each value read starts a block of allocationSize ids, so the next value
+            // must clear both the highest id and the block handed out from the current value
+            Long value = jdbcTemplate.queryForObject(
+                    "select setval('" + sequence.sequenceName() + "', greatest((select last_value from " +
+                            sequence.sequenceName() + ") + " + sequence.allocationSize() +
+                            ", (select coalesce(max(id), 0) from " + sequence.tableName() + ") + 1), false)",
+                    Long.class);
+            log.info("Sequence {} aligned with {} at {}", sequence.sequenceName(), sequence.tableName(), value);
+        }
+    }
+}
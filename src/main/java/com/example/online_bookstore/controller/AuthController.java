@@ -8,6 +8,8 @@ import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
@@ -19,12 +21,12 @@ public class AuthController {
     }
 
     @PostMapping("/login")
-    public ResponseEntity<AuthResponse> authenticateUser(@Valid @RequestBody AuthRequest loginRequest) {
-        return ResponseEntity.ok(authService.authenticateUser(loginRequest));
+    public CompletableFuture<ResponseEntity<AuthResponse>> authenticateUser(@Valid @RequestBody AuthRequest loginRequest) {
+        return authService.authenticateUser(loginRequest).thenApply(ResponseEntity::ok);
     }
 
     @PostMapping("/register")
-    public ResponseEntity<AuthResponse> registerUser(@Valid @RequestBody RegisterRequest registerRequest) {
-        return ResponseEntity.ok(authService.registerUser(registerRequest));
+    public CompletableFuture<ResponseEntity<AuthResponse>> registerUser(@Valid @RequestBody RegisterRequest registerRequest) {
+        return authService.registerUser(registerRequest).thenApply(ResponseEntity::ok);
     }
-}
\ No newline at end of file
+}
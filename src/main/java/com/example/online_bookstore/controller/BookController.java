@@ -1,43 +1,102 @@
 package com.example.online_bookstore.controller;
 
 import com.example.online_bookstore.dto.BookDto;
+import com.example.online_bookstore.dto.BookPageDto;
+import com.example.online_bookstore.dto.BookSuggestionDto;
+import com.example.online_bookstore.dto.FacetedBooksDto;
 import com.example.online_bookstore.service.BookService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import jakarta.validation.Valid;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/books")
 public class BookController {
 
     private final BookService bookService;
+    private final ObjectWriter bookWriter;
 
-    public BookController(BookService bookService) {
+    public BookController(BookService bookService, ObjectMapper objectMapper) {
         this.bookService = bookService;
+        this.bookWriter = objectMapper.writerFor(BookDto.class);
     }
 
     @GetMapping
-    public ResponseEntity<List<BookDto>> getAllBooks() {
-        return ResponseEntity.ok(bookService.getAllBooks());
+    public ResponseEntity<BookPageDto> getAllBooks(@RequestParam(required = false) String cursor,
+                                                   @RequestParam(required = false) Integer size,
+                                                   WebRequest request) {
+        return conditional(request, catalogETag(), () -> bookService.getBookPage(cursor, size));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllBooks() {
+        StreamingResponseBody body = out -> {
+            try {
+                bookService.streamAllBooks(book -> {
+                    try {
+                        out.write(bookWriter.writeValueAsBytes(book));
+                        out.write('\n');
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<BookDto> getBookById(@PathVariable Long id) {
-        return ResponseEntity.ok(bookService.getBookById(id));
+    public ResponseEntity<BookDto> getBookById(@PathVariable Long id, WebRequest request) {
+        // Served from the book cache, so a matching ETag costs neither a query nor serialization
+        BookDto book = bookService.getBookById(id);
+        // Striped stock changes without bumping the version, so the reported stock is part of the tag
+        String etag = "\"" + book.getId() + "-" + book.getVersion() + "-" + book.getStockQuantity() + "\"";
+        return conditional(request, etag, () -> book);
     }
 
     @GetMapping("/category/{category}")
-    public ResponseEntity<List<BookDto>> getBooksByCategory(@PathVariable String category) {
-        return ResponseEntity.ok(bookService.getBooksByCategory(category));
+    public ResponseEntity<List<BookDto>> getBooksByCategory(@PathVariable String category, WebRequest request) {
+        return conditional(request, catalogETag(), () -> bookService.getBooksByCategory(category));
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<BookDto>> searchBooks(@RequestParam String query) {
-        return ResponseEntity.ok(bookService.searchBooks(query));
+    public ResponseEntity<List<BookDto>> searchBooks(@RequestParam String query, WebRequest request) {
+        return conditional(request, catalogETag(), () -> bookService.searchBooks(query));
+    }
+
+    @GetMapping("/browse")
+    public ResponseEntity<FacetedBooksDto> browseBooks(@RequestParam(required = false) List<String> category,
+                                                       @RequestParam(required = false) List<String> price,
+                                                       @RequestParam(required = false) Boolean inStock,
+                                                       @RequestParam(defaultValue = "0") int page,
+                                                       @RequestParam(required = false) Integer size,
+                                                       WebRequest request) {
+        return conditional(request, catalogETag(),
+                () -> bookService.browseBooks(category, price, inStock, page, size));
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<List<BookSuggestionDto>> suggestBooks(@RequestParam String prefix,
+                                                                @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(bookService.suggestBooks(prefix, limit));
     }
 
     @PostMapping
@@ -52,10 +111,36 @@ public class BookController {
         return ResponseEntity.ok(bookService.updateBook(id, bookDto));
     }
 
+    // JSON merge patch: only the fields sent are changed, and a field sent as null is cleared
+    @PatchMapping(value = "/{id}", consumes = {"application/merge-patch+json", MediaType.APPLICATION_JSON_VALUE})
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BookDto> patchBook(@PathVariable Long id, @RequestBody JsonNode patch) {
+        return ResponseEntity.ok(bookService.patchBook(id, patch));
+    }
+
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Void> deleteBook(@PathVariable Long id) {
         bookService.deleteBook(id);
         return ResponseEntity.noContent().build();
     }
+
+    // Weak: the version is per process and the bodies behind it are cached, see BookCache
+    private String catalogETag() {
+        return "W/\"c-" + bookService.getCatalogVersion() + "\"";
+    }
+
+    // Answers If-None-Match with 304 before the body is produced; clients must revalidate on each use
+    private <T> ResponseEntity<T> conditional(WebRequest request, String etag, Supplier<T> body) {
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(body.get());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.example.online_bookstore.controller;
+
+import com.example.online_bookstore.cache.BookCache;
+import com.example.online_bookstore.dto.CacheStatsDto;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/cache")
+public class CacheController {
+    private final BookCache bookCache;
+
+    public CacheController(BookCache bookCache) {
+        this.bookCache = bookCache;
+    }
+
+    @GetMapping("/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<CacheStatsDto>> getCacheStats() {
+        return ResponseEntity.ok(bookCache.stats());
+    }
+}
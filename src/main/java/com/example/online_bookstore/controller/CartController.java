@@ -1,8 +1,10 @@
 package com.example.online_bookstore.controller;
 
+import com.example.online_bookstore.dto.CartBulkRequest;
 import com.example.online_bookstore.dto.CartDto;
 import com.example.online_bookstore.dto.CartItemDto;
 import com.example.online_bookstore.service.CartService;
+import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -25,6 +27,11 @@ public class CartController {
         return ResponseEntity.ok(cartService.addItemToCart(cartItemDto));
     }
     
+    @PostMapping("/bulk")
+    public ResponseEntity<CartDto> applyBulk(@Valid @RequestBody CartBulkRequest request) {
+        return ResponseEntity.ok(cartService.applyBulk(request));
+    }
+
     @PutMapping("/items/{itemId}")
     public ResponseEntity<CartDto> updateItem(@PathVariable Long itemId, @RequestBody CartItemDto cartItemDto) {
         return ResponseEntity.ok(cartService.updateCartItem(itemId, cartItemDto));
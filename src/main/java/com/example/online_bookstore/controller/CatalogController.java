@@ -0,0 +1,45 @@
+package com.example.online_bookstore.controller;
+
+import com.example.online_bookstore.catalog.BookFeedFormat;
+import com.example.online_bookstore.catalog.BookImportService;
+import com.example.online_bookstore.dto.BookImportReport;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/api/admin/books")
+public class CatalogController {
+    private final BookImportService importService;
+
+    public CatalogController(BookImportService importService) {
+        this.importService = importService;
+    }
+
+    // The body is the raw feed, read as it arrives rather than buffered or sent as multipart
+    @PostMapping("/import")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BookImportReport> importBooks(@RequestParam(defaultValue = "csv") String format,
+                                                        InputStream body) {
+        return ResponseEntity.ok(importService.importBooks(body, BookFeedFormat.of(format)));
+    }
+
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportBooks(@RequestParam(defaultValue = "csv") String format) {
+        BookFeedFormat feedFormat = BookFeedFormat.of(format);
+        StreamingResponseBody body = out -> importService.exportBooks(feedFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(feedFormat.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("books" + feedFormat.getExtension())
+                        .build().toString())
+                .body(body);
+    }
+}
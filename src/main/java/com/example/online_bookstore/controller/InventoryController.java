@@ -0,0 +1,41 @@
+package com.example.online_bookstore.controller;
+
+import com.example.online_bookstore.dto.StripedStockDto;
+import com.example.online_bookstore.inventory.StripedInventory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/inventory")
+public class InventoryController {
+    private final StripedInventory stripedInventory;
+
+    public InventoryController(StripedInventory stripedInventory) {
+        this.stripedInventory = stripedInventory;
+    }
+
+    @GetMapping("/striped")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<StripedStockDto>> getStripedBooks() {
+        return ResponseEntity.ok(stripedInventory.status());
+    }
+
+    @PutMapping("/striped/{bookId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> enableStriping(@PathVariable Long bookId,
+                                               @RequestParam(defaultValue = "0") int stripes) {
+        int stripeCount = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors();
+        stripedInventory.enable(bookId, stripeCount);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/striped/{bookId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> disableStriping(@PathVariable Long bookId) {
+        stripedInventory.disable(bookId);
+        return ResponseEntity.noContent().build();
+    }
+}
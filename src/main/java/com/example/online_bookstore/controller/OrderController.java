@@ -2,20 +2,27 @@ package com.example.online_bookstore.controller;
 
 import com.example.online_bookstore.dto.CheckoutRequest;
 import com.example.online_bookstore.dto.OrderDto;
+import com.example.online_bookstore.dto.OrderPageDto;
+import com.example.online_bookstore.service.IdempotentCheckoutService;
 import com.example.online_bookstore.service.OrderService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/orders")
 public class OrderController {
     private final OrderService orderService;
+    private final IdempotentCheckoutService idempotentCheckoutService;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, IdempotentCheckoutService idempotentCheckoutService) {
         this.orderService = orderService;
+        this.idempotentCheckoutService = idempotentCheckoutService;
     }
 
     @GetMapping
@@ -24,14 +31,33 @@ public class OrderController {
     }
 
     @PostMapping("/checkout")
-    public ResponseEntity<OrderDto> checkout(@RequestBody CheckoutRequest request) {
-        return ResponseEntity.ok(orderService.createOrder(request));
+    public ResponseEntity<OrderDto> checkout(@RequestBody CheckoutRequest request,
+                                             @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return ResponseEntity.ok(orderService.createOrder(request));
+        }
+        return ResponseEntity.ok(idempotentCheckoutService.checkout(request, idempotencyKey));
     }
 
     @GetMapping("/all")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<OrderDto>> getAllOrders() {
-        return ResponseEntity.ok(orderService.getAllOrders());
+    public ResponseEntity<OrderPageDto> getAllOrders(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(orderService.getAllOrders(page, size, status, from, to));
+    }
+
+    @GetMapping("/aging")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<OrderPageDto> getOrdersInStatusPlacedBefore(
+            @RequestParam String status,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(orderService.getOrdersInStatusPlacedBefore(status, before, page, size));
     }
 
     @GetMapping("/{id}")
@@ -34,6 +34,8 @@ public class BookDto {
     private Integer stockQuantity;
 
     private String category;
+
+    private Long version;
     
     // Constructor to simplify entity to DTO conversion
     public BookDto(Book book) {
@@ -46,6 +48,7 @@ public class BookDto {
         this.coverImage = book.getCoverImage();
         this.stockQuantity = book.getStockQuantity();
         this.category = book.getCategory();
+        this.version = book.getVersion();
     }
     
     // Default no-args constructor to maintain compatibility
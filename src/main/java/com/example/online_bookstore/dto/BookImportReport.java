@@ -0,0 +1,31 @@
+package com.example.online_bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class BookImportReport {
+    private long rowsRead;
+    private long inserted;
+    private long updated;
+    private long rejected;
+    private List<RowError> errors = new ArrayList<>();
+    // True when more rows were rejected than the report lists
+    private boolean errorsTruncated;
+    private long durationMillis;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        // 1-based record number in the feed, not counting a CSV header
+        private long row;
+        private String isbn;
+        private String message;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.online_bookstore.dto;
+
+import com.example.online_bookstore.exception.BusinessLogicException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor of {@link BookPageDto}: the id of the last book on the previous page.
+ * Shared by the servlet and reactive catalog APIs so their cursors are interchangeable.
+ */
+public final class BookPageCursor {
+
+    private static final String PREFIX = "b:";
+
+    private BookPageCursor() {
+    }
+
+    public static String encode(Long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(PREFIX)) {
+                throw new BusinessLogicException("Invalid page cursor");
+            }
+            return Long.parseLong(decoded.substring(PREFIX.length()));
+        } catch (IllegalArgumentException ex) {
+            throw new BusinessLogicException("Invalid page cursor");
+        }
+    }
+}
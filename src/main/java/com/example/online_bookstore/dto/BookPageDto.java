@@ -0,0 +1,16 @@
+package com.example.online_bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookPageDto {
+    private List<BookDto> items;
+    private String nextCursor; // Opaque token, pass back as ?cursor= to fetch the next page; null on the last page
+    private boolean hasMore;
+}
@@ -0,0 +1,14 @@
+package com.example.online_bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSuggestionDto {
+    private Long bookId;
+    private String title;
+    private String author;
+}
@@ -0,0 +1,32 @@
+package com.example.online_bookstore.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class CartBulkRequest {
+    @NotEmpty(message = "At least one operation is required")
+    @Size(max = 500, message = "At most 500 operations per request")
+    private List<@Valid @NotNull Operation> operations;
+
+    public enum Type { ADD, UPDATE, REMOVE }
+
+    /**
+     * ADD adds quantity of bookId. UPDATE sets the quantity of a line and REMOVE drops it; both
+     * name the line by itemId, or by bookId for lines the client has not seen an id for yet.
+     */
+    @Data
+    public static class Operation {
+        @NotNull(message = "Operation type is required")
+        private Type type;
+
+        private Long itemId;
+        private Long bookId;
+        private Integer quantity;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.online_bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetedBooksDto {
+    private List<BookDto> books;
+    private long total;
+    // Each facet is counted with the filters of the other facets applied, so counts show what selecting it would return
+    private Map<String, Long> categories;
+    private Map<String, Long> priceRanges;
+    private Map<String, Long> availability;
+}
@@ -0,0 +1,18 @@
+package com.example.online_bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderPageDto {
+    private List<OrderDto> items;
+    private int page;
+    private int size;
+    private long totalElements;
+    private int totalPages;
+}
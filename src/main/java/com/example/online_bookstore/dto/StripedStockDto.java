@@ -0,0 +1,14 @@
+package com.example.online_bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StripedStockDto {
+    private Long bookId;
+    private int stripes;
+    private int leasedStock;
+}
@@ -2,13 +2,20 @@ package com.example.online_bookstore.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.proxy.HibernateProxy;
 
 import java.math.BigDecimal;
 import java.util.Objects;
 
 @Entity
-@Table(name = "books")
+// Updates write only the columns that changed, so a price edit does not rewrite the description
+@DynamicUpdate
+@Table(name = "books", indexes = {
+        // Catalog imports upsert by ISBN; not unique because existing rows may share one
+        @Index(name = "idx_books_isbn", columnList = "isbn")
+})
 @Getter
 @Setter
 @ToString
@@ -18,7 +25,8 @@ import java.util.Objects;
 public class Book {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "books_seq")
+    @SequenceGenerator(name = "books_seq", sequenceName = "books_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -43,6 +51,12 @@ public class Book {
     @Column
     private String category;
 
+    // Bumped on every change; used for ETags and optimistic locking
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     @Override
     public final boolean equals(Object o) {
         if (this == o) return true;
@@ -7,7 +7,6 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.hibernate.proxy.HibernateProxy;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -21,35 +20,44 @@ import java.util.Objects;
 public class Cart {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "carts_seq")
+    @SequenceGenerator(name = "carts_seq", sequenceName = "carts_seq", allocationSize = 50)
     private Long id;
 
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
     @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<CartItem> items = new ArrayList<>();
 
+    // Kept up to date by the methods below, one delta per change rather than a sum over every line
     @Column
-    private BigDecimal totalPrice = BigDecimal.ZERO;
-
-    public void updateTotalPrice() {
-        this.totalPrice = items.stream()
-                .map(CartItem::getSubtotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
+    @Convert(converter = MoneyConverter.class)
+    private Money totalPrice = Money.zero();
 
     public void addItem(CartItem item) {
         items.add(item);
         item.setCart(this);
-        updateTotalPrice();
+        totalPrice = totalPrice.plus(item.getSubtotal());
+    }
+
+    public void changeQuantity(CartItem item, int quantity) {
+        totalPrice = totalPrice.plus(item.getPrice().times(quantity - item.getQuantity()));
+        item.setQuantity(quantity);
     }
 
     public void removeItem(CartItem item) {
-        items.remove(item);
+        if (items.remove(item)) {
+            totalPrice = totalPrice.minus(item.getSubtotal());
+        }
         item.setCart(null);
-        updateTotalPrice();
+    }
+
+    // For callers that delete the lines themselves, in bulk
+    public void clearItems() {
+        items.clear();
+        totalPrice = Money.zero();
     }
     
     @Override
@@ -7,7 +7,6 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.hibernate.proxy.HibernateProxy;
 
-import java.math.BigDecimal;
 import java.util.Objects;
 
 @Entity
@@ -19,14 +18,15 @@ import java.util.Objects;
 public class CartItem {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_items_seq")
+    @SequenceGenerator(name = "cart_items_seq", sequenceName = "cart_items_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "cart_id", nullable = false)
     private Cart cart;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "book_id", nullable = false)
     private Book book;
 
@@ -34,10 +34,11 @@ public class CartItem {
     private Integer quantity;
 
     @Column(nullable = false)
-    private BigDecimal price;
+    @Convert(converter = MoneyConverter.class)
+    private Money price;
 
-    public BigDecimal getSubtotal() {
-        return price.multiply(new BigDecimal(quantity));
+    public Money getSubtotal() {
+        return price.times(quantity);
     }
     
     @Override
@@ -0,0 +1,72 @@
+package com.example.online_bookstore.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * An Idempotency-Key a user sent with a checkout, the fingerprint of the request it came
+ * with, the order it produced and the response the client got for it. The row is written
+ * in the checkout transaction itself, so a key exists exactly when its order does.
+ */
+@Entity
+@Table(name = "checkout_idempotency_keys",
+        uniqueConstraints = @UniqueConstraint(name = "uk_checkout_idempotency_user_key",
+                columnNames = {"user_id", "idempotency_key"}),
+        indexes = @Index(name = "idx_checkout_idempotency_created_at", columnList = "created_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutIdempotencyKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "checkout_idempotency_keys_seq")
+    @SequenceGenerator(name = "checkout_idempotency_keys_seq", sequenceName = "checkout_idempotency_keys_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "idempotency_key", nullable = false)
+    private String idempotencyKey;
+
+    @Column(nullable = false, length = 64)
+    private String requestHash;
+
+    // Set in the same transaction that inserts the row, once the order has an id
+    @Column
+    private Long orderId;
+
+    // The OrderDto returned by the first attempt, as JSON; null on rows written before it was kept
+    @JdbcTypeCode(SqlTypes.LONG32VARCHAR)
+    @Column
+    private String response;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Override
+    public final boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null) return false;
+        Class<?> oEffectiveClass = o instanceof HibernateProxy ? ((HibernateProxy) o).getHibernateLazyInitializer().getPersistentClass() : o.getClass();
+        Class<?> thisEffectiveClass = this instanceof HibernateProxy ? ((HibernateProxy) this).getHibernateLazyInitializer().getPersistentClass() : this.getClass();
+        if (thisEffectiveClass != oEffectiveClass) return false;
+        CheckoutIdempotencyKey that = (CheckoutIdempotencyKey) o;
+        return getId() != null && Objects.equals(getId(), that.getId());
+    }
+
+    @Override
+    public final int hashCode() {
+        return this instanceof HibernateProxy ? ((HibernateProxy) this).getHibernateLazyInitializer().getPersistentClass().hashCode() : getClass().hashCode();
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.online_bookstore.entity;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Objects;
+
+/**
+ * An amount as a whole number of its currency's minor units (cents for USD). Sums and
+ * line subtotals are exact long arithmetic with no BigDecimal per step; amounts become
+ * BigDecimal only in columns and DTOs. Overflow throws instead of wrapping.
+ */
+public record Money(long minorUnits, Currency currency) {
+
+    // Prices carry no currency column: the store sells in a single currency
+    public static final Currency STORE_CURRENCY = Currency.getInstance("USD");
+
+    private static final Money ZERO = new Money(0, STORE_CURRENCY);
+
+    public Money {
+        Objects.requireNonNull(currency, "currency");
+    }
+
+    public static Money zero() {
+        return ZERO;
+    }
+
+    public static Money of(BigDecimal amount) {
+        return of(amount, STORE_CURRENCY);
+    }
+
+    // Rounds half up, as PostgreSQL does when it stores a value into a numeric column of that scale
+    public static Money of(BigDecimal amount, Currency currency) {
+        long minorUnits = amount.setScale(currency.getDefaultFractionDigits(), RoundingMode.HALF_UP)
+                .unscaledValue().longValueExact();
+        return minorUnits == 0 && currency == STORE_CURRENCY ? ZERO : new Money(minorUnits, currency);
+    }
+
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return other.minorUnits == 0 ? this : new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money minus(Money other) {
+        requireSameCurrency(other);
+        return other.minorUnits == 0 ? this : new Money(Math.subtractExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money times(int quantity) {
+        return quantity == 1 ? this : new Money(Math.multiplyExact(minorUnits, quantity), currency);
+    }
+
+    public boolean isZero() {
+        return minorUnits == 0;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, currency.getDefaultFractionDigits());
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Cannot combine " + currency + " with " + other.currency);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString() + " " + currency.getCurrencyCode();
+    }
+}
@@ -14,7 +14,11 @@ import java.util.List;
 import java.util.Objects;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // Status dashboards: "all PENDING orders older than X" is a range scan on this index
+        @Index(name = "idx_orders_status_order_date", columnList = "status, order_date"),
+        @Index(name = "idx_orders_user_order_date", columnList = "user_id, order_date")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -22,24 +26,29 @@ import java.util.Objects;
 public class Order {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<OrderItem> items = new ArrayList<>();
 
-    @Column(nullable = false)
+    @Column(name = "order_date", nullable = false)
     private LocalDateTime orderDate = LocalDateTime.now();
 
     @Column(nullable = false)
     private BigDecimal totalAmount;
 
-    @Column(nullable = false)
-    private String status = "PENDING"; // PENDING, PROCESSING, SHIPPED, DELIVERED, CANCELLED
+    @Column(nullable = false, length = 20)
+    private OrderStatus status = OrderStatus.PENDING;
+
+    // The free-form status this order had before OrderStatusNormalizer mapped it to a known one
+    @Column(name = "legacy_status")
+    private String legacyStatus;
 
     @Column
     private String shippingAddress;
@@ -0,0 +1,45 @@
+package com.example.online_bookstore.entity;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Lifecycle of an order: PENDING, PROCESSING, SHIPPED, DELIVERED, with CANCELLED reachable
+ * until the order has shipped. DELIVERED and CANCELLED are final.
+ */
+public enum OrderStatus {
+    PENDING,
+    PROCESSING,
+    SHIPPED,
+    DELIVERED,
+    CANCELLED;
+
+    public Set<OrderStatus> nextStatuses() {
+        return switch (this) {
+            case PENDING -> EnumSet.of(PROCESSING, CANCELLED);
+            case PROCESSING -> EnumSet.of(SHIPPED, CANCELLED);
+            case SHIPPED -> EnumSet.of(DELIVERED);
+            case DELIVERED, CANCELLED -> EnumSet.noneOf(OrderStatus.class);
+        };
+    }
+
+    public boolean canTransitionTo(OrderStatus next) {
+        return nextStatuses().contains(next);
+    }
+
+    /**
+     * Parses a status name regardless of case and surrounding spaces, or returns null when
+     * it names no status.
+     */
+    public static OrderStatus parse(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
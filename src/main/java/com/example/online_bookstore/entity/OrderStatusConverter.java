@@ -0,0 +1,30 @@
+package com.example.online_bookstore.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores the status name in the existing status column. Reads accept a status name in any
+ * case. OrderStatusNormalizer rewrites older free-form values at startup, so a value that
+ * names no status was written since by something else and fails the read.
+ */
+@Converter(autoApply = true)
+public class OrderStatusConverter implements AttributeConverter<OrderStatus, String> {
+
+    @Override
+    public String convertToDatabaseColumn(OrderStatus status) {
+        return status == null ? null : status.name();
+    }
+
+    @Override
+    public OrderStatus convertToEntityAttribute(String value) {
+        if (value == null) {
+            return null;
+        }
+        OrderStatus status = OrderStatus.parse(value);
+        if (status == null) {
+            throw new IllegalStateException("Unknown order status in database: " + value);
+        }
+        return status;
+    }
+}
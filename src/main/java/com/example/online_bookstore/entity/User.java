@@ -7,6 +7,8 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.hibernate.proxy.HibernateProxy;
 
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -20,7 +22,8 @@ import java.util.Objects;
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -35,12 +38,33 @@ public class User {
     @Column(nullable = false)
     private String role = "USER"; // Default role
 
+    // Tokens issued before this are rejected; set when the password or the role changes
+    @Column(name = "tokens_valid_after")
+    private LocalDateTime tokensValidAfter;
+
+    @Transient
+    private String loadedRole;
+
     @OneToOne(mappedBy = "user", cascade = CascadeType.ALL)
     private Cart cart;
 
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL)
     private List<Order> orders = new ArrayList<>();
     
+    @PostLoad
+    void rememberRole() {
+        loadedRole = role;
+    }
+
+    // Tokens carry the role as a claim, so a changed role must invalidate the ones already issued
+    @PreUpdate
+    void revokeTokensOnRoleChange() {
+        if (loadedRole != null && !loadedRole.equals(role)) {
+            tokensValidAfter = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        }
+        loadedRole = role;
+    }
+
     @Override
     public final boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,82 @@
+package com.example.online_bookstore.event;
+
+import com.example.online_bookstore.dto.BookDto;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Published by BookService whenever a book is created, updated or deleted.
+ * Listeners that keep derived state (search index, caches) should react after commit,
+ * and can use changedFields to skip work for fields they do not depend on.
+ */
+@Getter
+public class BookChangedEvent {
+
+    // BookDto properties an edit can change, in the order changedFields lists them
+    public static final List<String> FIELDS = List.of(
+            "title", "author", "description", "price", "isbn", "coverImage", "stockQuantity", "category");
+
+    private final Long bookId;
+    private final BookDto before; // null when the book was created
+    private final BookDto after;  // null when the book was deleted
+    private final Set<String> changedFields; // every field when the book was created or deleted
+
+    public BookChangedEvent(Long bookId, BookDto before, BookDto after) {
+        this.bookId = bookId;
+        this.before = before;
+        this.after = after;
+        this.changedFields = Collections.unmodifiableSet(changedFields(before, after));
+    }
+
+    public boolean isDeleted() {
+        return after == null;
+    }
+
+    public boolean changedAny(String... fields) {
+        for (String field : fields) {
+            if (changedFields.contains(field)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The FIELDS whose values differ between two versions of a book. Prices are compared by
+     * value, so 12.5 and 12.50 count as the same.
+     */
+    public static Set<String> changedFields(BookDto before, BookDto after) {
+        Set<String> changed = new LinkedHashSet<>();
+        if (before == null || after == null) {
+            changed.addAll(FIELDS);
+            return changed;
+        }
+        addIfChanged(changed, "title", before, after, BookDto::getTitle);
+        addIfChanged(changed, "author", before, after, BookDto::getAuthor);
+        addIfChanged(changed, "description", before, after, BookDto::getDescription);
+        BigDecimal oldPrice = before.getPrice();
+        BigDecimal newPrice = after.getPrice();
+        if (oldPrice == null || newPrice == null ? oldPrice != newPrice : oldPrice.compareTo(newPrice) != 0) {
+            changed.add("price");
+        }
+        addIfChanged(changed, "isbn", before, after, BookDto::getIsbn);
+        addIfChanged(changed, "coverImage", before, after, BookDto::getCoverImage);
+        addIfChanged(changed, "stockQuantity", before, after, BookDto::getStockQuantity);
+        addIfChanged(changed, "category", before, after, BookDto::getCategory);
+        return changed;
+    }
+
+    private static void addIfChanged(Set<String> changed, String field, BookDto before, BookDto after,
+                                     Function<BookDto, Object> value) {
+        if (!Objects.equals(value.apply(before), value.apply(after))) {
+            changed.add(field);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.online_bookstore.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when stock is reserved or released without any other change to the book,
+ * so listeners can react without reloading the whole row.
+ */
+@Getter
+@AllArgsConstructor
+public class BookStockChangedEvent {
+    private final Long bookId;
+    private final int delta; // negative when stock was taken
+}
@@ -0,0 +1,189 @@
+package com.example.online_bookstore.inventory;
+
+import com.example.online_bookstore.cache.BookCache;
+import com.example.online_bookstore.dto.StripedStockDto;
+import com.example.online_bookstore.event.BookChangedEvent;
+import com.example.online_bookstore.exception.BusinessLogicException;
+import com.example.online_bookstore.repo.BookRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Optional striped stock for flash-sale titles. A striped book leases stock from its row in
+ * chunks (one conditional decrement per chunk) into an in-memory StripedStockCounter, so
+ * checkouts of that title no longer queue on the row lock. The reported stock of the book
+ * is the row value plus the units currently on its stripes.
+ *
+ * A chunk is leased inside the checkout transaction that ran the stripes dry, and only the
+ * units that checkout did not need reach the stripes, after it commits. Leases live in this
+ * process only: they go back to the row on disable and on shutdown, and a crash leaves at
+ * most one chunk per book missing from the row until an admin corrects it.
+ */
+@Component
+public class StripedInventory {
+
+    private static final Logger log = LoggerFactory.getLogger(StripedInventory.class);
+
+    @Value("${bookstore.inventory.lease-size:20}")
+    private int leaseSize;
+
+    private final Map<Long, StripedStockCounter> counters = new ConcurrentHashMap<>();
+    private final BookRepository bookRepository;
+    private final BookCache bookCache;
+    private final TransactionTemplate returnTransaction;
+
+    public StripedInventory(BookRepository bookRepository, BookCache bookCache,
+                            PlatformTransactionManager transactionManager) {
+        this.bookRepository = bookRepository;
+        this.bookCache = bookCache;
+        this.returnTransaction = new TransactionTemplate(transactionManager);
+        this.returnTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public boolean isStriped(Long bookId) {
+        return counters.containsKey(bookId);
+    }
+
+    public int leasedStock(Long bookId) {
+        StripedStockCounter counter = counters.get(bookId);
+        return counter == null ? 0 : counter.total();
+    }
+
+    public void enable(Long bookId, int stripes) {
+        if (!bookRepository.existsById(bookId)) {
+            throw new BusinessLogicException("Book not found with id: " + bookId);
+        }
+        if (stripes < 1) {
+            throw new BusinessLogicException("At least one stripe is required");
+        }
+        counters.computeIfAbsent(bookId, id -> new StripedStockCounter(stripes, leaseSize));
+    }
+
+    public void disable(Long bookId) {
+        StripedStockCounter counter = counters.remove(bookId);
+        if (counter != null) {
+            returnToRow(bookId, counter.drainAll());
+        }
+    }
+
+    /**
+     * Drops the leased units of a striped book ahead of an admin edit that overwrites the
+     * row's stock quantity. The units come back to the stripes if that edit rolls back.
+     */
+    public void releaseForOverwrite(Long bookId) {
+        StripedStockCounter counter = counters.get(bookId);
+        if (counter == null) {
+            return;
+        }
+        int released = counter.drainAll();
+        if (released > 0) {
+            afterCompletion(committed -> {
+                if (!committed) {
+                    counter.give(released);
+                    bookCache.stockChanged(bookId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Takes stock for a checkout, from the stripes of a striped book or from its row otherwise.
+     * Returns false if there is not enough. Must run inside the checkout transaction: if that
+     * rolls back, the units are put back where they came from.
+     */
+    public boolean reserve(Long bookId, int quantity) {
+        StripedStockCounter counter = counters.get(bookId);
+        if (counter == null) {
+            return bookRepository.decrementStock(bookId, quantity) > 0;
+        }
+
+        StripedStockCounter.Reservation reservation;
+        try {
+            reservation = counter.take(quantity, units -> bookRepository.decrementStock(bookId, units) > 0 ? units : 0);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        if (reservation == null) {
+            returnIfDisabled(bookId, counter);
+            return false;
+        }
+
+        afterCompletion(committed -> {
+            if (!committed && reservation.getFromStripes() > 0) {
+                counter.give(reservation.getFromStripes());
+            }
+            counter.settle(reservation, committed);
+            returnIfDisabled(bookId, counter);
+            // Reported stock moved without a row change; a cached copy read meanwhile is stale
+            if (reservation.getSurplus() > 0 || (!committed && reservation.getFromStripes() > 0)) {
+                bookCache.stockChanged(bookId);
+            }
+        });
+        return true;
+    }
+
+    public List<StripedStockDto> status() {
+        return counters.entrySet().stream()
+                .map(entry -> new StripedStockDto(entry.getKey(), entry.getValue().stripes(), entry.getValue().total()))
+                .sorted(Comparator.comparing(StripedStockDto::getBookId))
+                .toList();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.isDeleted()) {
+            counters.remove(event.getBookId());
+        }
+    }
+
+    @PreDestroy
+    public void returnAllLeases() {
+        counters.keySet().forEach(this::disable);
+    }
+
+    private void afterCompletion(CompletionCallback callback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            callback.completed(true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                callback.completed(status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    // Units that reached a counter after striping was switched off for its book go back to the row
+    private void returnIfDisabled(Long bookId, StripedStockCounter counter) {
+        if (counters.get(bookId) != counter) {
+            returnToRow(bookId, counter.drainAll());
+        }
+    }
+
+    private void returnToRow(Long bookId, int quantity) {
+        if (quantity > 0) {
+            returnTransaction.executeWithoutResult(status -> bookRepository.incrementStock(bookId, quantity));
+            log.info("Returned {} leased units to book {}", quantity, bookId);
+        }
+    }
+
+    private interface CompletionCallback {
+        void completed(boolean committed);
+    }
+}
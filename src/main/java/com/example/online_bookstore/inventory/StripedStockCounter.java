@@ -0,0 +1,206 @@
+package com.example.online_bookstore.inventory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Stock of one book split over independently updated stripes. Takers pick a random stripe
+ * and decrement it with a CAS, so threads rarely contend on the same counter. When no
+ * stripe can cover a request, one thread drains all stripes and spreads the remainder
+ * evenly again. If that is not enough, it leases more units from the lease source without
+ * holding the rebalance lock, since the lease waits on a database row lock.
+ *
+ * Leased units beyond what the request needed are not on the stripes yet: the caller
+ * credits them once the lease is durable, and takers that come up short wait briefly
+ * for such pending credits before giving up.
+ */
+final class StripedStockCounter {
+
+    // Ints per stripe, so neighbouring stripes sit on different cache lines
+    private static final int PADDING = 16;
+
+    private static final long PENDING_WAIT_MILLIS = 2000;
+
+    private final int stripes;
+    private final AtomicIntegerArray cells;
+    private final AtomicInteger parked = new AtomicInteger();
+    private final ReentrantLock rebalanceLock = new ReentrantLock();
+    private final Condition credited = rebalanceLock.newCondition();
+    private final int leaseSize;
+    private int pending;
+    // Parked units held back by takers whose lease is in flight, and how many such takers there are
+    private int claimed;
+    private int leasing;
+
+    StripedStockCounter(int stripes, int leaseSize) {
+        this.stripes = stripes;
+        this.cells = new AtomicIntegerArray(stripes * PADDING);
+        this.leaseSize = leaseSize;
+    }
+
+    int stripes() {
+        return stripes;
+    }
+
+    /**
+     * @param leaseSource asked for a number of units, returns how many it actually granted
+     * @return the reservation, or null if neither the stripes nor the lease source can cover it
+     */
+    Reservation take(int quantity, IntUnaryOperator leaseSource) throws InterruptedException {
+        if (tryTakeFromStripes(quantity)) {
+            return new Reservation(quantity, 0);
+        }
+        rebalanceLock.lock();
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(PENDING_WAIT_MILLIS);
+            while (true) {
+                int pooled = park() - claimed;
+                if (pooled >= quantity) {
+                    unpark(quantity);
+                    spread(unpark(pooled - quantity));
+                    return new Reservation(quantity, 0);
+                }
+                int need = quantity - pooled;
+                // The lease waits on the row lock, so it runs unlocked with the pooled units held back for this request
+                claimed += pooled;
+                leasing++;
+                int granted;
+                rebalanceLock.unlock();
+                try {
+                    granted = lease(leaseSource, need);
+                } finally {
+                    rebalanceLock.lock();
+                    claimed -= pooled;
+                    leasing--;
+                    credited.signalAll();
+                }
+                if (granted >= need) {
+                    unpark(pooled);
+                    pending += granted - need;
+                    return new Reservation(pooled, granted - need);
+                }
+                spread(unpark(park() - claimed));
+                long remaining = deadline - System.nanoTime();
+                if (pending == 0 && leasing == 0 || remaining <= 0) {
+                    return null;
+                }
+                credited.awaitNanos(remaining);
+            }
+        } finally {
+            rebalanceLock.unlock();
+        }
+    }
+
+    private int lease(IntUnaryOperator leaseSource, int need) {
+        int granted = leaseSource.applyAsInt(Math.max(leaseSize, need));
+        if (granted < need) {
+            // Not enough for a full chunk; settle for exactly what this request needs
+            granted = leaseSource.applyAsInt(need);
+        }
+        return granted;
+    }
+
+    void give(int quantity) {
+        int cell = ThreadLocalRandom.current().nextInt(stripes) * PADDING;
+        cells.addAndGet(cell, quantity);
+    }
+
+    /**
+     * Settles the surplus of a reservation: puts it on the stripes once its lease committed,
+     * or just forgets it when the lease rolled back.
+     */
+    void settle(Reservation reservation, boolean committed) {
+        if (reservation.getSurplus() == 0) {
+            return;
+        }
+        rebalanceLock.lock();
+        try {
+            pending -= reservation.getSurplus();
+            if (committed) {
+                spread(reservation.getSurplus());
+            }
+            credited.signalAll();
+        } finally {
+            rebalanceLock.unlock();
+        }
+    }
+
+    // Removes every unit from the stripes and returns how many there were, apart from units held by a lease in flight
+    int drainAll() {
+        rebalanceLock.lock();
+        try {
+            return unpark(park() - claimed);
+        } finally {
+            rebalanceLock.unlock();
+        }
+    }
+
+    int total() {
+        int total = parked.get();
+        for (int i = 0; i < stripes; i++) {
+            total += cells.get(i * PADDING);
+        }
+        return total;
+    }
+
+    private boolean tryTakeFromStripes(int quantity) {
+        int start = ThreadLocalRandom.current().nextInt(stripes);
+        for (int i = 0; i < stripes; i++) {
+            int cell = ((start + i) % stripes) * PADDING;
+            int current;
+            while ((current = cells.get(cell)) >= quantity) {
+                if (cells.compareAndSet(cell, current, current - quantity)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Moves the stripes into the parked count, which keeps them visible in total() while rebalancing
+    private int park() {
+        int drained = 0;
+        for (int i = 0; i < stripes; i++) {
+            drained += cells.getAndSet(i * PADDING, 0);
+        }
+        return parked.addAndGet(drained);
+    }
+
+    private int unpark(int quantity) {
+        parked.addAndGet(-quantity);
+        return quantity;
+    }
+
+    private void spread(int quantity) {
+        int share = quantity / stripes;
+        int remainder = quantity % stripes;
+        for (int i = 0; i < stripes; i++) {
+            cells.addAndGet(i * PADDING, share + (i < remainder ? 1 : 0));
+        }
+    }
+
+    static final class Reservation {
+        // Units taken off the stripes, given back if the caller rolls back
+        private final int fromStripes;
+        // Leased units beyond the request, settled once the caller's transaction completes
+        private final int surplus;
+
+        Reservation(int fromStripes, int surplus) {
+            this.fromStripes = fromStripes;
+            this.surplus = surplus;
+        }
+
+        int getFromStripes() {
+            return fromStripes;
+        }
+
+        int getSurplus() {
+            return surplus;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.online_bookstore.outbox;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Hands each message to in-process listeners as an application event, for example
+ * {@code @EventListener void on(OutboxMessage message)}. A listener that throws fails the batch.
+ */
+@Component
+@ConditionalOnProperty(name = "bookstore.outbox.sink", havingValue = "in-process", matchIfMissing = true)
+public class ApplicationEventOutboxSink implements OutboxSink {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ApplicationEventOutboxSink(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public void publish(List<OutboxMessage> messages) {
+        messages.forEach(eventPublisher::publishEvent);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.online_bookstore.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends each batch to a local NDJSON file, one message per line, and forces it to disk
+ * before the relay deletes the rows. A crash between the two repeats the batch in the file.
+ */
+@Component
+@ConditionalOnProperty(name = "bookstore.outbox.sink", havingValue = "file")
+public class FileOutboxSink implements OutboxSink {
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+
+    public FileOutboxSink(@Value("${bookstore.outbox.file.path:outbox-events.ndjson}") Path file,
+                          ObjectMapper objectMapper) {
+        this.file = file;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void publish(List<OutboxMessage> messages) {
+        StringBuilder lines = new StringBuilder();
+        for (OutboxMessage message : messages) {
+            lines.append(toJson(message)).append('\n');
+        }
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not append outbox events to " + file, ex);
+        }
+    }
+
+    // The payload is embedded as JSON rather than as an escaped string
+    private String toJson(OutboxMessage message) {
+        try {
+            ObjectNode node = objectMapper.createObjectNode();
+            node.put("id", message.getId());
+            node.put("aggregateType", message.getAggregateType());
+            node.put("aggregateId", message.getAggregateId());
+            node.put("eventType", message.getEventType());
+            node.put("createdAt", message.getCreatedAt().toString());
+            node.set("payload", objectMapper.readTree(message.getPayload()));
+            return objectMapper.writeValueAsString(node);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Outbox event " + message.getId() + " has an unreadable payload", ex);
+        }
+    }
+}
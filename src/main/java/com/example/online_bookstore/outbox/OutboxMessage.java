@@ -0,0 +1,59 @@
+package com.example.online_bookstore.outbox;
+
+import com.example.online_bookstore.entity.OutboxEvent;
+
+import java.time.LocalDateTime;
+
+/**
+ * What a sink receives for one outbox row. Delivery is at least once, so consumers should
+ * ignore an id they have already processed.
+ */
+public final class OutboxMessage {
+
+    private final Long id;
+    private final String aggregateType;
+    private final Long aggregateId;
+    private final String eventType;
+    private final String payload;
+    private final LocalDateTime createdAt;
+
+    public OutboxMessage(Long id, String aggregateType, Long aggregateId, String eventType,
+                         String payload, LocalDateTime createdAt) {
+        this.id = id;
+        this.aggregateType = aggregateType;
+        this.aggregateId = aggregateId;
+        this.eventType = eventType;
+        this.payload = payload;
+        this.createdAt = createdAt;
+    }
+
+    static OutboxMessage from(OutboxEvent event) {
+        return new OutboxMessage(event.getId(), event.getAggregateType(), event.getAggregateId(),
+                event.getEventType(), event.getPayload(), event.getCreatedAt());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getAggregateType() {
+        return aggregateType;
+    }
+
+    public Long getAggregateId() {
+        return aggregateId;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    // JSON document; for order events the OrderDto as of the change
+    public String getPayload() {
+        return payload;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
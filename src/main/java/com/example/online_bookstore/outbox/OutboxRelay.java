@@ -0,0 +1,67 @@
+package com.example.online_bookstore.outbox;
+
+import com.example.online_bookstore.entity.OutboxEvent;
+import com.example.online_bookstore.repo.OutboxEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Drains the outbox in id order, one locked batch per transaction: the batch goes to the
+ * sink and is deleted in the same transaction. A sink failure or a crash before commit leaves
+ * the rows in place, so delivery is at least once and never skips ahead of an undelivered
+ * event. Events of one order are inserted by transactions that follow each other, so id
+ * order is also their order.
+ */
+@Component
+@ConditionalOnProperty(name = "bookstore.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxSink sink;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       OutboxSink sink,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${bookstore.outbox.relay.batch-size:100}") int batchSize) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.sink = sink;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${bookstore.outbox.relay.interval:500ms}",
+            initialDelayString = "${bookstore.outbox.relay.interval:500ms}")
+    public void drain() {
+        try {
+            Integer relayed;
+            do {
+                relayed = transactionTemplate.execute(status -> relayBatch());
+            } while (relayed != null && relayed == batchSize);
+        } catch (RuntimeException ex) {
+            log.warn("Outbox relay stopped, will retry on the next run: {}", ex.getMessage());
+        }
+    }
+
+    private int relayBatch() {
+        List<OutboxEvent> events = outboxEventRepository.findOldestForUpdate(Limit.of(batchSize));
+        if (events.isEmpty()) {
+            return 0;
+        }
+        sink.publish(events.stream().map(OutboxMessage::from).toList());
+        outboxEventRepository.deleteByIdIn(events.stream().map(OutboxEvent::getId).toList());
+        return events.size();
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.online_bookstore.outbox;
+
+import java.util.List;
+
+/**
+ * Destination of relayed outbox events. A batch arrives in outbox order; the relay deletes it
+ * only after publish returns, so throwing makes the whole batch come back on the next run.
+ */
+public interface OutboxSink {
+
+    void publish(List<OutboxMessage> messages);
+}
@@ -0,0 +1,43 @@
+package com.example.online_bookstore.outbox;
+
+import com.example.online_bookstore.entity.OutboxEvent;
+import com.example.online_bookstore.repo.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Records an event as part of the caller's transaction, so it is published exactly when the
+ * change it describes commits. Delivery is left to {@link OutboxRelay}.
+ */
+@Component
+public class OutboxWriter {
+
+    public static final String ORDER = "Order";
+    public static final String ORDER_CREATED = "OrderCreated";
+    public static final String ORDER_STATUS_CHANGED = "OrderStatusChanged";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    public OutboxWriter(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(String aggregateType, Long aggregateId, String eventType, Object payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.setAggregateType(aggregateType);
+        event.setAggregateId(aggregateId);
+        event.setEventType(eventType);
+        try {
+            event.setPayload(objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not serialize " + eventType + " for " + aggregateType + " " + aggregateId, ex);
+        }
+        outboxEventRepository.save(event);
+    }
+}
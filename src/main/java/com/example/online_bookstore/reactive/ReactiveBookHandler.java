@@ -0,0 +1,117 @@
+package com.example.online_bookstore.reactive;
+
+import com.example.online_bookstore.cache.BookCache;
+import com.example.online_bookstore.dto.BookDto;
+import com.example.online_bookstore.dto.BookPageCursor;
+import com.example.online_bookstore.dto.BookPageDto;
+import com.example.online_bookstore.exception.BusinessLogicException;
+import com.example.online_bookstore.exception.ErrorResponse;
+import com.example.online_bookstore.exception.ResourceNotFoundException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Reactive counterparts of the BookController GET endpoints with the same paths, parameters,
+ * bodies and ETags. None of them blocks a thread while waiting on the database or the client.
+ */
+class ReactiveBookHandler {
+
+    private final ReactiveBookRepository bookRepository;
+    private final BookCache bookCache;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    ReactiveBookHandler(ReactiveBookRepository bookRepository, BookCache bookCache,
+                        int defaultPageSize, int maxPageSize) {
+        this.bookRepository = bookRepository;
+        this.bookCache = bookCache;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    Mono<ServerResponse> getAllBooks(ServerRequest request) {
+        // Deferred so a bad cursor or size reaches the router's error mapping instead of escaping it
+        return Mono.defer(() -> loadPage(request));
+    }
+
+    private Mono<ServerResponse> loadPage(ServerRequest request) {
+        int pageSize = request.queryParam("size")
+                .map(size -> (int) Math.min(Math.max(parse(size, "Invalid page size"), 1), maxPageSize))
+                .orElse(defaultPageSize);
+        long afterId = BookPageCursor.decode(request.queryParam("cursor").orElse(null));
+
+        return conditional(request, catalogETag(), () -> bookRepository.findPageAfter(afterId, pageSize + 1)
+                .collectList()
+                .map(books -> {
+                    // One extra row tells whether another page exists, as in BookService.getBookPage
+                    boolean hasMore = books.size() > pageSize;
+                    List<BookDto> items = hasMore ? books.subList(0, pageSize) : books;
+                    String nextCursor = hasMore ? BookPageCursor.encode(items.get(items.size() - 1).getId()) : null;
+                    return new BookPageDto(items, nextCursor, hasMore);
+                }));
+    }
+
+    Mono<ServerResponse> streamAllBooks(ServerRequest request) {
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(bookRepository.streamAll(), BookDto.class);
+    }
+
+    Mono<ServerResponse> getBookById(ServerRequest request) {
+        return Mono.defer(() -> loadBook(request));
+    }
+
+    private Mono<ServerResponse> loadBook(ServerRequest request) {
+        long id = parse(request.pathVariable("id"), "Invalid book id");
+        return bookRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("Book not found with id: " + id)))
+                .flatMap(book -> {
+                    String etag = "\"" + book.getId() + "-" + book.getVersion() + "-" + book.getStockQuantity() + "\"";
+                    return conditional(request, etag, () -> Mono.just(book));
+                });
+    }
+
+    Mono<ServerResponse> getBooksByCategory(ServerRequest request) {
+        String category = request.pathVariable("category");
+        return conditional(request, catalogETag(), () -> bookRepository.findByCategory(category).collectList());
+    }
+
+    Mono<ServerResponse> error(HttpStatus status, String error, Throwable ex, ServerRequest request) {
+        return ServerResponse.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new ErrorResponse(LocalDateTime.now(), status.value(), error, ex.getMessage(),
+                        request.path()));
+    }
+
+    // Weak: the version is per process and the bodies behind it are cached, see BookCache
+    private String catalogETag() {
+        return "W/\"c-" + bookCache.getCatalogVersion() + "\"";
+    }
+
+    // Answers If-None-Match with 304 before the body is loaded, matching BookController
+    private <T> Mono<ServerResponse> conditional(ServerRequest request, String etag,
+                                                 Supplier<Mono<T>> body) {
+        return request.checkNotModified(etag)
+                .switchIfEmpty(Mono.defer(() -> body.get().flatMap(value -> ServerResponse.ok()
+                        .eTag(etag)
+                        .cacheControl(CacheControl.noCache())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(value))));
+    }
+
+    private static long parse(String value, String message) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException ex) {
+            throw new BusinessLogicException(message);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.online_bookstore.reactive;
+
+import com.example.online_bookstore.dto.BookDto;
+import com.example.online_bookstore.inventory.StripedInventory;
+import io.r2dbc.spi.Readable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+
+/**
+ * Read-only queries against the same books table the JPA entity maps, over R2DBC.
+ * Rows become {@link BookDto} directly, with the same stock figure BookService reports.
+ */
+class ReactiveBookRepository {
+
+    private static final String SELECT_BOOKS = "select id, title, author, description, price, isbn, cover_image, "
+            + "stock_quantity, category, version from books";
+
+    private final DatabaseClient databaseClient;
+    private final StripedInventory stripedInventory;
+    private final int streamFetchSize;
+
+    ReactiveBookRepository(DatabaseClient databaseClient, StripedInventory stripedInventory, int streamFetchSize) {
+        this.databaseClient = databaseClient;
+        this.stripedInventory = stripedInventory;
+        this.streamFetchSize = streamFetchSize;
+    }
+
+    Mono<BookDto> findById(long id) {
+        return databaseClient.sql(SELECT_BOOKS + " where id = :id")
+                .bind("id", id)
+                .map(this::toDto)
+                .one();
+    }
+
+    Flux<BookDto> findPageAfter(long afterId, int limit) {
+        return databaseClient.sql(SELECT_BOOKS + " where id > :afterId order by id limit :limit")
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(this::toDto)
+                .all();
+    }
+
+    Flux<BookDto> findByCategory(String category) {
+        return databaseClient.sql(SELECT_BOOKS + " where category = :category order by id")
+                .bind("category", category)
+                .map(this::toDto)
+                .all();
+    }
+
+    // Rows are fetched from the server in batches as the subscriber asks for them, so a slow client holds back the query
+    Flux<BookDto> streamAll() {
+        return databaseClient.sql(SELECT_BOOKS + " order by id")
+                .filter(statement -> statement.fetchSize(streamFetchSize))
+                .map(this::toDto)
+                .all();
+    }
+
+    private BookDto toDto(Readable row) {
+        BookDto book = new BookDto();
+        book.setId(row.get("id", Long.class));
+        book.setTitle(row.get("title", String.class));
+        book.setAuthor(row.get("author", String.class));
+        book.setDescription(row.get("description", String.class));
+        book.setPrice(row.get("price", BigDecimal.class));
+        book.setIsbn(row.get("isbn", String.class));
+        book.setCoverImage(row.get("cover_image", String.class));
+        book.setStockQuantity(row.get("stock_quantity", Integer.class) + stripedInventory.leasedStock(book.getId()));
+        book.setCategory(row.get("category", String.class));
+        book.setVersion(row.get("version", Long.class));
+        return book;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.online_bookstore.reactive;
+
+import com.example.online_bookstore.cache.BookCache;
+import com.example.online_bookstore.exception.BusinessLogicException;
+import com.example.online_bookstore.exception.ResourceNotFoundException;
+import com.example.online_bookstore.inventory.StripedInventory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * Serves the public catalog reads on a separate Netty port with WebFlux and R2DBC, next to
+ * the servlet application that keeps every write path. A request holds no thread while it
+ * waits on PostgreSQL or on a slow client, so concurrent readers are bounded by memory and
+ * the R2DBC pool rather than by a thread pool.
+ *
+ * The connection factory is deliberately not a bean: Spring Boot backs off its JDBC
+ * DataSource when one is present, and JPA still needs that DataSource.
+ */
+@Component
+@ConditionalOnProperty(name = "bookstore.reactive.enabled", havingValue = "true")
+public class ReactiveCatalogServer {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveCatalogServer.class);
+
+    @Value("${bookstore.reactive.port:8081}")
+    private int port;
+
+    @Value("${bookstore.reactive.r2dbc.url}")
+    private String r2dbcUrl;
+
+    @Value("${bookstore.reactive.r2dbc.username:}")
+    private String username;
+
+    @Value("${bookstore.reactive.r2dbc.password:}")
+    private String password;
+
+    @Value("${bookstore.reactive.r2dbc.max-pool-size:10}")
+    private int maxPoolSize;
+
+    @Value("${bookstore.reactive.stream-fetch-size:256}")
+    private int streamFetchSize;
+
+    @Value("${bookstore.catalog.page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${bookstore.catalog.max-page-size:500}")
+    private int maxPageSize;
+
+    private final BookCache bookCache;
+    private final StripedInventory stripedInventory;
+    private final ObjectMapper objectMapper;
+
+    private ConnectionPool connectionPool;
+    private DisposableServer server;
+
+    public ReactiveCatalogServer(BookCache bookCache, StripedInventory stripedInventory, ObjectMapper objectMapper) {
+        this.bookCache = bookCache;
+        this.stripedInventory = stripedInventory;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void start() {
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(r2dbcUrl).mutate();
+        if (!username.isEmpty()) {
+            options.option(ConnectionFactoryOptions.USER, username);
+        }
+        if (!password.isEmpty()) {
+            options.option(ConnectionFactoryOptions.PASSWORD, password);
+        }
+        connectionPool = new ConnectionPool(ConnectionPoolConfiguration
+                .builder(ConnectionFactories.get(options.build()))
+                .maxSize(maxPoolSize)
+                .build());
+
+        ReactiveBookRepository bookRepository = new ReactiveBookRepository(
+                DatabaseClient.create(connectionPool), stripedInventory, streamFetchSize);
+        ReactiveBookHandler handler = new ReactiveBookHandler(bookRepository, bookCache, defaultPageSize, maxPageSize);
+
+        server = HttpServer.create()
+                .port(port)
+                .handle(new ReactorHttpHandlerAdapter(httpHandler(handler)))
+                .bindNow();
+        log.info("Reactive catalog API listening on port {}", server.port());
+    }
+
+    public int getPort() {
+        return server.port();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (server != null) {
+            server.disposeNow();
+        }
+        if (connectionPool != null) {
+            connectionPool.dispose();
+        }
+    }
+
+    private HttpHandler httpHandler(ReactiveBookHandler handler) {
+        RouterFunction<ServerResponse> routes = RouterFunctions.route()
+                .GET("/api/books", handler::getAllBooks)
+                .GET("/api/books/stream", handler::streamAllBooks)
+                .GET("/api/books/category/{category}", handler::getBooksByCategory)
+                .GET("/api/books/{id}", handler::getBookById)
+                .onError(ResourceNotFoundException.class,
+                        (ex, request) -> handler.error(HttpStatus.NOT_FOUND, "Not Found", ex, request))
+                .onError(BusinessLogicException.class,
+                        (ex, request) -> handler.error(HttpStatus.BAD_REQUEST, "Business Logic Error", ex, request))
+                .build();
+
+        // Same ObjectMapper as the servlet API so both produce identical JSON
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                })
+                .build();
+        return RouterFunctions.toHttpHandler(routes, strategies);
+    }
+}
@@ -1,14 +1,51 @@
 package com.example.online_bookstore.repo;
 
 import com.example.online_bookstore.entity.Book;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface BookRepository extends JpaRepository<Book, Long> {
+public interface BookRepository extends JpaRepository<Book, Long>, BookRepositoryCustom {
     List<Book> findByCategory(String category);
     List<Book> findByTitleContainingIgnoreCase(String title);
     List<Book> findByAuthorContainingIgnoreCase(String author);
+
+    @Query("select b.id from Book b where b.category = :category order by b.id")
+    List<Long> findIdsByCategory(String category);
+
+    // Reserves stock in one statement; returns 0 when the book is missing or has too little stock
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("update Book b set b.stockQuantity = b.stockQuantity - :quantity, b.version = b.version + 1 " +
+            "where b.id = :id and b.stockQuantity >= :quantity")
+    int decrementStock(Long id, int quantity);
+
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("update Book b set b.stockQuantity = b.stockQuantity + :quantity, b.version = b.version + 1 where b.id = :id")
+    int incrementStock(Long id, int quantity);
+
+    List<Book> findByIsbnIn(Collection<String> isbns);
+
+    // Keyset pagination: seeks past the last id of the previous page instead of using OFFSET
+    List<Book> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    // Must be consumed inside a transaction; rows are fetched from the cursor in chunks of the fetch size
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select b from Book b order by b.id")
+    Stream<Book> streamAllOrderById();
 }
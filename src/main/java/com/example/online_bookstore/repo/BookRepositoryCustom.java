@@ -0,0 +1,13 @@
+package com.example.online_bookstore.repo;
+
+import java.util.Map;
+
+public interface BookRepositoryCustom {
+
+    /**
+     * Reserves stock for several books in one conditional UPDATE. Returns the number of rows
+     * updated; anything less than the number of books means at least one was short, and the
+     * caller must roll back.
+     */
+    int decrementStocks(Map<Long, Integer> quantities);
+}
@@ -0,0 +1,44 @@
+package com.example.online_bookstore.repo;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class BookRepositoryCustomImpl implements BookRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int decrementStocks(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return 0;
+        }
+
+        // A searched CASE keyed by id carries each book's quantity; it works on every dialect
+        StringBuilder quantity = new StringBuilder("case");
+        for (int i = 0; i < quantities.size(); i++) {
+            quantity.append(" when b.id = :id").append(i).append(" then :quantity").append(i);
+        }
+        quantity.append(" else 0 end");
+
+        Query update = entityManager.createQuery(
+                "update Book b set b.stockQuantity = b.stockQuantity - (" + quantity + "), b.version = b.version + 1 " +
+                        "where b.id in :ids and b.stockQuantity >= (" + quantity + ")");
+        List<Long> ids = new ArrayList<>(quantities.keySet());
+        for (int i = 0; i < ids.size(); i++) {
+            update.setParameter("id" + i, ids.get(i));
+            update.setParameter("quantity" + i, quantities.get(ids.get(i)));
+        }
+        update.setParameter("ids", ids);
+
+        entityManager.flush();
+        return update.executeUpdate();
+    }
+}
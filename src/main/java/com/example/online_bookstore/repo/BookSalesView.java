@@ -0,0 +1,7 @@
+package com.example.online_bookstore.repo;
+
+// Projection of the total quantity sold per book
+public interface BookSalesView {
+    Long getBookId();
+    Long getSold();
+}
@@ -2,6 +2,8 @@ package com.example.online_bookstore.repo;
 
 import com.example.online_bookstore.entity.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,4 +13,8 @@ import java.util.Optional;
 public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     List<CartItem> findByCartId(Long cartId);
     Optional<CartItem> findByCartIdAndBookId(Long cartId, Long bookId);
+
+    @Modifying(flushAutomatically = true)
+    @Query("delete from CartItem ci where ci.cart.id = :cartId")
+    int deleteByCartId(Long cartId);
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.example.online_bookstore.repo;
+
+import com.example.online_bookstore.entity.Money;
+
+// One row per cart line joined with the book columns the cart shows; item columns are null for an empty cart
+public interface CartLineView {
+    Long getCartId();
+    Money getTotalPrice();
+    Long getItemId();
+    Long getBookId();
+    Integer getQuantity();
+    Money getPrice();
+    String getBookTitle();
+    String getBookAuthor();
+    String getBookImage();
+}
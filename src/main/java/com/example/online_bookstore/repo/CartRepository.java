@@ -2,11 +2,25 @@ package com.example.online_bookstore.repo;
 
 import com.example.online_bookstore.entity.Cart;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CartRepository extends JpaRepository<Cart, Long> {
     Optional<Cart> findByUserId(Long userId);
+
+    // Loads the cart, its owner, its lines and their books in one query for checkout
+    @Query("select distinct c from Cart c join fetch c.user left join fetch c.items i left join fetch i.book " +
+            "where c.user.id = :userId")
+    Optional<Cart> findWithItemsByUserId(Long userId);
+
+    // Everything a CartDto shows in one round trip, without loading cart, item or book entities
+    @Query("select c.id as cartId, c.totalPrice as totalPrice, i.id as itemId, b.id as bookId, " +
+            "i.quantity as quantity, i.price as price, b.title as bookTitle, b.author as bookAuthor, " +
+            "b.coverImage as bookImage " +
+            "from Cart c left join c.items i left join i.book b where c.user.id = :userId order by i.id")
+    List<CartLineView> findLinesByUserId(Long userId);
 }
\ No newline at end of file
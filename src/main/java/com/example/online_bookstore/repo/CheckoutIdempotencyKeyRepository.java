@@ -0,0 +1,19 @@
+package com.example.online_bookstore.repo;
+
+import com.example.online_bookstore.entity.CheckoutIdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface CheckoutIdempotencyKeyRepository extends JpaRepository<CheckoutIdempotencyKey, Long> {
+    Optional<CheckoutIdempotencyKey> findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
+
+    @Modifying
+    @Query("delete from CheckoutIdempotencyKey k where k.createdAt < :cutoff")
+    int deleteCreatedBefore(LocalDateTime cutoff);
+}
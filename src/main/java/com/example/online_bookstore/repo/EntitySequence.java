@@ -0,0 +1,26 @@
+package com.example.online_bookstore.repo;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.persister.entity.EntityPersister;
+
+/**
+ * The sequence behind an entity's id as Hibernate built it from the {@code @SequenceGenerator},
+ * so code that draws ids or moves the sequence outside Hibernate uses the same name and block
+ * size instead of repeating them.
+ */
+public record EntitySequence(String sequenceName, String tableName, int allocationSize) {
+
+    public static EntitySequence of(EntityManagerFactory entityManagerFactory, Class<?> entityClass) {
+        EntityPersister persister = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getMappingMetamodel().getEntityDescriptor(entityClass);
+        if (!(persister.getGenerator() instanceof SequenceStyleGenerator generator)) {
+            throw new IllegalStateException(entityClass.getSimpleName() + " ids do not come from a sequence");
+        }
+        return new EntitySequence(
+                generator.getDatabaseStructure().getPhysicalName().render(),
+                persister.getIdentifierTableDetails().getTableName(),
+                generator.getDatabaseStructure().getIncrementSize());
+    }
+}
@@ -2,6 +2,7 @@ package com.example.online_bookstore.repo;
 
 import com.example.online_bookstore.entity.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -9,4 +10,7 @@ import java.util.List;
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     List<OrderItem> findByOrderId(Long orderId);
+
+    @Query("select oi.book.id as bookId, sum(oi.quantity) as sold from OrderItem oi group by oi.book.id")
+    List<BookSalesView> findSalesPerBook();
 }
\ No newline at end of file
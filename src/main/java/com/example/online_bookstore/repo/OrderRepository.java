@@ -1,12 +1,42 @@
 package com.example.online_bookstore.repo;
 
 import com.example.online_bookstore.entity.Order;
+import com.example.online_bookstore.entity.OrderStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecificationExecutor<Order> {
     List<Order> findByUserId(Long userId);
-}
\ No newline at end of file
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Order> findForUpdateById(Long id);
+
+    // Fetch plan for order DTOs: the user (and the cart its one-to-one would otherwise load on its own) and the items
+    @EntityGraph(attributePaths = {"user", "user.cart", "items"})
+    List<Order> findWithDetailsByUserIdOrderByOrderDateDescIdDesc(Long userId);
+
+    @EntityGraph(attributePaths = {"user", "user.cart", "items"})
+    Optional<Order> findWithDetailsById(Long id);
+
+    // Equality on status and a range on order_date, ordered by order_date: a range scan of idx_orders_status_order_date
+    @Query(value = "select o.id from Order o where o.status = :status and o.orderDate < :before order by o.orderDate, o.id",
+            countQuery = "select count(o) from Order o where o.status = :status and o.orderDate < :before")
+    Page<Long> findIdsByStatusPlacedBefore(OrderStatus status, LocalDateTime before, Pageable pageable);
+
+    // Collections cannot be fetched together with LIMIT, so listings page over ids first and load the page with this
+    @EntityGraph(attributePaths = {"user", "user.cart", "items"})
+    List<Order> findWithDetailsByIdIn(Collection<Long> ids);
+}
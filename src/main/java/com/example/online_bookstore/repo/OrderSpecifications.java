@@ -0,0 +1,28 @@
+package com.example.online_bookstore.repo;
+
+import com.example.online_bookstore.entity.Order;
+import com.example.online_bookstore.entity.OrderStatus;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+
+/**
+ * Optional filters for order listings; a null argument matches every order.
+ */
+public final class OrderSpecifications {
+
+    private OrderSpecifications() {
+    }
+
+    public static Specification<Order> hasStatus(OrderStatus status) {
+        return (root, query, cb) -> status == null ? null : cb.equal(root.get("status"), status);
+    }
+
+    public static Specification<Order> placedOnOrAfter(LocalDateTime from) {
+        return (root, query, cb) -> from == null ? null : cb.greaterThanOrEqualTo(root.get("orderDate"), from);
+    }
+
+    public static Specification<Order> placedBefore(LocalDateTime to) {
+        return (root, query, cb) -> to == null ? null : cb.lessThan(root.get("orderDate"), to);
+    }
+}
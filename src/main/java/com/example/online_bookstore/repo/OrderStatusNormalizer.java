@@ -0,0 +1,104 @@
+package com.example.online_bookstore.repo;
+
+import com.example.online_bookstore.entity.OrderStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Rewrites order statuses stored before the status was typed, once at startup. Names of a
+ * known status in another case or with spaces are uppercased. Any other value must have an
+ * entry in bookstore.orders.status-mapping ("COMPLETED=DELIVERED, CANCELED=CANCELLED"); the
+ * row gets the mapped status and keeps its old value in legacy_status. A value without an
+ * entry fails startup and is named in the error, so nothing is guessed. Status filters and
+ * the status indexes then match every row. All rewrites run in one transaction.
+ */
+@Component
+public class OrderStatusNormalizer implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderStatusNormalizer.class);
+
+    private static final String KNOWN = Arrays.stream(OrderStatus.values())
+            .map(status -> "'" + status.name() + "'")
+            .collect(Collectors.joining(", ", "(", ")"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, OrderStatus> mapping;
+
+    public OrderStatusNormalizer(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${bookstore.orders.status-mapping:}") String mapping) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.mapping = parseMapping(mapping);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        normalize();
+    }
+
+    /**
+     * @return the number of rows rewritten
+     * @throws IllegalStateException if a stored status names no status and has no mapping
+     */
+    public int normalize() {
+        Integer rewritten = transactionTemplate.execute(status -> {
+            List<String> unknown = jdbcTemplate.queryForList(
+                    "select distinct upper(trim(status)) from orders where status is not null and upper(trim(status)) not in " + KNOWN,
+                    String.class);
+            List<String> unmapped = unknown.stream().filter(value -> !mapping.containsKey(value)).sorted().toList();
+            if (!unmapped.isEmpty()) {
+                throw new IllegalStateException("Stored order statuses " + unmapped
+                        + " name no status; map each in bookstore.orders.status-mapping");
+            }
+
+            int recased = jdbcTemplate.update(
+                    "update orders set status = upper(trim(status)) where status <> upper(trim(status)) and upper(trim(status)) in " + KNOWN);
+            int mapped = 0;
+            for (String value : unknown) {
+                int rows = jdbcTemplate.update(
+                        "update orders set legacy_status = coalesce(legacy_status, status), status = ? where upper(trim(status)) = ?",
+                        mapping.get(value).name(), value);
+                log.info("Order status '{}' stored as {} on {} orders; the old value is kept in legacy_status",
+                        value, mapping.get(value), rows);
+                mapped += rows;
+            }
+            if (recased > 0) {
+                log.info("Normalized order statuses: {} recased", recased);
+            }
+            return recased + mapped;
+        });
+        return rewritten == null ? 0 : rewritten;
+    }
+
+    private static Map<String, OrderStatus> parseMapping(String mapping) {
+        Map<String, OrderStatus> parsed = new LinkedHashMap<>();
+        for (String entry : mapping.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.split("=", 2);
+            OrderStatus target = parts.length == 2 ? OrderStatus.parse(parts[1]) : null;
+            if (target == null) {
+                throw new IllegalArgumentException("Invalid bookstore.orders.status-mapping entry: " + entry.trim());
+            }
+            parsed.put(parts[0].trim().toUpperCase(Locale.ROOT), target);
+        }
+        return parsed;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.online_bookstore.repo;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out ids for rows written with plain JDBC from a sequence Hibernate also uses. Each
+ * value read from the sequence starts a block of allocationSize ids, the same pooled-lo
+ * blocks Hibernate's generator takes, so both can insert into the same table.
+ * Guarded by a ReentrantLock rather than synchronized, since a caller that exhausts a block
+ * waits on the database and would otherwise pin its carrier when running on a virtual thread.
+ */
+public class PooledLoSequence {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String nextValueSql;
+    private final int allocationSize;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long next;
+    private long limit;
+
+    /**
+     * @param entityClass the entity whose id generator this shares; its sequence name and
+     *                    allocationSize are read from the Hibernate metamodel
+     */
+    public PooledLoSequence(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory,
+                            Class<?> entityClass) {
+        EntitySequence sequence = EntitySequence.of(entityManagerFactory, entityClass);
+        this.jdbcTemplate = jdbcTemplate;
+        this.nextValueSql = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect().getSequenceSupport().getSequenceNextValString(sequence.sequenceName());
+        this.allocationSize = sequence.allocationSize();
+    }
+
+    public long next() {
+        lock.lock();
+        try {
+            if (next == limit) {
+                Long blockStart = jdbcTemplate.queryForObject(nextValueSql, Long.class);
+                next = blockStart;
+                limit = blockStart + allocationSize;
+            }
+            return next++;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.online_bookstore.repo;
+
+import java.time.LocalDateTime;
+
+// Projection of a user's token revocation cutoff
+public interface TokenCutoffView {
+    Long getUserId();
+    LocalDateTime getTokensValidAfter();
+}
@@ -2,12 +2,27 @@ package com.example.online_bookstore.repo;
 
 import com.example.online_bookstore.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
-}
\ No newline at end of file
+
+    @Modifying
+    @Query("update User u set u.password = :password where u.email = :email")
+    int updatePasswordByEmail(String email, String password);
+
+    @Query("select u.id as userId, u.tokensValidAfter as tokensValidAfter from User u where u.tokensValidAfter > :since")
+    List<TokenCutoffView> findTokenCutoffsAfter(LocalDateTime since);
+
+    @Query("select u.id from User u where u.id in :ids")
+    List<Long> findExistingIds(Collection<Long> ids);
+}
@@ -0,0 +1,378 @@
+package com.example.online_bookstore.search;
+
+import com.example.online_bookstore.dto.BookDto;
+import com.example.online_bookstore.event.BookChangedEvent;
+import com.example.online_bookstore.event.BookStockChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Category, price range and availability facets kept as one bitset per facet value over
+ * book ordinals. A browse request is answered by intersecting bitsets and counting bits,
+ * without touching the database. Stock changes adjust the availability bits in place.
+ */
+@Component
+public class BookFacetIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(BookFacetIndex.class);
+
+    public static final String IN_STOCK = "inStock";
+    public static final String OUT_OF_STOCK = "outOfStock";
+
+    private static final BigDecimal[] PRICE_BOUNDS = {
+            new BigDecimal("10"), new BigDecimal("25"), new BigDecimal("50"), new BigDecimal("100")
+    };
+    private static final String[] PRICE_LABELS = {"0-10", "10-25", "25-50", "50-100", "100+"};
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private FacetData data = new FacetData();
+    private List<Object> pendingDuringRebuild;
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Builds a fresh snapshot from the source while the live one keeps serving. Events that
+     * arrive meanwhile are replayed onto it as absolute state only: a changed book is put
+     * again, and a book whose stock moved is re-read through reload, since the source may
+     * already include that change and adding the delta again would count it twice.
+     */
+    public void rebuild(Consumer<Consumer<BookDto>> source, Function<Set<Long>, Map<Long, BookDto>> reload) {
+        lock.writeLock().lock();
+        try {
+            pendingDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        FacetData fresh = new FacetData();
+        try {
+            source.accept(fresh::put);
+        } catch (RuntimeException ex) {
+            lock.writeLock().lock();
+            try {
+                pendingDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw ex;
+        }
+
+        lock.writeLock().lock();
+        try {
+            while (true) {
+                Set<Long> restocked = new HashSet<>();
+                for (Object event : pendingDuringRebuild) {
+                    if (event instanceof BookStockChangedEvent stockChanged) {
+                        restocked.add(stockChanged.getBookId());
+                    } else {
+                        apply(fresh, event);
+                    }
+                }
+                pendingDuringRebuild.clear();
+                if (restocked.isEmpty()) {
+                    break;
+                }
+                // Re-read without the lock; anything that moves meanwhile is picked up by the next pass
+                lock.writeLock().unlock();
+                try {
+                    Map<Long, BookDto> current = reload.apply(restocked);
+                    restocked.forEach(bookId -> {
+                        BookDto book = current.get(bookId);
+                        if (book != null) {
+                            fresh.put(book);
+                        } else {
+                            fresh.remove(bookId);
+                        }
+                    });
+                } finally {
+                    lock.writeLock().lock();
+                }
+            }
+            data = fresh;
+            ready = true;
+        } finally {
+            pendingDuringRebuild = null;
+            lock.writeLock().unlock();
+        }
+        log.info("Facet index built with {} books in {} categories", fresh.live.cardinality(), fresh.byCategory.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.changedAny("category", "price", "stockQuantity")) {
+            record(event);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(BookStockChangedEvent event) {
+        record(event);
+    }
+
+    private void record(Object event) {
+        lock.writeLock().lock();
+        try {
+            apply(data, event);
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(FacetData target, Object event) {
+        if (event instanceof BookChangedEvent changed) {
+            if (changed.isDeleted()) {
+                target.remove(changed.getBookId());
+            } else {
+                target.put(changed.getAfter());
+            }
+        } else if (event instanceof BookStockChangedEvent stockChanged) {
+            target.adjustStock(stockChanged.getBookId(), stockChanged.getDelta());
+        }
+    }
+
+    /**
+     * Filters combine with AND across facets and OR within one facet; empty or null means no filter.
+     */
+    public Result query(Collection<String> categories, Collection<String> priceRanges, Boolean inStock,
+                        int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            FacetData current = data;
+            BitSet categoryMask = current.union(categories, current.byCategory);
+            BitSet priceMask = current.union(priceRanges, current.byPriceRange);
+            BitSet stockMask = current.stockMask(inStock);
+
+            BitSet matching = intersect(current.live, categoryMask, priceMask, stockMask);
+
+            List<Long> ids = new ArrayList<>(Math.min(limit, matching.cardinality()));
+            int skipped = 0;
+            for (int ord = matching.nextSetBit(0); ord >= 0 && ids.size() < limit; ord = matching.nextSetBit(ord + 1)) {
+                if (skipped++ >= offset) {
+                    ids.add(current.bookIds[ord]);
+                }
+            }
+
+            BitSet forCategories = intersect(current.live, priceMask, stockMask);
+            Map<String, Long> categoryCounts = new LinkedHashMap<>();
+            current.byCategory.entrySet().stream()
+                    .map(entry -> Map.entry(entry.getKey(), (long) andCardinality(forCategories, entry.getValue())))
+                    .filter(entry -> entry.getValue() > 0)
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                    .forEach(entry -> categoryCounts.put(entry.getKey(), entry.getValue()));
+
+            BitSet forPrices = intersect(current.live, categoryMask, stockMask);
+            Map<String, Long> priceCounts = new LinkedHashMap<>();
+            for (String label : PRICE_LABELS) {
+                priceCounts.put(label, (long) andCardinality(forPrices, current.byPriceRange.get(label)));
+            }
+
+            BitSet forAvailability = intersect(current.live, categoryMask, priceMask);
+            long inStockCount = andCardinality(forAvailability, current.inStock);
+            Map<String, Long> availabilityCounts = new LinkedHashMap<>();
+            availabilityCounts.put(IN_STOCK, inStockCount);
+            availabilityCounts.put(OUT_OF_STOCK, forAvailability.cardinality() - inStockCount);
+
+            return new Result(ids, matching.cardinality(), categoryCounts, priceCounts, availabilityCounts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static BitSet intersect(BitSet first, BitSet... others) {
+        BitSet result = (BitSet) first.clone();
+        for (BitSet other : others) {
+            if (other != null) {
+                result.and(other);
+            }
+        }
+        return result;
+    }
+
+    private static int andCardinality(BitSet first, BitSet second) {
+        BitSet result = (BitSet) first.clone();
+        result.and(second);
+        return result.cardinality();
+    }
+
+    private static String priceRangeOf(BigDecimal price) {
+        if (price == null) {
+            return PRICE_LABELS[0];
+        }
+        for (int i = 0; i < PRICE_BOUNDS.length; i++) {
+            if (price.compareTo(PRICE_BOUNDS[i]) < 0) {
+                return PRICE_LABELS[i];
+            }
+        }
+        return PRICE_LABELS[PRICE_LABELS.length - 1];
+    }
+
+    public static final class Result {
+        private final List<Long> bookIds;
+        private final long total;
+        private final Map<String, Long> categories;
+        private final Map<String, Long> priceRanges;
+        private final Map<String, Long> availability;
+
+        Result(List<Long> bookIds, long total, Map<String, Long> categories,
+               Map<String, Long> priceRanges, Map<String, Long> availability) {
+            this.bookIds = bookIds;
+            this.total = total;
+            this.categories = categories;
+            this.priceRanges = priceRanges;
+            this.availability = availability;
+        }
+
+        public List<Long> getBookIds() {
+            return bookIds;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public Map<String, Long> getCategories() {
+            return categories;
+        }
+
+        public Map<String, Long> getPriceRanges() {
+            return priceRanges;
+        }
+
+        public Map<String, Long> getAvailability() {
+            return availability;
+        }
+    }
+
+    // Ordinals are never reused; a deleted book only clears its bits
+    private static final class FacetData {
+        final Map<Long, Integer> ordinalByBook = new HashMap<>();
+        final Map<String, BitSet> byCategory = new HashMap<>();
+        final Map<String, BitSet> byPriceRange = new HashMap<>();
+        final BitSet live = new BitSet();
+        final BitSet inStock = new BitSet();
+        long[] bookIds = new long[1024];
+        String[] categoryOf = new String[1024];
+        String[] priceRangeOf = new String[1024];
+        int[] stock = new int[1024];
+        int nextOrdinal;
+
+        FacetData() {
+            for (String label : PRICE_LABELS) {
+                byPriceRange.put(label, new BitSet());
+            }
+        }
+
+        void put(BookDto book) {
+            Integer existing = ordinalByBook.get(book.getId());
+            int ord;
+            if (existing != null) {
+                ord = existing;
+                clear(ord);
+            } else {
+                ord = nextOrdinal++;
+                ensureCapacity(ord);
+                ordinalByBook.put(book.getId(), ord);
+                bookIds[ord] = book.getId();
+            }
+
+            live.set(ord);
+            categoryOf[ord] = book.getCategory();
+            if (book.getCategory() != null) {
+                byCategory.computeIfAbsent(book.getCategory(), c -> new BitSet()).set(ord);
+            }
+            priceRangeOf[ord] = priceRangeOf(book.getPrice());
+            byPriceRange.get(priceRangeOf[ord]).set(ord);
+            stock[ord] = book.getStockQuantity() == null ? 0 : book.getStockQuantity();
+            inStock.set(ord, stock[ord] > 0);
+        }
+
+        void remove(Long bookId) {
+            Integer ord = ordinalByBook.remove(bookId);
+            if (ord != null) {
+                clear(ord);
+            }
+        }
+
+        void adjustStock(Long bookId, int delta) {
+            Integer ord = ordinalByBook.get(bookId);
+            if (ord != null) {
+                stock[ord] += delta;
+                inStock.set(ord, stock[ord] > 0);
+            }
+        }
+
+        BitSet union(Collection<String> values, Map<String, BitSet> facet) {
+            if (values == null || values.isEmpty()) {
+                return null;
+            }
+            BitSet union = new BitSet();
+            for (String value : values) {
+                BitSet bits = facet.get(value);
+                if (bits != null) {
+                    union.or(bits);
+                }
+            }
+            return union;
+        }
+
+        BitSet stockMask(Boolean wantInStock) {
+            if (wantInStock == null) {
+                return null;
+            }
+            if (wantInStock) {
+                return inStock;
+            }
+            BitSet outOfStock = (BitSet) live.clone();
+            outOfStock.andNot(inStock);
+            return outOfStock;
+        }
+
+        private void clear(int ord) {
+            live.clear(ord);
+            inStock.clear(ord);
+            if (categoryOf[ord] != null) {
+                BitSet bits = byCategory.get(categoryOf[ord]);
+                bits.clear(ord);
+                if (bits.isEmpty()) {
+                    byCategory.remove(categoryOf[ord]);
+                }
+            }
+            if (priceRangeOf[ord] != null) {
+                byPriceRange.get(priceRangeOf[ord]).clear(ord);
+            }
+        }
+
+        private void ensureCapacity(int ord) {
+            if (ord == bookIds.length) {
+                int capacity = ord * 2;
+                bookIds = Arrays.copyOf(bookIds, capacity);
+                categoryOf = Arrays.copyOf(categoryOf, capacity);
+                priceRangeOf = Arrays.copyOf(priceRangeOf, capacity);
+                stock = Arrays.copyOf(stock, capacity);
+            }
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.example.online_bookstore.search;
+
+import com.example.online_bookstore.dto.BookDto;
+import com.example.online_bookstore.event.BookChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory inverted index over the book catalog ranked with BM25.
+ * Postings are kept as primitive int arrays of document ordinals; updated and deleted
+ * books are tombstoned and skipped, and document frequencies count live documents only.
+ * Once tombstones reach a quarter of the live documents, compaction drops their postings
+ * and renumbers the live documents, so re-indexed books do not keep their old slots.
+ */
+@Component
+public class BookSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(BookSearchIndex.class);
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int TITLE_WEIGHT = 3;
+    private static final int AUTHOR_WEIGHT = 2;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final int MIN_TOMBSTONES_TO_COMPACT = 64;
+
+    @Value("${bookstore.search.max-results:100}")
+    private int maxResults;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private IndexData data = new IndexData();
+    private List<BookChangedEvent> pendingDuringRebuild;
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Replaces the index with one built from the given source. The source is read without
+     * holding the lock; changes that arrive meanwhile are replayed onto the new index.
+     */
+    public void rebuild(Consumer<Consumer<BookDto>> source) {
+        lock.writeLock().lock();
+        try {
+            pendingDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        IndexData fresh = new IndexData();
+        try {
+            source.accept(fresh::add);
+        } catch (RuntimeException ex) {
+            lock.writeLock().lock();
+            try {
+                pendingDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw ex;
+        }
+
+        lock.writeLock().lock();
+        try {
+            pendingDuringRebuild.forEach(event -> apply(fresh, event));
+            pendingDuringRebuild = null;
+            data = fresh;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Search index built with {} books and {} terms", fresh.liveDocs, fresh.terms.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        // Price, stock and cover changes leave every indexed term as it was
+        if (!event.changedAny("title", "author", "description", "category", "isbn")) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(data, event);
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns ids of matching books, best match first. Every query term must match;
+     * the last term also matches as a prefix so partially typed words find results.
+     */
+    public List<Long> search(String query) {
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<Integer, Double> scores = null;
+            for (int i = 0; i < queryTerms.size(); i++) {
+                String term = queryTerms.get(i);
+                Map<Integer, Double> termScores = data.score(term, i == queryTerms.size() - 1);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    Map<Integer, Double> intersection = new HashMap<>();
+                    for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                        Double other = termScores.get(entry.getKey());
+                        if (other != null) {
+                            intersection.put(entry.getKey(), entry.getValue() + other);
+                        }
+                    }
+                    scores = intersection;
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed())
+                    .limit(maxResults)
+                    .map(entry -> data.docBookIds[entry.getKey()])
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Document slots in use, live or tombstoned
+    int slots() {
+        lock.readLock().lock();
+        try {
+            return data.docCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(IndexData target, BookChangedEvent event) {
+        target.remove(event.getBookId());
+        if (!event.isDeleted()) {
+            target.add(event.getAfter());
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String folded = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static final class Postings {
+        int[] docs = new int[4];
+        int[] freqs = new int[4];
+        int size;
+
+        void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size++;
+        }
+
+        // Drops tombstoned documents and renumbers the rest; the renumbering keeps their order
+        void compact(BitSet deleted, int[] newOrdinals) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (!deleted.get(docs[i])) {
+                    docs[kept] = newOrdinals[docs[i]];
+                    freqs[kept] = freqs[i];
+                    kept++;
+                }
+            }
+            size = kept;
+        }
+
+        int liveCount(BitSet deleted) {
+            int live = 0;
+            for (int i = 0; i < size; i++) {
+                if (!deleted.get(docs[i])) {
+                    live++;
+                }
+            }
+            return live;
+        }
+    }
+
+    private static final class IndexData {
+        final TreeMap<String, Postings> terms = new TreeMap<>();
+        final Map<Long, Integer> docByBook = new HashMap<>();
+        final BitSet deleted = new BitSet();
+        long[] docBookIds = new long[1024];
+        int[] docLengths = new int[1024];
+        int docCount;
+        int liveDocs;
+        int deletedDocs;
+        long totalLength;
+
+        void add(BookDto book) {
+            Map<String, Integer> freqs = new HashMap<>();
+            int length = 0;
+            length += count(freqs, book.getTitle(), TITLE_WEIGHT);
+            length += count(freqs, book.getAuthor(), AUTHOR_WEIGHT);
+            length += count(freqs, book.getDescription(), 1);
+            length += count(freqs, book.getCategory(), 1);
+            length += count(freqs, book.getIsbn(), 1);
+            if (book.getIsbn() != null) {
+                // Also index the ISBN with separators stripped so "9780134685991" matches "978-0-13-468599-1"
+                String compactIsbn = String.join("", tokenize(book.getIsbn()));
+                if (!compactIsbn.isEmpty()) {
+                    freqs.merge(compactIsbn, 1, Integer::sum);
+                    length++;
+                }
+            }
+
+            int doc = docCount++;
+            if (doc == docBookIds.length) {
+                docBookIds = Arrays.copyOf(docBookIds, doc * 2);
+                docLengths = Arrays.copyOf(docLengths, doc * 2);
+            }
+            docBookIds[doc] = book.getId();
+            docLengths[doc] = length;
+            docByBook.put(book.getId(), doc);
+            liveDocs++;
+            totalLength += length;
+
+            freqs.forEach((term, freq) -> terms.computeIfAbsent(term, t -> new Postings()).add(doc, freq));
+        }
+
+        void remove(Long bookId) {
+            Integer doc = docByBook.remove(bookId);
+            if (doc == null) {
+                return;
+            }
+            deleted.set(doc);
+            liveDocs--;
+            deletedDocs++;
+            totalLength -= docLengths[doc];
+            if (deletedDocs >= MIN_TOMBSTONES_TO_COMPACT && deletedDocs * 4 >= liveDocs) {
+                compact();
+            }
+        }
+
+        private void compact() {
+            int[] newOrdinals = new int[docCount];
+            int capacity = Math.max(1024, Integer.highestOneBit(Math.max(liveDocs, 1)) * 2);
+            long[] liveBookIds = new long[capacity];
+            int[] liveLengths = new int[capacity];
+            int next = 0;
+            for (int doc = 0; doc < docCount; doc++) {
+                if (!deleted.get(doc)) {
+                    newOrdinals[doc] = next;
+                    liveBookIds[next] = docBookIds[doc];
+                    liveLengths[next] = docLengths[doc];
+                    docByBook.put(docBookIds[doc], next);
+                    next++;
+                }
+            }
+
+            Iterator<Postings> iterator = terms.values().iterator();
+            while (iterator.hasNext()) {
+                Postings postings = iterator.next();
+                postings.compact(deleted, newOrdinals);
+                if (postings.size == 0) {
+                    iterator.remove();
+                }
+            }
+            docBookIds = liveBookIds;
+            docLengths = liveLengths;
+            docCount = next;
+            deleted.clear();
+            deletedDocs = 0;
+        }
+
+        Map<Integer, Double> score(String term, boolean prefix) {
+            Map<Integer, Double> scores = new HashMap<>();
+            if (liveDocs == 0) {
+                return scores;
+            }
+            double avgLength = (double) totalLength / liveDocs;
+
+            NavigableMap<String, Postings> matches = prefix
+                    ? terms.subMap(term, true, term + Character.MAX_VALUE, false)
+                    : exact(term);
+            int expansions = 0;
+            for (Postings postings : matches.values()) {
+                if (expansions++ == MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+                int df = deletedDocs == 0 ? postings.size : postings.liveCount(deleted);
+                if (df == 0) {
+                    continue;
+                }
+                double idf = Math.log(1 + (liveDocs - df + 0.5) / (df + 0.5));
+                for (int i = 0; i < postings.size; i++) {
+                    int doc = postings.docs[i];
+                    if (deleted.get(doc)) {
+                        continue;
+                    }
+                    int tf = postings.freqs[i];
+                    double norm = tf + K1 * (1 - B + B * docLengths[doc] / avgLength);
+                    scores.merge(doc, idf * tf * (K1 + 1) / norm, Double::sum);
+                }
+            }
+            return scores;
+        }
+
+        private NavigableMap<String, Postings> exact(String term) {
+            return terms.subMap(term, true, term, true);
+        }
+
+        private static int count(Map<String, Integer> freqs, String text, int weight) {
+            List<String> tokens = tokenize(text);
+            for (String token : tokens) {
+                freqs.merge(token, weight, Integer::sum);
+            }
+            return tokens.size() * weight;
+        }
+    }
+}
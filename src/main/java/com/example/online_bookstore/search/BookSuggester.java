@@ -0,0 +1,548 @@
+package com.example.online_bookstore.search;
+
+import com.example.online_bookstore.dto.BookDto;
+import com.example.online_bookstore.dto.BookSuggestionDto;
+import com.example.online_bookstore.event.BookChangedEvent;
+import com.example.online_bookstore.event.BookStockChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Autocomplete over book titles and authors backed by a radix trie: runs of characters
+ * with a single continuation share one node, and edges point into the key strings rather
+ * than copying them. Children are kept in parallel sorted arrays rather than maps, and every
+ * node caches the most popular books below it, so an exact prefix lookup costs one walk down
+ * the trie. Prefixes with no exact match fall back to a bounded edit-distance search.
+ * Popularity is units sold, seeded at rebuild and raised as checkouts take stock.
+ */
+@Component
+public class BookSuggester {
+
+    private static final Logger log = LoggerFactory.getLogger(BookSuggester.class);
+
+    private static final char[] NO_LABELS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+    private static final int MAX_TITLE_WORD_KEYS = 8;
+    private static final int MIN_FUZZY_PREFIX = 3;
+    private static final Comparator<Entry> BY_POPULARITY = Comparator
+            .comparingLong((Entry entry) -> entry.popularity).reversed()
+            .thenComparing(entry -> entry.title);
+
+    @Value("${bookstore.suggest.max-results:10}")
+    private int maxResults;
+
+    @Value("${bookstore.suggest.max-edits:2}")
+    private int maxEdits;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Trie trie = new Trie();
+    private List<Object> pendingDuringRebuild;
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Replaces the trie with one built from the given source, ranking books by popularity
+     * (units sold). Popularity is read once changes are being recorded, so no sale is missed;
+     * changes that arrive during the build are replayed afterwards.
+     */
+    public void rebuild(Consumer<Consumer<BookDto>> source, Supplier<Map<Long, Long>> popularitySource) {
+        lock.writeLock().lock();
+        try {
+            pendingDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Trie fresh = new Trie();
+        try {
+            Map<Long, Long> popularity = popularitySource.get();
+            source.accept(book -> fresh.add(book, popularity.getOrDefault(book.getId(), 0L)));
+        } catch (RuntimeException ex) {
+            lock.writeLock().lock();
+            try {
+                pendingDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw ex;
+        }
+
+        lock.writeLock().lock();
+        try {
+            pendingDuringRebuild.forEach(event -> apply(fresh, event));
+            pendingDuringRebuild = null;
+            trie = fresh;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Suggestion trie built with {} books and {} nodes", fresh.entries.size(), fresh.nodeCount);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        record(event);
+    }
+
+    // Stock taken by a checkout is units sold
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(BookStockChangedEvent event) {
+        if (event.getDelta() < 0) {
+            record(event);
+        }
+    }
+
+    private void record(Object event) {
+        lock.writeLock().lock();
+        try {
+            apply(trie, event);
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void apply(Trie target, Object event) {
+        if (event instanceof BookChangedEvent changed) {
+            target.apply(changed);
+        } else if (event instanceof BookStockChangedEvent stockChanged) {
+            target.sold(stockChanged.getBookId(), -stockChanged.getDelta());
+        }
+    }
+
+    public List<BookSuggestionDto> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        int size = Math.min(Math.max(limit, 1), maxResults);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Entry> results = new LinkedHashMap<>();
+            Node node = trie.find(key);
+            if (node != null) {
+                for (Entry entry : node.top) {
+                    if (results.size() == size) {
+                        break;
+                    }
+                    results.putIfAbsent(entry.bookId, entry);
+                }
+            }
+            if (results.size() < size && key.length() >= MIN_FUZZY_PREFIX) {
+                int edits = Math.min(maxEdits, key.length() < 6 ? 1 : 2);
+                for (Entry entry : trie.fuzzy(key, edits)) {
+                    if (results.size() == size) {
+                        break;
+                    }
+                    results.putIfAbsent(entry.bookId, entry);
+                }
+            }
+            return results.values().stream()
+                    .map(entry -> new BookSuggestionDto(entry.bookId, entry.title, entry.author))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Trie nodes including the root
+    int nodeCount() {
+        lock.readLock().lock();
+        try {
+            return trie.nodeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (char c : text.toLowerCase(Locale.ROOT).toCharArray()) {
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && !normalized.isEmpty()) {
+                    normalized.append(' ');
+                }
+                normalized.append(c);
+                pendingSpace = false;
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return normalized.toString();
+    }
+
+    // Full title, every later word start of the title (so "potter" finds "Harry Potter") and the author.
+    // Word keys are offsets into the normalized title, so the trie edges they create share its characters.
+    private static List<Key> keysFor(String rawTitle, String rawAuthor) {
+        List<Key> keys = new ArrayList<>(MAX_TITLE_WORD_KEYS + 1);
+        String title = normalize(rawTitle);
+        if (!title.isEmpty()) {
+            keys.add(new Key(title, 0));
+            int words = 0;
+            for (int i = title.indexOf(' '); i >= 0 && ++words < MAX_TITLE_WORD_KEYS; i = title.indexOf(' ', i + 1)) {
+                addDistinct(keys, new Key(title, i + 1));
+            }
+        }
+        String author = normalize(rawAuthor);
+        if (!author.isEmpty()) {
+            addDistinct(keys, new Key(author, 0));
+        }
+        return keys;
+    }
+
+    private static void addDistinct(List<Key> keys, Key key) {
+        for (Key existing : keys) {
+            if (existing.length() == key.length()
+                    && existing.text().regionMatches(existing.from(), key.text(), key.from(), key.length())) {
+                return;
+            }
+        }
+        keys.add(key);
+    }
+
+    private record Key(String text, int from) {
+        int length() {
+            return text.length() - from;
+        }
+
+        char charAt(int index) {
+            return text.charAt(from + index);
+        }
+    }
+
+    private static final class Entry {
+        final long bookId;
+        final String title;
+        final String author;
+        final long popularity;
+
+        Entry(long bookId, String title, String author, long popularity) {
+            this.bookId = bookId;
+            this.title = title;
+            this.author = author;
+            this.popularity = popularity;
+        }
+    }
+
+    /**
+     * A radix trie node. The edge from its parent is text[start, end), a slice of the key that
+     * created it, and children are found by the first character of their edge.
+     */
+    private static final class Node {
+        String text;
+        int start;
+        int end;
+        char[] labels = NO_LABELS;
+        Node[] children = NO_CHILDREN;
+        Entry[] terminals = NO_ENTRIES;
+        Entry[] top = NO_ENTRIES;
+
+        Node(String text, int start, int end) {
+            this.text = text;
+            this.start = start;
+            this.end = end;
+        }
+
+        int edgeLength() {
+            return end - start;
+        }
+
+        char edgeAt(int index) {
+            return text.charAt(start + index);
+        }
+
+        Node child(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            return index >= 0 ? children[index] : null;
+        }
+
+        void putChild(Node node) {
+            char label = node.edgeAt(0);
+            int index = Arrays.binarySearch(labels, label);
+            if (index >= 0) {
+                children[index] = node;
+                return;
+            }
+            int insertAt = -index - 1;
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            newLabels[insertAt] = label;
+            newChildren[insertAt] = node;
+            System.arraycopy(labels, insertAt, newLabels, insertAt + 1, labels.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            labels = newLabels;
+            children = newChildren;
+        }
+
+        void removeChild(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index < 0) {
+                return;
+            }
+            char[] newLabels = new char[labels.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(labels, index + 1, newLabels, index, labels.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            labels = newLabels;
+            children = newChildren;
+        }
+    }
+
+    private final class Trie {
+        final Node root = new Node("", 0, 0);
+        final Map<Long, Entry> entries = new HashMap<>();
+        int nodeCount = 1;
+
+        void apply(BookChangedEvent event) {
+            // Suggestions depend only on title and author; edits to price, stock and the rest leave the trie as it is
+            if (!event.changedAny("title", "author") && entries.containsKey(event.getBookId())) {
+                return;
+            }
+            Entry previous = remove(event.getBookId());
+            if (!event.isDeleted()) {
+                add(event.getAfter(), previous == null ? 0L : previous.popularity);
+            }
+        }
+
+        void sold(Long bookId, long units) {
+            Entry entry = remove(bookId);
+            if (entry != null) {
+                add(new Entry(entry.bookId, entry.title, entry.author, entry.popularity + units));
+            }
+        }
+
+        void add(BookDto book, long popularity) {
+            add(new Entry(book.getId(), book.getTitle(), book.getAuthor(), popularity));
+        }
+
+        private void add(Entry entry) {
+            entries.put(entry.bookId, entry);
+            for (Key key : keysFor(entry.title, entry.author)) {
+                insert(key, entry);
+            }
+        }
+
+        Entry remove(Long bookId) {
+            Entry entry = entries.remove(bookId);
+            if (entry != null) {
+                for (Key key : keysFor(entry.title, entry.author)) {
+                    delete(key, entry);
+                }
+            }
+            return entry;
+        }
+
+        // The node whose subtree holds every key starting with the given prefix
+        Node find(String prefix) {
+            Node node = root;
+            int matched = 0;
+            while (matched < prefix.length()) {
+                node = node.child(prefix.charAt(matched));
+                if (node == null) {
+                    return null;
+                }
+                for (int i = 0; i < node.edgeLength() && matched < prefix.length(); i++, matched++) {
+                    if (node.edgeAt(i) != prefix.charAt(matched)) {
+                        return null;
+                    }
+                }
+            }
+            return node;
+        }
+
+        private void insert(Key key, Entry entry) {
+            List<Node> path = new ArrayList<>();
+            Node node = root;
+            path.add(node);
+            int matched = 0;
+            while (matched < key.length()) {
+                Node child = node.child(key.charAt(matched));
+                if (child == null) {
+                    child = new Node(key.text(), key.from() + matched, key.text().length());
+                    node.putChild(child);
+                    nodeCount++;
+                    node = child;
+                    path.add(node);
+                    break;
+                }
+                int common = 0;
+                while (common < child.edgeLength() && matched + common < key.length()
+                        && child.edgeAt(common) == key.charAt(matched + common)) {
+                    common++;
+                }
+                if (common < child.edgeLength()) {
+                    // The key leaves this edge part way: split it at the divergence
+                    Node middle = new Node(child.text, child.start, child.start + common);
+                    middle.top = child.top;
+                    child.start += common;
+                    middle.putChild(child);
+                    node.putChild(middle);
+                    nodeCount++;
+                    child = middle;
+                }
+                node = child;
+                path.add(node);
+                matched += common;
+            }
+            node.terminals = Arrays.copyOf(node.terminals, node.terminals.length + 1);
+            node.terminals[node.terminals.length - 1] = entry;
+            refreshTop(path);
+        }
+
+        private void delete(Key key, Entry entry) {
+            List<Node> path = new ArrayList<>();
+            Node node = root;
+            path.add(node);
+            int matched = 0;
+            while (matched < key.length()) {
+                node = node.child(key.charAt(matched));
+                if (node == null || node.edgeLength() > key.length() - matched) {
+                    return;
+                }
+                for (int i = 0; i < node.edgeLength(); i++, matched++) {
+                    if (node.edgeAt(i) != key.charAt(matched)) {
+                        return;
+                    }
+                }
+                path.add(node);
+            }
+            node.terminals = Arrays.stream(node.terminals)
+                    .filter(existing -> existing != entry)
+                    .toArray(Entry[]::new);
+
+            // Prune nodes that no longer lead anywhere and fold single-child nodes into their child
+            for (int i = path.size() - 1; i > 0; i--) {
+                Node current = path.get(i);
+                Node parent = path.get(i - 1);
+                if (current.terminals.length > 0 || current.children.length > 1) {
+                    break;
+                }
+                if (current.children.length == 0) {
+                    parent.removeChild(current.edgeAt(0));
+                } else {
+                    Node only = current.children[0];
+                    String merged = current.text.substring(current.start, current.end)
+                            + only.text.substring(only.start, only.end);
+                    only.text = merged;
+                    only.start = 0;
+                    only.end = merged.length();
+                    parent.putChild(only);
+                }
+                path.remove(i);
+                nodeCount--;
+            }
+            refreshTop(path);
+        }
+
+        // Recomputes the cached top entries bottom-up along the path that just changed, stopping
+        // at the first node whose top is unchanged since nothing above it can change either
+        private void refreshTop(List<Node> path) {
+            for (int i = path.size() - 1; i >= 0; i--) {
+                Node node = path.get(i);
+                List<Entry> candidates = new ArrayList<>(Arrays.asList(node.terminals));
+                for (Node child : node.children) {
+                    candidates.addAll(Arrays.asList(child.top));
+                }
+                candidates.sort(BY_POPULARITY);
+                Map<Long, Entry> top = new LinkedHashMap<>();
+                for (Entry candidate : candidates) {
+                    if (top.size() == maxResults) {
+                        break;
+                    }
+                    top.putIfAbsent(candidate.bookId, candidate);
+                }
+                Entry[] refreshed = top.values().toArray(NO_ENTRIES);
+                if (Arrays.equals(refreshed, node.top)) {
+                    return;
+                }
+                node.top = refreshed;
+            }
+        }
+
+        /**
+         * Finds books whose key starts with something within the given number of edits of the
+         * prefix, walking the trie with one Levenshtein row per character and pruning hopeless branches.
+         */
+        List<Entry> fuzzy(String prefix, int edits) {
+            int[] firstRow = new int[prefix.length() + 1];
+            for (int j = 0; j < firstRow.length; j++) {
+                firstRow[j] = j;
+            }
+            Map<Long, Integer> distances = new HashMap<>();
+            Map<Long, Entry> matches = new HashMap<>();
+            for (Node child : root.children) {
+                walk(child, prefix, firstRow, edits, matches, distances);
+            }
+            return matches.values().stream()
+                    .sorted(Comparator.<Entry>comparingInt(entry -> distances.get(entry.bookId))
+                            .thenComparing(BY_POPULARITY))
+                    .toList();
+        }
+
+        private void walk(Node node, String prefix, int[] previousRow, int edits,
+                          Map<Long, Entry> matches, Map<Long, Integer> distances) {
+            int[] row = previousRow;
+            for (int c = 0; c < node.edgeLength(); c++) {
+                char label = node.edgeAt(c);
+                int[] next = new int[row.length];
+                next[0] = row[0] + 1;
+                int best = next[0];
+                for (int j = 1; j < next.length; j++) {
+                    int substitution = row[j - 1] + (prefix.charAt(j - 1) == label ? 0 : 1);
+                    next[j] = Math.min(substitution, Math.min(next[j - 1] + 1, row[j] + 1));
+                    best = Math.min(best, next[j]);
+                }
+                row = next;
+
+                int distance = row[row.length - 1];
+                if (distance <= edits) {
+                    // The whole prefix matches this path; the node's cached top covers its subtree
+                    for (Entry entry : node.top) {
+                        Integer known = distances.get(entry.bookId);
+                        if (known == null || known > distance) {
+                            distances.put(entry.bookId, distance);
+                            matches.put(entry.bookId, entry);
+                        }
+                    }
+                    return;
+                }
+                if (best > edits) {
+                    return;
+                }
+            }
+            for (Node child : node.children) {
+                walk(child, prefix, row, edits, matches, distances);
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.online_bookstore.search;
+
+import com.example.online_bookstore.repo.BookSalesView;
+import com.example.online_bookstore.repo.OrderItemRepository;
+import com.example.online_bookstore.service.BookService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.util.stream.Collectors;
+
+/**
+ * Builds the in-memory search structures in the background once the application is up.
+ * Until then search falls back to querying the database, suggestions are empty and
+ * faceted browse answers 503.
+ */
+@Component
+public class SearchIndexInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchIndexInitializer.class);
+
+    private final BookService bookService;
+    private final BookSearchIndex searchIndex;
+    private final BookSuggester suggester;
+    private final BookFacetIndex facetIndex;
+    private final OrderItemRepository orderItemRepository;
+
+    public SearchIndexInitializer(BookService bookService,
+                                  BookSearchIndex searchIndex,
+                                  BookSuggester suggester,
+                                  BookFacetIndex facetIndex,
+                                  OrderItemRepository orderItemRepository) {
+        this.bookService = bookService;
+        this.searchIndex = searchIndex;
+        this.suggester = suggester;
+        this.facetIndex = facetIndex;
+        this.orderItemRepository = orderItemRepository;
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndexes() {
+        try {
+            searchIndex.rebuild(bookService::streamAllBooks);
+        } catch (Exception ex) {
+            log.error("Could not build search index, search will keep using the database", ex);
+        }
+        try {
+            suggester.rebuild(bookService::streamAllBooks, () -> orderItemRepository.findSalesPerBook().stream()
+                    .collect(Collectors.toMap(BookSalesView::getBookId, BookSalesView::getSold)));
+        } catch (Exception ex) {
+            log.error("Could not build suggestion trie, suggestions stay empty", ex);
+        }
+        try {
+            facetIndex.rebuild(bookService::streamAllBooks, bookService::loadBooks);
+        } catch (Exception ex) {
+            log.error("Could not build facet index, faceted browse stays unavailable", ex);
+        }
+    }
+}
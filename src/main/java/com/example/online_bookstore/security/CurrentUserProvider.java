@@ -0,0 +1,32 @@
+package com.example.online_bookstore.security;
+
+import com.example.online_bookstore.exception.ResourceNotFoundException;
+import com.example.online_bookstore.exception.UnauthorizedException;
+import com.example.online_bookstore.repo.UserRepository;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+@Component
+public class CurrentUserProvider {
+
+    private final UserRepository userRepository;
+
+    public CurrentUserProvider(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    public UserPrincipal get() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) {
+            throw new UnauthorizedException("Not authenticated");
+        }
+        if (authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return principal;
+        }
+        // Authentications that did not come from a token, such as mock users in tests, only carry the email
+        return userRepository.findByEmail(authentication.getName())
+                .map(UserPrincipal::from)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.online_bookstore.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -7,7 +8,6 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
@@ -26,10 +26,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtTokenProvider tokenProvider;
     private final UserDetailsServiceImpl userDetailsService;
+    private final TokenRevocationRegistry revocationRegistry;
 
-    public JwtAuthenticationFilter(JwtTokenProvider tokenProvider, UserDetailsServiceImpl userDetailsService) {
+    public JwtAuthenticationFilter(JwtTokenProvider tokenProvider,
+                                   UserDetailsServiceImpl userDetailsService,
+                                   TokenRevocationRegistry revocationRegistry) {
         this.tokenProvider = tokenProvider;
         this.userDetailsService = userDetailsService;
+        this.revocationRegistry = revocationRegistry;
     }
 
     @Override
@@ -39,13 +43,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             String jwt = getJwtFromRequest(request);
 
             if (StringUtils.hasText(jwt) && SecurityContextHolder.getContext().getAuthentication() == null) {
-                String username = tokenProvider.getUsernameFromToken(jwt);
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                Claims claims = tokenProvider.parseToken(jwt);
+                // Tokens issued before the uid and role claims existed still resolve the user by email
+                UserPrincipal userPrincipal = claims.get(JwtTokenProvider.USER_ID_CLAIM) != null
+                        ? UserPrincipal.fromClaims(claims)
+                        : (UserPrincipal) userDetailsService.loadUserByUsername(claims.getSubject());
 
-                if (tokenProvider.validateToken(jwt, userDetails)) {
+                if (!revocationRegistry.isRevoked(userPrincipal.getId(), claims.getIssuedAt())) {
                     UsernamePasswordAuthenticationToken authentication =
                             new UsernamePasswordAuthenticationToken(
-                                    userDetails, null, userDetails.getAuthorities());
+                                    userPrincipal, null, userPrincipal.getAuthorities());
                     authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(authentication);
                 }
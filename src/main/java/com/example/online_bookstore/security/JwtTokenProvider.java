@@ -1,6 +1,11 @@
 package com.example.online_bookstore.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import jakarta.annotation.PostConstruct;
@@ -9,46 +14,94 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.Base64;
 
 @Component
 public class JwtTokenProvider {
+
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLE_CLAIM = "role";
     
     @Value("${jwt.secret:defaultSecretKeyForDevelopmentEnvironmentOnly}")
     private String jwtSecret;
     
     @Value("${jwt.expiration:86400000}")
     private long jwtExpirationInMs;
+
+    @Value("${jwt.cache.max-size:100000}")
+    private long verifiedCacheMaxSize;
     
     private Key key;
+
+    // Immutable once built, so one instance serves every request thread
+    private JwtParser parser;
+
+    // SHA-256 of a token to its verified claims; each entry expires with its token
+    private Cache<String, Claims> verifiedTokens;
     
     @PostConstruct
     public void init() {
         // Use a consistent key based on the secret property
         byte[] keyBytes = Base64.getDecoder().decode(jwtSecret.getBytes());
         this.key = Keys.hmacShaKeyFor(keyBytes);
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheMaxSize)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String hash, Claims claims, long currentTime) {
+                        long remainingMs = claims.getExpiration().getTime() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMs, 0));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String hash, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String hash, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    Key getSigningKey() {
+        return key;
     }
 
     public String generateToken(Authentication authentication) {
-        UserDetails userPrincipal = (UserDetails) authentication.getPrincipal();
-        
+        return generateToken((UserDetails) authentication.getPrincipal());
+    }
+
+    public String generateToken(UserDetails userPrincipal) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationInMs);
         
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .setSubject(userPrincipal.getUsername())
-                .setIssuedAt(new Date())
-                .setExpiration(expiryDate)
-                .signWith(key)
-                .compact();
+                .setIssuedAt(now)
+                .setExpiration(expiryDate);
+        // Signed id and role let each request authenticate without loading the user
+        if (userPrincipal instanceof UserPrincipal user) {
+            builder.claim(USER_ID_CLAIM, user.getId())
+                    .claim(ROLE_CLAIM, user.getRole());
+        }
+        return builder.signWith(key).compact();
     }
 
     public boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
+            parseToken(token);
             return true;
         } catch (Exception ex) {
             return false;
@@ -56,13 +109,7 @@ public class JwtTokenProvider {
     }
 
     public String getUsernameFromJWT(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        
-        return claims.getSubject();
+        return parseToken(token).getSubject();
     }
 
     // Add this method to match what's being called in JwtAuthenticationFilter
@@ -75,25 +122,40 @@ public class JwtTokenProvider {
     }
 
     public <T> T getClaimFromToken(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = getAllClaimsFromToken(token);
+        final Claims claims = parseToken(token);
         return claimsResolver.apply(claims);
     }
 
-    private Claims getAllClaimsFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * Verifies the signature and expiry and returns the claims; throws a JwtException for any
+     * token that fails them. A token seen before is answered from the cache until it expires,
+     * skipping the HMAC and the Base64/JSON decoding. Callers must not modify the claims.
+     */
+    public Claims parseToken(String token) {
+        String hash = sha256(token);
+        Claims claims = verifiedTokens.getIfPresent(hash);
+        if (claims != null && claims.getExpiration().after(new Date())) {
+            return claims;
+        }
+        claims = parser.parseClaimsJws(token).getBody();
+        // Tokens without an expiry are not cached, the cache could never drop them on its own
+        if (claims.getExpiration() != null) {
+            verifiedTokens.put(hash, claims);
+        }
+        return claims;
     }
 
     public boolean validateToken(String token, UserDetails userDetails) {
         final String username = getUsernameFromJWT(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return username.equals(userDetails.getUsername());
     }
 
-    private boolean isTokenExpired(String token) {
-        final Date expiration = getExpirationDateFromToken(token);
-        return expiration.before(new Date());
+    private static String sha256(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,56 @@
+package com.example.online_bookstore.security;
+
+import com.example.online_bookstore.exception.ServiceUnavailableException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hashing and verification off the servlet threads, on a fixed number of
+ * threads with a bounded queue. When both are full a request fails at once with 503 and
+ * Retry-After instead of queueing, so a login storm cannot starve catalog traffic.
+ */
+@Component
+public class PasswordHashingExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final long retryAfterSeconds;
+
+    public PasswordHashingExecutor(@Value("${bookstore.auth.hashing.threads:0}") int threads,
+                                   @Value("${bookstore.auth.hashing.queue-capacity:64}") int queueCapacity,
+                                   @Value("${bookstore.auth.hashing.retry-after-seconds:2}") long retryAfterSeconds) {
+        // Hashing is CPU bound, so by default use one thread per core and no more
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException ex) {
+            throw new ServiceUnavailableException("Too many sign-in requests, please retry shortly", retryAfterSeconds);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.online_bookstore.security;
+
+import com.example.online_bookstore.repo.TokenCutoffView;
+import com.example.online_bookstore.repo.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rejects tokens issued to a user before their password or role last changed, and tokens of
+ * users that no longer exist. Tokens carry the role as a claim and resolve the user without
+ * loading it, so without this a demoted admin or a deleted user would keep their rights
+ * until the token expires.
+ *
+ * A cutoff is stored in users.tokens_valid_after: changePassword sets it and applies it on
+ * its own instance at once, and User sets it on any entity update that changes the role.
+ * Every instance copies recent cutoffs into memory at startup and every
+ * bookstore.auth.revocation.refresh-interval. The same refresh checks that the users seen
+ * on recent requests still exist and revokes the tokens of those that do not. Requests are
+ * checked against memory only, so changes made elsewhere take effect within one interval.
+ * Role changes written by bulk SQL bypass the entity and must set tokens_valid_after too.
+ */
+@Component
+public class TokenRevocationRegistry {
+
+    private static final int EXISTENCE_CHECK_CHUNK = 1000;
+
+    private final UserRepository userRepository;
+    private final Duration tokenLifetime;
+    private final Map<Long, Instant> notBefore = new ConcurrentHashMap<>();
+    // Users whose tokens were presented within the token lifetime, with when they last were
+    private final Map<Long, Instant> seen = new ConcurrentHashMap<>();
+
+    public TokenRevocationRegistry(UserRepository userRepository,
+                                   @Value("${jwt.expiration}") long expirationMs) {
+        this.userRepository = userRepository;
+        this.tokenLifetime = Duration.ofMillis(expirationMs);
+    }
+
+    public void revokeTokensIssuedBefore(Long userId, LocalDateTime cutoff) {
+        revoke(userId, toInstant(cutoff));
+    }
+
+    public boolean isRevoked(Long userId, Date issuedAt) {
+        if (userId == null) {
+            return false;
+        }
+        seen.put(userId, Instant.now());
+        Instant cutoff = notBefore.get(userId);
+        return cutoff != null && (issuedAt == null || issuedAt.toInstant().isBefore(cutoff));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadCutoffs() {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${bookstore.auth.revocation.refresh-interval:30s}",
+            initialDelayString = "${bookstore.auth.revocation.refresh-interval:30s}")
+    public void refresh() {
+        // A cutoff older than the token lifetime cannot reject a token that has not expired
+        LocalDateTime since = LocalDateTime.now().minus(tokenLifetime);
+        for (TokenCutoffView cutoff : userRepository.findTokenCutoffsAfter(since)) {
+            revokeTokensIssuedBefore(cutoff.getUserId(), cutoff.getTokensValidAfter());
+        }
+        Instant oldest = toInstant(since);
+        notBefore.values().removeIf(cutoff -> cutoff.isBefore(oldest));
+        seen.values().removeIf(lastSeen -> lastSeen.isBefore(oldest));
+        revokeDeletedUsers();
+    }
+
+    private void revokeDeletedUsers() {
+        List<Long> ids = new ArrayList<>(seen.keySet());
+        // Every token of a deleted user was issued before now, and none can outlive the lifetime
+        Instant everyToken = Instant.now().plus(tokenLifetime);
+        for (int from = 0; from < ids.size(); from += EXISTENCE_CHECK_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(from + EXISTENCE_CHECK_CHUNK, ids.size()));
+            Set<Long> existing = new HashSet<>(userRepository.findExistingIds(chunk));
+            for (Long id : chunk) {
+                if (!existing.contains(id)) {
+                    revoke(id, everyToken);
+                    seen.remove(id);
+                }
+            }
+        }
+    }
+
+    private void revoke(Long userId, Instant cutoff) {
+        notBefore.merge(userId, cutoff, (current, next) -> next.isAfter(current) ? next : current);
+    }
+
+    private static Instant toInstant(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant();
+    }
+}
@@ -2,17 +2,15 @@ package com.example.online_bookstore.security;
 
 import com.example.online_bookstore.entity.User;
 import com.example.online_bookstore.repo.UserRepository;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Collections;
-
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
 
@@ -26,10 +24,15 @@ public class UserDetailsServiceImpl implements UserDetailsService {
         User user = userRepository.findByEmail(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + username));
 
-        return new org.springframework.security.core.userdetails.User(
-                user.getEmail(),
-                user.getPassword(),
-                Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + user.getRole()))
-        );
+        return UserPrincipal.from(user);
+    }
+
+    // Called after a successful login whose hash uses an outdated encoder or cost, off the hashing threads
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePasswordByEmail(user.getUsername(), newPassword);
+        UserPrincipal principal = (UserPrincipal) user;
+        return new UserPrincipal(principal.getId(), principal.getName(), principal.getEmail(), newPassword, principal.getRole());
     }
 }
\ No newline at end of file
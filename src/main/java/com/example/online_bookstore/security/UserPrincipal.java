@@ -0,0 +1,77 @@
+package com.example.online_bookstore.security;
+
+import com.example.online_bookstore.entity.User;
+import io.jsonwebtoken.Claims;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Authenticated user as seen by the services: id and role come straight from the verified
+ * token, so resolving the current user needs no database lookup. Name and password are
+ * only known when the principal was loaded from the database during login.
+ */
+@Getter
+public class UserPrincipal implements UserDetails {
+
+    private final Long id;
+    private final String name;
+    private final String email;
+    private final String password;
+    private final String role;
+
+    public UserPrincipal(Long id, String name, String email, String password, String role) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.password = password;
+        this.role = role;
+    }
+
+    public static UserPrincipal from(User user) {
+        return new UserPrincipal(user.getId(), user.getName(), user.getEmail(), user.getPassword(), user.getRole());
+    }
+
+    public static UserPrincipal fromClaims(Claims claims) {
+        Long id = ((Number) claims.get(JwtTokenProvider.USER_ID_CLAIM)).longValue();
+        return new UserPrincipal(id, null, claims.getSubject(), null, claims.get(JwtTokenProvider.ROLE_CLAIM, String.class));
+    }
+
+    public boolean isAdmin() {
+        return "ADMIN".equals(role);
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role));
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+}
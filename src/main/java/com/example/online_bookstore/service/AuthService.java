@@ -6,82 +6,151 @@ import com.example.online_bookstore.dto.RegisterRequest;
 import com.example.online_bookstore.entity.Cart;
 import com.example.online_bookstore.entity.User;
 import com.example.online_bookstore.exception.BusinessLogicException;
-import com.example.online_bookstore.exception.ResourceNotFoundException;
 import com.example.online_bookstore.repo.UserRepository;
 import com.example.online_bookstore.security.JwtTokenProvider;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import com.example.online_bookstore.security.PasswordHashingExecutor;
+import com.example.online_bookstore.security.UserDetailsServiceImpl;
+import com.example.online_bookstore.security.UserPrincipal;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Login and registration spend almost all their time in the password encoder. Only the
+ * encoder runs on the bounded {@link PasswordHashingExecutor}, so a hashing thread never
+ * waits on a database connection. The user lookup runs on the calling thread before the
+ * hash is submitted. The writes that follow (a rehash on login, the new user on
+ * registration) run on the application task executor, and the servlet thread is released
+ * meanwhile.
+ */
 @Service
 public class AuthService {
 
-    private final AuthenticationManager authenticationManager;
+    private final UserDetailsServiceImpl userDetailsService;
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenProvider tokenProvider;
+    private final PasswordHashingExecutor hashingExecutor;
+    private final Executor taskExecutor;
+    private final TransactionTemplate transactionTemplate;
+
+    // Checked instead of a real hash when the email is unknown, so that case takes as long as a wrong password
+    private volatile String unknownUserHash;
 
-    public AuthService(AuthenticationManager authenticationManager,
+    public AuthService(UserDetailsServiceImpl userDetailsService,
                        UserRepository userRepository,
                        PasswordEncoder passwordEncoder,
-                       JwtTokenProvider tokenProvider) {
-        this.authenticationManager = authenticationManager;
+                       JwtTokenProvider tokenProvider,
+                       PasswordHashingExecutor hashingExecutor,
+                       @Qualifier("applicationTaskExecutor") Executor taskExecutor,
+                       PlatformTransactionManager transactionManager) {
+        this.userDetailsService = userDetailsService;
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.tokenProvider = tokenProvider;
+        this.hashingExecutor = hashingExecutor;
+        this.taskExecutor = taskExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
-    public AuthResponse authenticateUser(AuthRequest loginRequest) {
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        loginRequest.getEmail(),
-                        loginRequest.getPassword()
-                )
-        );
-
-        SecurityContextHolder.getContext().setAuthentication(authentication);
-        String jwt = tokenProvider.generateToken(authentication);
+    public CompletableFuture<AuthResponse> authenticateUser(AuthRequest loginRequest) {
+        UserPrincipal user = findUser(loginRequest.getEmail());
 
-        User user = userRepository.findByEmail(loginRequest.getEmail())
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with email: " + loginRequest.getEmail()));
-
-        return new AuthResponse(jwt, user.getId(), user.getName(), user.getEmail(), user.getRole());
+        return hashingExecutor.submit(() -> verify(loginRequest.getPassword(), user))
+                .thenApplyAsync(verification -> {
+                    if (!verification.matches()) {
+                        throw new BadCredentialsException("Bad credentials");
+                    }
+                    UserDetails current = verification.upgradedHash() == null
+                            ? user
+                            : userDetailsService.updatePassword(user, verification.upgradedHash());
+                    String jwt = tokenProvider.generateToken(current);
+                    return new AuthResponse(jwt, user.getId(), user.getName(), user.getEmail(), user.getRole());
+                }, taskExecutor);
     }
 
-    @Transactional
-    public AuthResponse registerUser(RegisterRequest registerRequest) {
+    public CompletableFuture<AuthResponse> registerUser(RegisterRequest registerRequest) {
+        // Cheap check first so a duplicate email never costs a hash
         if (userRepository.existsByEmail(registerRequest.getEmail())) {
             throw new BusinessLogicException("Email is already taken!");
         }
 
-        // Create new user
-        User user = new User();
-        user.setName(registerRequest.getName());
-        user.setEmail(registerRequest.getEmail());
-        user.setPassword(passwordEncoder.encode(registerRequest.getPassword()));
-        user.setRole("USER");
+        return hashingExecutor.submit(() -> passwordEncoder.encode(registerRequest.getPassword()))
+                .thenApplyAsync(encodedPassword -> {
+                    User user = saveNewUser(registerRequest, encodedPassword);
+
+                    // The user was just created with this password; no need to verify it again
+                    UserPrincipal principal = UserPrincipal.from(user);
+                    String jwt = tokenProvider.generateToken(principal);
+                    return new AuthResponse(jwt, user.getId(), user.getName(), user.getEmail(), user.getRole());
+                }, taskExecutor);
+    }
+
+    private UserPrincipal findUser(String email) {
+        try {
+            return (UserPrincipal) userDetailsService.loadUserByUsername(email);
+        } catch (UsernameNotFoundException ex) {
+            return null;
+        }
+    }
+
+    // Runs on a hashing thread: the encoder only, no repository calls
+    private Verification verify(String rawPassword, UserPrincipal user) {
+        if (user == null) {
+            passwordEncoder.matches(rawPassword, unknownUserHash());
+            return new Verification(false, null);
+        }
+        if (!passwordEncoder.matches(rawPassword, user.getPassword())) {
+            return new Verification(false, null);
+        }
+        // A hash from another algorithm or a lower BCrypt cost is replaced once the password is known
+        String upgradedHash = passwordEncoder.upgradeEncoding(user.getPassword())
+                ? passwordEncoder.encode(rawPassword)
+                : null;
+        return new Verification(true, upgradedHash);
+    }
 
-        // Create cart for user
-        Cart cart = new Cart();
-        cart.setUser(user);
-        user.setCart(cart);
+    private String unknownUserHash() {
+        String hash = unknownUserHash;
+        if (hash == null) {
+            hash = passwordEncoder.encode("unknown-user-password");
+            unknownUserHash = hash;
+        }
+        return hash;
+    }
 
-        userRepository.save(user);
+    private User saveNewUser(RegisterRequest registerRequest, String encodedPassword) {
+        try {
+            return transactionTemplate.execute(status -> {
+                // Create new user
+                User user = new User();
+                user.setName(registerRequest.getName());
+                user.setEmail(registerRequest.getEmail());
+                user.setPassword(encodedPassword);
+                user.setRole("USER");
 
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        registerRequest.getEmail(),
-                        registerRequest.getPassword()
-                )
-        );
+                // Create cart for user
+                Cart cart = new Cart();
+                cart.setUser(user);
+                user.setCart(cart);
 
-        SecurityContextHolder.getContext().setAuthentication(authentication);
-        String jwt = tokenProvider.generateToken(authentication);
+                return userRepository.saveAndFlush(user);
+            });
+        } catch (DataIntegrityViolationException ex) {
+            // Another registration for the same email won the race while we were hashing
+            throw new BusinessLogicException("Email is already taken!");
+        }
+    }
 
-        return new AuthResponse(jwt, user.getId(), user.getName(), user.getEmail(), user.getRole());
+    private record Verification(boolean matches, String upgradedHash) {
     }
-}
\ No newline at end of file
+}
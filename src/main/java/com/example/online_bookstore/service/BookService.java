@@ -1,62 +1,205 @@
 package com.example.online_bookstore.service;
 
+import com.example.online_bookstore.cache.BookCache;
 import com.example.online_bookstore.dto.BookDto;
+import com.example.online_bookstore.dto.BookPageCursor;
+import com.example.online_bookstore.dto.BookPageDto;
+import com.example.online_bookstore.dto.BookSuggestionDto;
+import com.example.online_bookstore.dto.FacetedBooksDto;
 import com.example.online_bookstore.entity.Book;
+import com.example.online_bookstore.event.BookChangedEvent;
+import com.example.online_bookstore.event.BookStockChangedEvent;
 import com.example.online_bookstore.exception.BusinessLogicException;
 import com.example.online_bookstore.exception.ResourceNotFoundException;
+import com.example.online_bookstore.exception.ServiceUnavailableException;
+import com.example.online_bookstore.inventory.StripedInventory;
 import com.example.online_bookstore.repo.BookRepository;
+import com.example.online_bookstore.search.BookFacetIndex;
+import com.example.online_bookstore.search.BookSearchIndex;
+import com.example.online_bookstore.search.BookSuggester;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class BookService {
 
+    @Value("${bookstore.catalog.page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${bookstore.catalog.max-page-size:500}")
+    private int maxPageSize;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     private final BookRepository bookRepository;
+    private final BookCache bookCache;
+    private final BookSearchIndex searchIndex;
+    private final BookSuggester suggester;
+    private final BookFacetIndex facetIndex;
+    private final StripedInventory stripedInventory;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
 
-    public BookService(BookRepository bookRepository) {
+    public BookService(BookRepository bookRepository,
+                       BookCache bookCache,
+                       BookSearchIndex searchIndex,
+                       BookSuggester suggester,
+                       BookFacetIndex facetIndex,
+                       StripedInventory stripedInventory,
+                       ApplicationEventPublisher eventPublisher,
+                       ObjectMapper objectMapper,
+                       Validator validator) {
         this.bookRepository = bookRepository;
+        this.bookCache = bookCache;
+        this.searchIndex = searchIndex;
+        this.suggester = suggester;
+        this.facetIndex = facetIndex;
+        this.stripedInventory = stripedInventory;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
     }
 
-    public List<BookDto> getAllBooks() {
-        return bookRepository.findAll().stream()
+    public BookPageDto getBookPage(String cursor, Integer size) {
+        int pageSize = size == null ? defaultPageSize : Math.min(Math.max(size, 1), maxPageSize);
+        long afterId = BookPageCursor.decode(cursor);
+
+        // Fetch one extra row to find out whether another page exists without a count query
+        List<Book> books = bookRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(pageSize + 1));
+        boolean hasMore = books.size() > pageSize;
+        if (hasMore) {
+            books = books.subList(0, pageSize);
+        }
+
+        List<BookDto> items = books.stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
+        String nextCursor = hasMore ? BookPageCursor.encode(books.get(books.size() - 1).getId()) : null;
+        return new BookPageDto(items, nextCursor, hasMore);
+    }
+
+    /**
+     * Feeds every book to the consumer in id order without holding the catalog in memory.
+     * Each entity is detached once converted so the persistence context stays empty.
+     */
+    @Transactional(readOnly = true)
+    public void streamAllBooks(Consumer<BookDto> consumer) {
+        try (Stream<Book> books = bookRepository.streamAllOrderById()) {
+            books.forEach(book -> {
+                consumer.accept(convertToDto(book));
+                entityManager.detach(book);
+            });
+        }
     }
 
     public BookDto getBookById(Long id) {
-        Book book = bookRepository.findById(id)
+        return bookCache.getById(id, this::loadBook)
                 .orElseThrow(() -> new ResourceNotFoundException("Book not found with id: " + id));
-        return convertToDto(book);
+    }
+
+    // Changes whenever any book changes; lets list endpoints answer conditional requests without a query
+    public String getCatalogVersion() {
+        return bookCache.getCatalogVersion();
     }
 
     public List<BookDto> getBooksByCategory(String category) {
-        return bookRepository.findByCategory(category).stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        List<Long> ids = bookCache.getCategoryIds(category, bookRepository::findIdsByCategory);
+        return getBooksInOrder(ids);
     }
 
     public List<BookDto> searchBooks(String query) {
         if (query == null || query.trim().isEmpty()) {
-            return getAllBooks();
+            return getBookPage(null, null).getItems();
         }
         
-        // Use a more efficient approach with a single pass through the results
-        List<Book> searchResults = new ArrayList<>();
-        searchResults.addAll(bookRepository.findByTitleContainingIgnoreCase(query));
-        
-        // Add author results that aren't already included
-        List<Book> authorResults = bookRepository.findByAuthorContainingIgnoreCase(query);
-        for (Book book : authorResults) {
-            if (!searchResults.contains(book)) {
-                searchResults.add(book);
-            }
+        if (!searchIndex.isReady()) {
+            return searchBooksInDatabase(query);
         }
-        
-        return searchResults.stream()
+
+        return getBooksInOrder(searchIndex.search(query));
+    }
+
+    // Cached books by id, loading every miss with one IN query; unknown ids are left out
+    public Map<Long, BookDto> getBooksById(Collection<Long> ids) {
+        return bookCache.getAllById(ids, this::loadBooks);
+    }
+
+    // Resolves ids through the cache, keeping their order; ids of books deleted meanwhile are skipped
+    private List<BookDto> getBooksInOrder(List<Long> ids) {
+        Map<Long, BookDto> booksById = bookCache.getAllById(ids, this::loadBooks);
+        return ids.stream()
+                .map(booksById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private Optional<BookDto> loadBook(Long id) {
+        return bookRepository.findById(id).map(this::convertToDto);
+    }
+
+    // Straight from the table, bypassing the cache; unknown ids are left out
+    public Map<Long, BookDto> loadBooks(Set<Long> ids) {
+        return bookRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Book::getId, this::convertToDto));
+    }
+
+    // Served entirely from memory; empty until the suggestion trie has been built at startup
+    public List<BookSuggestionDto> suggestBooks(String prefix, int limit) {
+        return suggester.suggest(prefix, limit);
+    }
+
+    public FacetedBooksDto browseBooks(List<String> categories, List<String> priceRanges, Boolean inStock,
+                                       int page, Integer size) {
+        if (!facetIndex.isReady()) {
+            throw new ServiceUnavailableException("Catalog facets are still loading", 5);
+        }
+        int pageSize = size == null ? defaultPageSize : Math.min(Math.max(size, 1), maxPageSize);
+        int offset = Math.max(page, 0) * pageSize;
+
+        BookFacetIndex.Result result = facetIndex.query(categories, priceRanges, inStock, offset, pageSize);
+        return new FacetedBooksDto(
+                getBooksInOrder(result.getBookIds()),
+                result.getTotal(),
+                result.getCategories(),
+                result.getPriceRanges(),
+                result.getAvailability());
+    }
+
+    // Used while the search index is still being built at startup
+    private List<BookDto> searchBooksInDatabase(String query) {
+        Map<Long, Book> searchResults = new LinkedHashMap<>();
+        bookRepository.findByTitleContainingIgnoreCase(query)
+                .forEach(book -> searchResults.put(book.getId(), book));
+        bookRepository.findByAuthorContainingIgnoreCase(query)
+                .forEach(book -> searchResults.putIfAbsent(book.getId(), book));
+
+        return searchResults.values().stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
     }
@@ -65,13 +208,22 @@ public class BookService {
     public BookDto createBook(BookDto bookDto) {
         Book book = convertToEntity(bookDto);
         Book savedBook = bookRepository.save(book);
-        return convertToDto(savedBook);
+        BookDto savedDto = convertToDto(savedBook);
+        eventPublisher.publishEvent(new BookChangedEvent(savedDto.getId(), null, savedDto));
+        return savedDto;
     }
 
     @Transactional
     public BookDto updateBook(Long id, BookDto bookDto) {
         Book existingBook = bookRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Book not found with id: " + id));
+        // Clients that send the version they read get a conflict instead of overwriting a newer edit
+        if (bookDto.getVersion() != null && !bookDto.getVersion().equals(existingBook.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Book.class, id);
+        }
+        BookDto before = convertToDto(existingBook);
+        // The new quantity replaces whatever the stripes had leased from the row
+        stripedInventory.releaseForOverwrite(id);
 
         existingBook.setTitle(bookDto.getTitle());
         existingBook.setAuthor(bookDto.getAuthor());
@@ -83,29 +235,154 @@ public class BookService {
         existingBook.setCategory(bookDto.getCategory());
 
         Book updatedBook = bookRepository.save(existingBook);
-        return convertToDto(updatedBook);
+        BookDto updatedDto = convertToDto(updatedBook);
+        eventPublisher.publishEvent(new BookChangedEvent(id, before, updatedDto));
+        return updatedDto;
     }
 
+    /**
+     * Applies a JSON merge patch (RFC 7396): fields in the patch replace the book's values, an
+     * explicit null clears one, absent fields stay as they are. Only fields whose value actually
+     * changes are written and reported in the change event; a patch that changes nothing
+     * writes nothing. A version in the patch must match the current one, as with updateBook.
+     */
     @Transactional
-    public void deleteBook(Long id) {
-        if (!bookRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Book not found with id: " + id);
+    public BookDto patchBook(Long id, JsonNode patch) {
+        if (patch == null || !patch.isObject()) {
+            throw new BusinessLogicException("A book patch must be a JSON object");
+        }
+        Book existingBook = bookRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Book not found with id: " + id));
+        JsonNode version = patch.get("version");
+        if (version != null && !version.isNull() && version.asLong() != existingBook.getVersion()) {
+            throw new ObjectOptimisticLockingFailureException(Book.class, id);
+        }
+        BookDto before = convertToDto(existingBook);
+
+        BookDto patched;
+        try {
+            patched = objectMapper.readerForUpdating(convertToDto(existingBook)).readValue(patch);
+        } catch (IOException ex) {
+            throw new BusinessLogicException("Invalid book patch: "
+                    + (ex instanceof JsonProcessingException json ? json.getOriginalMessage() : ex.getMessage()));
+        }
+        patched.setId(id);
+        patched.setVersion(existingBook.getVersion());
+        String violations = validator.validate(patched).stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(", "));
+        if (!violations.isEmpty()) {
+            throw new BusinessLogicException(violations);
+        }
+
+        Set<String> changed = BookChangedEvent.changedFields(before, patched);
+        if (changed.isEmpty()) {
+            return before;
+        }
+        if (changed.contains("stockQuantity")) {
+            // The new quantity replaces whatever the stripes had leased from the row
+            stripedInventory.releaseForOverwrite(id);
+            existingBook.setStockQuantity(patched.getStockQuantity());
+        }
+        if (changed.contains("title")) {
+            existingBook.setTitle(patched.getTitle());
+        }
+        if (changed.contains("author")) {
+            existingBook.setAuthor(patched.getAuthor());
+        }
+        if (changed.contains("description")) {
+            existingBook.setDescription(patched.getDescription());
+        }
+        if (changed.contains("price")) {
+            existingBook.setPrice(patched.getPrice());
+        }
+        if (changed.contains("isbn")) {
+            existingBook.setIsbn(patched.getIsbn());
+        }
+        if (changed.contains("coverImage")) {
+            existingBook.setCoverImage(patched.getCoverImage());
+        }
+        if (changed.contains("category")) {
+            existingBook.setCategory(patched.getCategory());
         }
-        bookRepository.deleteById(id);
+
+        // Flushed here so the returned version is the one the row now has
+        Book updatedBook = bookRepository.saveAndFlush(existingBook);
+        BookDto updatedDto = convertToDto(updatedBook);
+        eventPublisher.publishEvent(new BookChangedEvent(id, before, updatedDto));
+        return updatedDto;
     }
 
     @Transactional
-    public void updateBookStock(Long bookId, int quantity) {
-        Book book = bookRepository.findById(bookId)
-                .orElseThrow(() -> new ResourceNotFoundException("Book not found with id: " + bookId));
+    public void deleteBook(Long id) {
+        Book book = bookRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Book not found with id: " + id));
+        BookDto before = convertToDto(book);
+        bookRepository.delete(book);
+        eventPublisher.publishEvent(new BookChangedEvent(id, before, null));
+    }
 
-        int newQuantity = book.getStockQuantity() - quantity;
-        if (newQuantity < 0) {
+    /**
+     * Takes stock with a single conditional UPDATE so concurrent checkouts can never oversell,
+     * without holding a lock on the row beyond that statement. Striped books take it from
+     * their in-memory stripes instead and only touch the row to lease a new chunk.
+     */
+    @Transactional
+    public void updateBookStock(Long bookId, int quantity) {
+        if (!stripedInventory.reserve(bookId, quantity)) {
+            Book book = bookRepository.findById(bookId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Book not found with id: " + bookId));
             throw new BusinessLogicException("Insufficient stock for book: " + book.getTitle());
         }
+        eventPublisher.publishEvent(new BookStockChangedEvent(bookId, -quantity));
+    }
 
-        book.setStockQuantity(newQuantity);
-        bookRepository.save(book);
+    /**
+     * Reserves stock for a whole order: striped books take it from their stripes, every other
+     * book in the order is decremented by one multi-row conditional UPDATE. Any shortfall
+     * throws, which rolls back the reservations already made in the same transaction.
+     * Books are visited in id order, so concurrent checkouts take row locks in the same order.
+     */
+    @Transactional
+    public void reserveStock(Map<Long, Integer> quantities) {
+        Map<Long, Integer> rowQuantities = new TreeMap<>();
+        new TreeMap<>(quantities).forEach((bookId, quantity) -> {
+            if (!stripedInventory.isStriped(bookId)) {
+                rowQuantities.put(bookId, quantity);
+            } else if (!stripedInventory.reserve(bookId, quantity)) {
+                throw insufficientStock(List.of(bookId), quantities);
+            }
+        });
+        if (!rowQuantities.isEmpty() && bookRepository.decrementStocks(rowQuantities) < rowQuantities.size()) {
+            throw insufficientStock(rowQuantities.keySet(), quantities);
+        }
+        quantities.forEach((bookId, quantity) ->
+                eventPublisher.publishEvent(new BookStockChangedEvent(bookId, -quantity)));
+    }
+
+    /**
+     * Stock a customer can still buy: the row value plus any units leased to stripes.
+     */
+    public int availableStock(Book book) {
+        return book.getStockQuantity() + stripedInventory.leasedStock(book.getId());
+    }
+
+    // Names the books whose stock, as this transaction first read it, cannot cover the order
+    private BusinessLogicException insufficientStock(Collection<Long> bookIds, Map<Long, Integer> quantities) {
+        List<Book> books = bookRepository.findAllById(bookIds);
+        if (books.size() < bookIds.size()) {
+            throw new ResourceNotFoundException("Book not found with id: " + bookIds.stream()
+                    .filter(id -> books.stream().noneMatch(book -> book.getId().equals(id)))
+                    .findFirst().orElse(null));
+        }
+        String titles = books.stream()
+                .filter(book -> availableStock(book) < quantities.get(book.getId()))
+                .map(Book::getTitle)
+                .collect(Collectors.joining(", "));
+        return new BusinessLogicException(titles.isEmpty()
+                ? "Insufficient stock for one or more books in the order"
+                : "Insufficient stock for book: " + titles);
     }
 
     private BookDto convertToDto(Book book) {
@@ -117,8 +394,9 @@ public class BookService {
         bookDto.setPrice(book.getPrice());
         bookDto.setIsbn(book.getIsbn());
         bookDto.setCoverImage(book.getCoverImage());
-        bookDto.setStockQuantity(book.getStockQuantity());
+        bookDto.setStockQuantity(availableStock(book));
         bookDto.setCategory(book.getCategory());
+        bookDto.setVersion(book.getVersion());
         return bookDto;
     }
 
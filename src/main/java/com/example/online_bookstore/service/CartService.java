@@ -1,25 +1,32 @@
 package com.example.online_bookstore.service;
 
+import com.example.online_bookstore.cart.BulkCartPlan;
+import com.example.online_bookstore.cart.WriteBehindCartStore;
+import com.example.online_bookstore.dto.CartBulkRequest;
 import com.example.online_bookstore.dto.CartDto;
 import com.example.online_bookstore.dto.CartItemDto;
 import com.example.online_bookstore.entity.Book;
 import com.example.online_bookstore.entity.Cart;
 import com.example.online_bookstore.entity.CartItem;
-import com.example.online_bookstore.entity.User;
+import com.example.online_bookstore.entity.Money;
 import com.example.online_bookstore.exception.BusinessLogicException;
 import com.example.online_bookstore.exception.ResourceNotFoundException;
 import com.example.online_bookstore.exception.UnauthorizedException;
 import com.example.online_bookstore.repo.BookRepository;
 import com.example.online_bookstore.repo.CartItemRepository;
+import com.example.online_bookstore.repo.CartLineView;
 import com.example.online_bookstore.repo.CartRepository;
-import com.example.online_bookstore.repo.UserRepository;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import com.example.online_bookstore.security.CurrentUserProvider;
+import com.example.online_bookstore.security.UserPrincipal;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,79 +34,97 @@ public class CartService {
 
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
-    private final UserRepository userRepository;
+    private final CurrentUserProvider currentUser;
     private final BookRepository bookRepository;
+    private final BookService bookService;
+    // Set when bookstore.cart.write-behind.enabled; calls then go to it before any transaction or connection is taken
+    private final WriteBehindCartStore writeBehind;
+    // Only the table-backed branch runs in a transaction
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
 
     public CartService(CartRepository cartRepository,
                        CartItemRepository cartItemRepository,
-                       UserRepository userRepository,
-                       BookRepository bookRepository) {
+                       CurrentUserProvider currentUser,
+                       BookRepository bookRepository,
+                       BookService bookService,
+                       ObjectProvider<WriteBehindCartStore> writeBehind,
+                       PlatformTransactionManager transactionManager) {
         this.cartRepository = cartRepository;
         this.cartItemRepository = cartItemRepository;
-        this.userRepository = userRepository;
+        this.currentUser = currentUser;
         this.bookRepository = bookRepository;
-    }
-
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String currentUserEmail = authentication.getName();
-        return userRepository.findByEmail(currentUserEmail)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        this.bookService = bookService;
+        this.writeBehind = writeBehind.getIfAvailable();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
     }
 
     public CartDto getCart() {
-        User user = getCurrentUser();
-        Cart cart = cartRepository.findByUserId(user.getId())
-                .orElseThrow(() -> new ResourceNotFoundException("Cart not found for user: " + user.getId()));
-
-        return convertToDto(cart);
+        UserPrincipal user = currentUser.get();
+        if (writeBehind != null) {
+            return writeBehind.getCart(user.getId());
+        }
+        return readOnlyTransactionTemplate.execute(status -> loadCartDto(user.getId()));
     }
 
-    @Transactional
     public CartDto addItemToCart(CartItemDto cartItemDto) {
         if (cartItemDto.getQuantity() <= 0) {
             throw new IllegalArgumentException("Quantity must be greater than zero");
         }
         
-        User user = getCurrentUser();
-        Cart cart = cartRepository.findByUserId(user.getId())
-                .orElseThrow(() -> new ResourceNotFoundException("Cart not found for user: " + user.getId()));
+        UserPrincipal user = currentUser.get();
+        if (writeBehind != null) {
+            return writeBehind.addItem(user.getId(), cartItemDto.getBookId(), cartItemDto.getQuantity());
+        }
+        return transactionTemplate.execute(status -> addItemInTable(user.getId(), cartItemDto));
+    }
+
+    private CartDto addItemInTable(Long userId, CartItemDto cartItemDto) {
+        Cart cart = cartRepository.findByUserId(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Cart not found for user: " + userId));
 
         Book book = bookRepository.findById(cartItemDto.getBookId())
                 .orElseThrow(() -> new ResourceNotFoundException("Book not found with id: " + cartItemDto.getBookId()));
         
-        if (book.getStockQuantity() < cartItemDto.getQuantity()) {
+        if (bookService.availableStock(book) < cartItemDto.getQuantity()) {
             throw new BusinessLogicException("Not enough stock for book: " + book.getTitle());
         }
         
         if (isBookInCart(cart, book.getId())) {
             CartItem item = cartItemRepository.findByCartIdAndBookId(cart.getId(), book.getId())
                     .orElseThrow(() -> new ResourceNotFoundException("Cart item not found"));
-            item.setQuantity(item.getQuantity() + cartItemDto.getQuantity());
+            cart.changeQuantity(item, item.getQuantity() + cartItemDto.getQuantity());
             cartItemRepository.save(item);
         } else {
             CartItem newItem = new CartItem();
             newItem.setCart(cart);
             newItem.setBook(book);
             newItem.setQuantity(cartItemDto.getQuantity());
-            newItem.setPrice(book.getPrice());
+            newItem.setPrice(Money.of(book.getPrice()));
             cart.addItem(newItem);
         }
 
-        cart.updateTotalPrice();
-        Cart updatedCart = cartRepository.save(cart);
-        return convertToDto(updatedCart);
+        cartRepository.save(cart);
+        return loadCartDto(userId);
     }
 
-    @Transactional
     public CartDto updateCartItem(Long itemId, CartItemDto cartItemDto) {
         if (cartItemDto.getQuantity() <= 0) {
             throw new IllegalArgumentException("Quantity must be greater than zero");
         }
         
-        User user = getCurrentUser();
-        Cart cart = cartRepository.findByUserId(user.getId())
-                .orElseThrow(() -> new ResourceNotFoundException("Cart not found for user: " + user.getId()));
+        UserPrincipal user = currentUser.get();
+        if (writeBehind != null) {
+            return writeBehind.updateItem(user.getId(), itemId, cartItemDto.getQuantity());
+        }
+        return transactionTemplate.execute(status -> updateItemInTable(user.getId(), itemId, cartItemDto));
+    }
+
+    private CartDto updateItemInTable(Long userId, Long itemId, CartItemDto cartItemDto) {
+        Cart cart = cartRepository.findByUserId(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Cart not found for user: " + userId));
 
         CartItem item = cartItemRepository.findById(itemId)
                 .orElseThrow(() -> new ResourceNotFoundException("Cart item not found with id: " + itemId));
@@ -108,19 +133,24 @@ public class CartService {
             throw new UnauthorizedException("Cart item does not belong to the user's cart");
         }
 
-        item.setQuantity(cartItemDto.getQuantity());
+        cart.changeQuantity(item, cartItemDto.getQuantity());
         cartItemRepository.save(item);
 
-        cart.updateTotalPrice();
-        Cart updatedCart = cartRepository.save(cart);
-        return convertToDto(updatedCart);
+        cartRepository.save(cart);
+        return loadCartDto(userId);
     }
 
-    @Transactional
     public CartDto removeCartItem(Long itemId) {
-        User user = getCurrentUser();
-        Cart cart = cartRepository.findByUserId(user.getId())
-                .orElseThrow(() -> new ResourceNotFoundException("Cart not found for user: " + user.getId()));
+        UserPrincipal user = currentUser.get();
+        if (writeBehind != null) {
+            return writeBehind.removeItem(user.getId(), itemId);
+        }
+        return transactionTemplate.execute(status -> removeItemInTable(user.getId(), itemId));
+    }
+
+    private CartDto removeItemInTable(Long userId, Long itemId) {
+        Cart cart = cartRepository.findByUserId(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Cart not found for user: " + userId));
 
         CartItem item = cartItemRepository.findById(itemId)
                 .orElseThrow(() -> new ResourceNotFoundException("Cart item not found with id: " + itemId));
@@ -132,33 +162,99 @@ public class CartService {
         cart.removeItem(item);
         cartItemRepository.delete(item);
 
-        Cart updatedCart = cartRepository.save(cart);
-        return convertToDto(updatedCart);
+        cartRepository.save(cart);
+        return loadCartDto(userId);
     }
 
-    @Transactional
     public CartDto clearCart() {
-        User user = getCurrentUser();
-        Cart cart = cartRepository.findByUserId(user.getId())
-                .orElseThrow(() -> new ResourceNotFoundException("Cart not found for user: " + user.getId()));
+        UserPrincipal user = currentUser.get();
+        if (writeBehind != null) {
+            return writeBehind.clear(user.getId());
+        }
+        return transactionTemplate.execute(status -> clearInTable(user.getId()));
+    }
+
+    private CartDto clearInTable(Long userId) {
+        Cart cart = cartRepository.findByUserId(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Cart not found for user: " + userId));
 
         // Remove all items
-        List<CartItem> items = cart.getItems();
-        cartItemRepository.deleteAll(items);
-        items.clear();
+        cartItemRepository.deleteAll(cart.getItems());
+        cart.clearItems();
+        cartRepository.save(cart);
+        return loadCartDto(userId);
+    }
+
+    /**
+     * Applies a list of add, update and remove operations in one transaction, for clients
+     * syncing a cart edited offline. The cart comes with its lines and books in one query, new
+     * books in one IN query, and the changes go out as batched statements, whatever the number
+     * of operations. Stock is checked for the final quantity of every line that is new or grows.
+     */
+    public CartDto applyBulk(CartBulkRequest request) {
+        UserPrincipal user = currentUser.get();
+        if (writeBehind != null) {
+            return writeBehind.applyBulk(user.getId(), request.getOperations());
+        }
+        return transactionTemplate.execute(status -> applyBulkInTable(user.getId(), request));
+    }
+
+    private CartDto applyBulkInTable(Long userId, CartBulkRequest request) {
+        Cart cart = cartRepository.findWithItemsByUserId(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Cart not found for user: " + userId));
 
-        cart.setTotalPrice(BigDecimal.ZERO);
-        Cart updatedCart = cartRepository.save(cart);
-        return convertToDto(updatedCart);
+        Map<Long, CartItem> lines = new LinkedHashMap<>();
+        Map<Long, Long> itemBooks = new HashMap<>();
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (CartItem item : cart.getItems()) {
+            Long bookId = item.getBook().getId();
+            lines.put(bookId, item);
+            itemBooks.put(item.getId(), bookId);
+            quantities.put(bookId, item.getQuantity());
+        }
+        BulkCartPlan plan = BulkCartPlan.resolve(request.getOperations(), itemBooks, quantities);
+
+        Map<Long, Book> books = new HashMap<>();
+        lines.forEach((bookId, item) -> books.put(bookId, item.getBook()));
+        if (!plan.addedBookIds().isEmpty()) {
+            bookRepository.findAllById(plan.addedBookIds()).forEach(book -> books.put(book.getId(), book));
+        }
+        plan.requireBooksFound(books.keySet());
+        plan.requireStock(bookId -> bookService.availableStock(books.get(bookId)), bookId -> books.get(bookId).getTitle());
+
+        plan.removedBookIds().forEach(bookId -> cart.removeItem(lines.get(bookId)));
+        plan.target().forEach((bookId, quantity) -> {
+            CartItem item = lines.get(bookId);
+            if (item == null) {
+                Book book = books.get(bookId);
+                CartItem newItem = new CartItem();
+                newItem.setBook(book);
+                newItem.setQuantity(quantity);
+                newItem.setPrice(Money.of(book.getPrice()));
+                cart.addItem(newItem);
+            } else if (!item.getQuantity().equals(quantity)) {
+                cart.changeQuantity(item, quantity);
+            }
+        });
+
+        cartRepository.save(cart);
+        return loadCartDto(userId);
     }
 
-    // Helper methods for DTO conversion
-    private CartDto convertToDto(Cart cart) {
+    // Builds the DTO from one projection query; pending changes are flushed before it runs
+    private CartDto loadCartDto(Long userId) {
+        List<CartLineView> lines = cartRepository.findLinesByUserId(userId);
+        if (lines.isEmpty()) {
+            throw new ResourceNotFoundException("Cart not found for user: " + userId);
+        }
+
         CartDto cartDto = new CartDto();
-        cartDto.setId(cart.getId());
-        cartDto.setTotalPrice(cart.getTotalPrice());
+        cartDto.setId(lines.get(0).getCartId());
+        Money totalPrice = lines.get(0).getTotalPrice();
+        cartDto.setTotalPrice(totalPrice == null ? null : totalPrice.toBigDecimal());
 
-        List<CartItemDto> itemDtos = cart.getItems().stream()
+        List<CartItemDto> itemDtos = lines.stream()
+                .filter(line -> line.getItemId() != null)
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
 
@@ -168,16 +264,16 @@ public class CartService {
         return cartDto;
     }
 
-    private CartItemDto convertToDto(CartItem item) {
+    private CartItemDto convertToDto(CartLineView line) {
         CartItemDto dto = new CartItemDto();
-        dto.setId(item.getId());
-        dto.setBookId(item.getBook().getId());
-        dto.setQuantity(item.getQuantity());
-        dto.setPrice(item.getPrice());
-        dto.setSubtotal(item.getSubtotal());
-        dto.setBookTitle(item.getBook().getTitle());
-        dto.setBookAuthor(item.getBook().getAuthor());
-        dto.setBookImage(item.getBook().getCoverImage());
+        dto.setId(line.getItemId());
+        dto.setBookId(line.getBookId());
+        dto.setQuantity(line.getQuantity());
+        dto.setPrice(line.getPrice().toBigDecimal());
+        dto.setSubtotal(line.getPrice().times(line.getQuantity()).toBigDecimal());
+        dto.setBookTitle(line.getBookTitle());
+        dto.setBookAuthor(line.getBookAuthor());
+        dto.setBookImage(line.getBookImage());
         return dto;
     }
 
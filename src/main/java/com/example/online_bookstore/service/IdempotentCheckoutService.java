@@ -0,0 +1,190 @@
+package com.example.online_bookstore.service;
+
+import com.example.online_bookstore.dto.CheckoutRequest;
+import com.example.online_bookstore.dto.OrderDto;
+import com.example.online_bookstore.entity.CheckoutIdempotencyKey;
+import com.example.online_bookstore.exception.BusinessLogicException;
+import com.example.online_bookstore.repo.CheckoutIdempotencyKeyRepository;
+import com.example.online_bookstore.security.CurrentUserProvider;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Checkout keyed by the client's Idempotency-Key, so a retry after a timeout returns the
+ * order the first attempt created instead of placing another one.
+ *
+ * Duplicates running at the same time on this instance wait for the first one and share its
+ * outcome. Duplicates on other instances are serialized by the unique key row, which the
+ * checkout transaction inserts before touching the cart or stock. The second insert waits
+ * for the first transaction, then fails once the first commits, and the loser replays the
+ * stored response. A failed checkout rolls back its key too, so the client can retry it.
+ *
+ * A replay returns the response the first attempt sent, not the order as it is now. The
+ * fingerprint covers the request body (shipping address and payment method) but not the
+ * cart: a successful checkout empties the cart, so a genuine retry always finds a different
+ * cart than the first attempt did. A key names one checkout attempt, so a retry after the
+ * cart was refilled returns the original order and does not order the new contents; the
+ * client needs a new key for that.
+ */
+@Service
+public class IdempotentCheckoutService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotentCheckoutService.class);
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final OrderService orderService;
+    private final CheckoutIdempotencyKeyRepository keyRepository;
+    private final CurrentUserProvider currentUser;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration retention;
+    private final Map<String, CompletableFuture<OrderDto>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotentCheckoutService(OrderService orderService,
+                                     CheckoutIdempotencyKeyRepository keyRepository,
+                                     CurrentUserProvider currentUser,
+                                     PlatformTransactionManager transactionManager,
+                                     ObjectMapper objectMapper,
+                                     @Value("${bookstore.idempotency.retention:24h}") Duration retention) {
+        this.orderService = orderService;
+        this.keyRepository = keyRepository;
+        this.currentUser = currentUser;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.retention = retention;
+    }
+
+    public OrderDto checkout(CheckoutRequest request, String idempotencyKey) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new BusinessLogicException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        Long userId = currentUser.get().getId();
+        String requestHash = fingerprint(request);
+
+        // A different request under the same key gets its own slot and is rejected by replay
+        String slot = userId + ":" + idempotencyKey + ":" + requestHash;
+        CompletableFuture<OrderDto> mine = new CompletableFuture<>();
+        CompletableFuture<OrderDto> running = inFlight.putIfAbsent(slot, mine);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            OrderDto order = checkoutOnce(userId, idempotencyKey, requestHash, request);
+            mine.complete(order);
+            return order;
+        } catch (RuntimeException ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(slot, mine);
+        }
+    }
+
+    private OrderDto checkoutOnce(Long userId, String idempotencyKey, String requestHash, CheckoutRequest request) {
+        OrderDto replayed = replay(userId, idempotencyKey, requestHash);
+        if (replayed != null) {
+            return replayed;
+        }
+        try {
+            return transactionTemplate.execute(status -> {
+                CheckoutIdempotencyKey key = new CheckoutIdempotencyKey();
+                key.setUserId(userId);
+                key.setIdempotencyKey(idempotencyKey);
+                key.setRequestHash(requestHash);
+                keyRepository.saveAndFlush(key);
+
+                OrderDto order = orderService.createOrder(request);
+                key.setOrderId(order.getId());
+                key.setResponse(toJson(order));
+                return order;
+            });
+        } catch (DataIntegrityViolationException ex) {
+            // Another instance committed a checkout with this key while we waited on its row
+            OrderDto winner = replay(userId, idempotencyKey, requestHash);
+            if (winner == null) {
+                throw ex;
+            }
+            return winner;
+        }
+    }
+
+    private OrderDto replay(Long userId, String idempotencyKey, String requestHash) {
+        return keyRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey)
+                .map(key -> {
+                    if (!key.getRequestHash().equals(requestHash)) {
+                        throw new BusinessLogicException("Idempotency-Key was already used for a different checkout request");
+                    }
+                    return key.getResponse() != null
+                            ? fromJson(key.getResponse())
+                            : orderService.getOrderById(key.getOrderId());
+                })
+                .orElse(null);
+    }
+
+    private String toJson(OrderDto order) {
+        try {
+            return objectMapper.writeValueAsString(order);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not serialize order " + order.getId(), ex);
+        }
+    }
+
+    private OrderDto fromJson(String response) {
+        try {
+            return objectMapper.readValue(response, OrderDto.class);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not read stored checkout response", ex);
+        }
+    }
+
+    private static OrderDto await(CompletableFuture<OrderDto> running) {
+        try {
+            return running.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    private static String fingerprint(CheckoutRequest request) {
+        String canonical = request.getShippingAddress() + "\n" + request.getPaymentMethod();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bookstore.idempotency.purge-interval:1h}",
+            initialDelayString = "${bookstore.idempotency.purge-interval:1h}")
+    public void purgeExpiredKeys() {
+        Integer purged = transactionTemplate.execute(status ->
+                keyRepository.deleteCreatedBefore(LocalDateTime.now().minus(retention)));
+        if (purged != null && purged > 0) {
+            log.info("Purged {} expired checkout idempotency keys", purged);
+        }
+    }
+}
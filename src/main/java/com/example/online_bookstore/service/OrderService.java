@@ -1,81 +1,100 @@
 package com.example.online_bookstore.service;
 
+import com.example.online_bookstore.cart.WriteBehindCartStore;
 import com.example.online_bookstore.dto.CheckoutRequest;
 import com.example.online_bookstore.dto.OrderDto;
 import com.example.online_bookstore.dto.OrderItemDto;
+import com.example.online_bookstore.dto.OrderPageDto;
 import com.example.online_bookstore.entity.*;
 import com.example.online_bookstore.exception.BusinessLogicException;
 import com.example.online_bookstore.exception.ResourceNotFoundException;
 import com.example.online_bookstore.exception.UnauthorizedException;
+import com.example.online_bookstore.outbox.OutboxWriter;
 import com.example.online_bookstore.repo.*;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import com.example.online_bookstore.security.CurrentUserProvider;
+import com.example.online_bookstore.security.UserPrincipal;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class OrderService {
 
+    private static final int MAX_PAGE_SIZE = 200;
+
     private final OrderRepository orderRepository;
-    private final OrderItemRepository orderItemRepository;
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
-    private final UserRepository userRepository;
+    private final CurrentUserProvider currentUser;
     private final BookService bookService;
+    private final OutboxWriter outbox;
+    private final WriteBehindCartStore writeBehindCarts;
 
     public OrderService(OrderRepository orderRepository,
-                        OrderItemRepository orderItemRepository,
                         CartRepository cartRepository,
                         CartItemRepository cartItemRepository,
-                        UserRepository userRepository,
+                        CurrentUserProvider currentUser,
                         BookRepository bookRepository,
-                        BookService bookService) {
+                        BookService bookService,
+                        OutboxWriter outbox,
+                        ObjectProvider<WriteBehindCartStore> writeBehindCarts) {
         this.orderRepository = orderRepository;
-        this.orderItemRepository = orderItemRepository;
         this.cartRepository = cartRepository;
         this.cartItemRepository = cartItemRepository;
-        this.userRepository = userRepository;
+        this.currentUser = currentUser;
         this.bookService = bookService;
+        this.outbox = outbox;
+        this.writeBehindCarts = writeBehindCarts.getIfAvailable();
     }
 
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String currentUserEmail = authentication.getName();
-        return userRepository.findByEmail(currentUserEmail)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-    }
-
+    @Transactional(readOnly = true)
     public List<OrderDto> getUserOrders() {
-        User user = getCurrentUser();
-        List<Order> orders = orderRepository.findByUserId(user.getId());
+        UserPrincipal user = currentUser.get();
+        List<Order> orders = orderRepository.findWithDetailsByUserIdOrderByOrderDateDescIdDesc(user.getId());
 
         return orders.stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public OrderDto getOrderById(Long orderId) {
-        User user = getCurrentUser();
-        Order order = orderRepository.findById(orderId)
+        UserPrincipal user = currentUser.get();
+        Order order = orderRepository.findWithDetailsById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + orderId));
 
-        if (!order.getUser().getId().equals(user.getId()) && !"ADMIN".equals(user.getRole())) {
+        if (!order.getUser().getId().equals(user.getId()) && !user.isAdmin()) {
             throw new UnauthorizedException("You are not authorized to view this order");
         }
 
         return convertToDto(order);
     }
 
+    /**
+     * Checks out the current user's cart with a fixed number of statements whatever its size:
+     * one fetch of the cart with its books, one conditional UPDATE for all stock, batched
+     * order item inserts and one bulk delete of the cart lines.
+     */
     @Transactional
     public OrderDto createOrder(CheckoutRequest checkoutRequest) {
-        User user = getCurrentUser();
-        Cart cart = cartRepository.findByUserId(user.getId())
+        UserPrincipal user = currentUser.get();
+        if (writeBehindCarts != null) {
+            writeBehindCarts.flushForCheckout(user.getId());
+        }
+        Cart cart = cartRepository.findWithItemsByUserId(user.getId())
                 .orElseThrow(() -> new ResourceNotFoundException("Cart not found for user: " + user.getId()));
 
         if (cart.getItems().isEmpty()) {
@@ -83,71 +102,74 @@ public class OrderService {
         }
 
         Order order = new Order();
-        order.setUser(user);
+        order.setUser(cart.getUser());
         order.setOrderDate(LocalDateTime.now());
-        order.setStatus("PENDING");
+        order.setStatus(OrderStatus.PENDING);
         order.setShippingAddress(checkoutRequest.getShippingAddress());
         order.setPaymentMethod(checkoutRequest.getPaymentMethod());
 
-        BigDecimal totalAmount = BigDecimal.ZERO;
-        List<OrderItem> orderItems = new ArrayList<>();
+        Money totalAmount = Money.zero();
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
 
         for (CartItem cartItem : cart.getItems()) {
             Book book = cartItem.getBook();
 
-            if (book.getStockQuantity() < cartItem.getQuantity()) {
-                throw new BusinessLogicException("Not enough stock for book: " + book.getTitle()); // Changed from IllegalStateException
-            }
-
             OrderItem orderItem = new OrderItem();
-            orderItem.setOrder(order);
             orderItem.setBook(book);
             orderItem.setBookTitle(book.getTitle());
             orderItem.setBookAuthor(book.getAuthor());
             orderItem.setQuantity(cartItem.getQuantity());
             orderItem.setPrice(book.getPrice());
+            order.addOrderItem(orderItem);
 
-            bookService.updateBookStock(book.getId(), cartItem.getQuantity());
-
-            totalAmount = totalAmount.add(orderItem.getSubtotal());
-            orderItems.add(orderItem);
+            quantities.merge(book.getId(), cartItem.getQuantity(), Integer::sum);
+            totalAmount = totalAmount.plus(Money.of(book.getPrice()).times(cartItem.getQuantity()));
         }
 
-        order.setTotalAmount(totalAmount);
-        Order savedOrder = orderRepository.save(order);
+        bookService.reserveStock(quantities);
 
-        for (OrderItem item : orderItems) {
-            item.setOrder(savedOrder);
-            orderItemRepository.save(item);
-            savedOrder.addOrderItem(item);
-        }
+        order.setTotalAmount(totalAmount.toBigDecimal());
+        Order savedOrder = orderRepository.save(order);
 
-        List<CartItem> cartItems = new ArrayList<>(cart.getItems());
-        for (CartItem item : cartItems) {
-            cart.removeItem(item);
-            cartItemRepository.delete(item);
-        }
-        cart.setTotalPrice(BigDecimal.ZERO);
-        cartRepository.save(cart);
+        // The bulk delete bypasses cart.getItems(); the stale collection is dropped with the persistence context
+        cart.setTotalPrice(Money.zero());
+        cartItemRepository.deleteByCartId(cart.getId());
 
-        return convertToDto(savedOrder);
+        OrderDto orderDto = convertToDto(savedOrder);
+        outbox.append(OutboxWriter.ORDER, savedOrder.getId(), OutboxWriter.ORDER_CREATED, orderDto);
+        return orderDto;
     }
 
+    /**
+     * Moves an order to the next status of its lifecycle; see {@link OrderStatus#nextStatuses()}.
+     * Setting the status it already has changes nothing and records no event.
+     */
     @Transactional
     public OrderDto updateOrderStatus(Long orderId, String status) {
-        User user = getCurrentUser();
+        UserPrincipal user = currentUser.get();
 
-        if (!"ADMIN".equals(user.getRole())) {
+        if (!user.isAdmin()) {
             throw new UnauthorizedException("You are not authorized to view this order");
         }
+        OrderStatus next = parseStatus(status);
 
-        Order order = orderRepository.findById(orderId)
+        // The row lock makes concurrent changes to one order append their outbox events in commit order
+        Order order = orderRepository.findForUpdateById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + orderId));
 
-        order.setStatus(status);
+        if (order.getStatus() == next) {
+            return convertToDto(order);
+        }
+        if (!order.getStatus().canTransitionTo(next)) {
+            throw new BusinessLogicException("Cannot change order status from " + order.getStatus() + " to " + next);
+        }
+
+        order.setStatus(next);
         Order updatedOrder = orderRepository.save(order);
 
-        return convertToDto(updatedOrder);
+        OrderDto orderDto = convertToDto(updatedOrder);
+        outbox.append(OutboxWriter.ORDER, updatedOrder.getId(), OutboxWriter.ORDER_STATUS_CHANGED, orderDto);
+        return orderDto;
     }
 
     private OrderDto convertToDto(Order order) {
@@ -157,7 +179,7 @@ public class OrderService {
         orderDto.setUserName(order.getUser().getName());
         orderDto.setOrderDate(order.getOrderDate());
         orderDto.setTotalAmount(order.getTotalAmount());
-        orderDto.setStatus(order.getStatus());
+        orderDto.setStatus(order.getStatus().name());
         orderDto.setShippingAddress(order.getShippingAddress());
         orderDto.setPaymentMethod(order.getPaymentMethod());
 
@@ -183,13 +205,54 @@ public class OrderService {
     }
 
     /**
-     * Retrieves all orders in the system (for admin use)
-     * @return List of all orders
+     * Retrieves one page of all orders in the system, newest first (for admin use)
+     * @param status only orders in this status, or all when null
+     * @param from only orders placed on or after this day, or all when null
+     * @param to only orders placed on or before this day, or all when null
+     * @return The requested page of orders
      */
-    public List<OrderDto> getAllOrders() {
-        List<Order> orders = orderRepository.findAll();
-        return orders.stream()
-                .map(this::convertToDto)
+    @Transactional(readOnly = true)
+    public OrderPageDto getAllOrders(int page, int size, String status, LocalDate from, LocalDate to) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        Specification<Order> filter = Specification.where(OrderSpecifications.hasStatus(status == null ? null : parseStatus(status)))
+                .and(OrderSpecifications.placedOnOrAfter(from == null ? null : from.atStartOfDay()))
+                .and(OrderSpecifications.placedBefore(to == null ? null : to.plusDays(1).atStartOfDay()));
+        Page<Order> orders = orderRepository.findAll(filter,
+                PageRequest.of(Math.max(page, 0), pageSize, Sort.by(Sort.Order.desc("orderDate"), Sort.Order.desc("id"))));
+
+        return toPageDto(orders.map(Order::getId));
+    }
+
+    /**
+     * Orders that have been in a status since before the given time, oldest first (for admin use),
+     * e.g. PENDING orders nobody has picked up. Served by the (status, order_date) index.
+     */
+    @Transactional(readOnly = true)
+    public OrderPageDto getOrdersInStatusPlacedBefore(String status, LocalDateTime before, int page, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        Page<Long> ids = orderRepository.findIdsByStatusPlacedBefore(parseStatus(status), before,
+                PageRequest.of(Math.max(page, 0), pageSize));
+        return toPageDto(ids);
+    }
+
+    // Loads users and items for the whole page in one query, then keeps the page's order
+    private OrderPageDto toPageDto(Page<Long> ids) {
+        Map<Long, Order> detailed = orderRepository.findWithDetailsByIdIn(ids.getContent()).stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+        List<OrderDto> items = ids.stream()
+                .map(id -> convertToDto(detailed.get(id)))
                 .collect(Collectors.toList());
+
+        return new OrderPageDto(items, ids.getNumber(), ids.getSize(),
+                ids.getTotalElements(), ids.getTotalPages());
+    }
+
+    private static OrderStatus parseStatus(String status) {
+        OrderStatus parsed = OrderStatus.parse(status);
+        if (parsed == null) {
+            throw new BusinessLogicException("Unknown order status: " + status
+                    + "; expected one of " + Arrays.toString(OrderStatus.values()));
+        }
+        return parsed;
     }
-}
\ No newline at end of file
+}
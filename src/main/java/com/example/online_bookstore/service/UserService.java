@@ -4,17 +4,25 @@ import com.example.online_bookstore.entity.User;
 import com.example.online_bookstore.exception.ResourceNotFoundException;
 import com.example.online_bookstore.exception.UnauthorizedException;
 import com.example.online_bookstore.repo.UserRepository;
+import com.example.online_bookstore.security.TokenRevocationRegistry;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
 @Service
 public class UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final TokenRevocationRegistry revocationRegistry;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository,
+                       PasswordEncoder passwordEncoder,
+                       TokenRevocationRegistry revocationRegistry) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.revocationRegistry = revocationRegistry;
     }
 
     public User getUserById(Long id) {
@@ -37,8 +45,11 @@ public class UserService {
             throw new UnauthorizedException("Current password is incorrect");
         }
         
-        // Update password
+        // Update password; token issue times only have second precision
+        LocalDateTime cutoff = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
         user.setPassword(passwordEncoder.encode(newPassword));
+        user.setTokensValidAfter(cutoff);
         userRepository.save(user);
+        revocationRegistry.revokeTokensIssuedBefore(userId, cutoff);
     }
 }
\ No newline at end of file
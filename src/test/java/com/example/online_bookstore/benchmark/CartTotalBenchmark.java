@@ -0,0 +1,100 @@
+package com.example.online_bookstore.benchmark;
+
+import com.example.online_bookstore.entity.Cart;
+import com.example.online_bookstore.entity.CartItem;
+import com.example.online_bookstore.entity.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One quantity change on carts of growing size: the old BigDecimal total summed over every
+ * line against the Money total moved by the change's delta. Runs with the GC profiler, so
+ * gc.alloc.rate.norm gives the bytes allocated per change.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *           -Dexec.mainClass=com.example.online_bookstore.benchmark.CartTotalBenchmark
+ * or, where JMH cannot fork from exec:java, in-process with the same profiler:
+ *           -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args="CartTotalBenchmark -f 0 -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartTotalBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int lines;
+
+    // The old line shape: BigDecimal price, subtotal allocated on every read
+    private List<BigDecimal> prices;
+    private int[] quantities;
+
+    private Cart cart;
+    private List<CartItem> items;
+    private int step;
+
+    @Setup
+    public void setUp() {
+        prices = new ArrayList<>(lines);
+        quantities = new int[lines];
+        cart = new Cart();
+        items = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            BigDecimal price = new BigDecimal(5 + i % 40 + ".99");
+            prices.add(price);
+            quantities[i] = 1 + i % 3;
+
+            CartItem item = new CartItem();
+            item.setPrice(Money.of(price));
+            item.setQuantity(quantities[i]);
+            cart.addItem(item);
+            items.add(item);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal recomputeBigDecimalTotal() {
+        int line = step++ % lines;
+        quantities[line] = quantities[line] % 5 + 1;
+        // What Cart.updateTotalPrice did after every change
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < lines; i++) {
+            total = total.add(prices.get(i).multiply(new BigDecimal(quantities[i])));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Money deltaMoneyTotal() {
+        CartItem item = items.get(step++ % lines);
+        cart.changeQuantity(item, item.getQuantity() % 5 + 1);
+        return cart.getTotalPrice();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CartTotalBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
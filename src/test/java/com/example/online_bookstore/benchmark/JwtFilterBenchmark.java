@@ -0,0 +1,113 @@
+package com.example.online_bookstore.benchmark;
+
+import com.example.online_bookstore.security.JwtAuthenticationFilter;
+import com.example.online_bookstore.security.JwtTokenProvider;
+import com.example.online_bookstore.security.TokenRevocationRegistry;
+import com.example.online_bookstore.security.UserPrincipal;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Key;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot path of JwtAuthenticationFilter for a client that repeats its token: the old three
+ * full parses with a fresh parser each, one parse with a shared parser, a cache hit in
+ * JwtTokenProvider, and the whole filter including the mock request it runs on.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *           -Dexec.mainClass=com.example.online_bookstore.benchmark.JwtFilterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtFilterBenchmark {
+
+    private static final String SECRET = "yourSecretKeyHereShouldBeAtLeast32CharactersLong";
+
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> { };
+
+    private Key key;
+    private String token;
+    private JwtParser sharedParser;
+    private JwtTokenProvider provider;
+    private JwtAuthenticationFilter filter;
+
+    @Setup
+    public void setUp() {
+        key = Keys.hmacShaKeyFor(Base64.getDecoder().decode(SECRET.getBytes()));
+
+        sharedParser = Jwts.parserBuilder().setSigningKey(key).build();
+
+        provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(provider, "jwtExpirationInMs", 3_600_000L);
+        ReflectionTestUtils.setField(provider, "verifiedCacheMaxSize", 100_000L);
+        provider.init();
+
+        UserPrincipal principal = new UserPrincipal(42L, "Bench", "bench@example.com", null, "USER");
+        token = provider.generateToken(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+        filter = new JwtAuthenticationFilter(provider, null, new TokenRevocationRegistry(null, 3_600_000L));
+        ReflectionTestUtils.setField(filter, "tokenHeader", "Authorization");
+        ReflectionTestUtils.setField(filter, "tokenPrefix", "Bearer ");
+    }
+
+    @Benchmark
+    public Claims threeParsesWithFreshParsers() {
+        // What the filter did before: subject, then subject and expiry again inside validateToken
+        Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody().getSubject();
+        Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody().getSubject();
+        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+    }
+
+    @Benchmark
+    public Claims singleParseSharedParser() {
+        return sharedParser.parseClaimsJws(token).getBody();
+    }
+
+    @Benchmark
+    public Claims verifiedTokenCacheHit() {
+        return provider.parseToken(token);
+    }
+
+    @Benchmark
+    public Object filterWithCache() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cart");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), NO_OP_CHAIN);
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        SecurityContextHolder.clearContext();
+        return principal;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtFilterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.online_bookstore.benchmark;
+
+import com.example.online_bookstore.cache.BookCache;
+import com.example.online_bookstore.inventory.StripedInventory;
+import com.example.online_bookstore.repo.BookRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Single-unit reservations of one hot book from many threads: a counter behind one lock, which
+ * is how the row lock serializes checkouts of an unstriped book (without the database round
+ * trip), against StripedInventory with a growing number of stripes. The row never runs dry, so
+ * only the occasional lease leaves the stripes. Compare runs at one thread and at one thread
+ * per core: the locked counter stays flat or drops while the stripes should scale.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *           -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args="StripedStockBenchmark -f 0 -t 1"
+ * and again with -t set to the number of cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StripedStockBenchmark {
+
+    private static final Long BOOK_ID = 1L;
+
+    @Param({"1", "8", "32"})
+    private int stripes;
+
+    private StripedInventory inventory;
+
+    private final ReentrantLock rowLock = new ReentrantLock();
+    private long rowStock = Long.MAX_VALUE;
+
+    @Setup
+    public void setUp() {
+        inventory = new StripedInventory(bottomlessRow(), new BookCache(1000, 100, Duration.ofMinutes(10)),
+                new NoTransactionManager());
+        ReflectionTestUtils.setField(inventory, "leaseSize", 1000);
+        inventory.enable(BOOK_ID, stripes);
+    }
+
+    @Benchmark
+    public boolean lockedCounter() {
+        rowLock.lock();
+        try {
+            return rowStock-- > 0;
+        } finally {
+            rowLock.unlock();
+        }
+    }
+
+    @Benchmark
+    public boolean stripedReserve() {
+        return inventory.reserve(BOOK_ID, 1);
+    }
+
+    // A book row that grants every lease at once
+    private static BookRepository bottomlessRow() {
+        return (BookRepository) Proxy.newProxyInstance(BookRepository.class.getClassLoader(),
+                new Class<?>[]{BookRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "decrementStock", "incrementStock" -> 1;
+                    case "existsById" -> true;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "bottomlessRow";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    // Only used to build the return transaction, which a bottomless row never needs
+    private static final class NoTransactionManager extends AbstractPlatformTransactionManager {
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(StripedStockBenchmark.class.getSimpleName())
+                .threads(Runtime.getRuntime().availableProcessors())
+                .build()).run();
+    }
+}
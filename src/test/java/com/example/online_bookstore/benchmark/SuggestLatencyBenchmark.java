@@ -0,0 +1,118 @@
+package com.example.online_bookstore.benchmark;
+
+import com.example.online_bookstore.dto.BookDto;
+import com.example.online_bookstore.dto.BookSuggestionDto;
+import com.example.online_bookstore.search.BookSuggester;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of one suggest call on a synthetic catalog, for the p99 under 1 ms target: a prefix
+ * that matches exactly, and a misspelt one that needs the edit-distance walk. Sample time
+ * mode reports the p0.99 percentile directly.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *           -Dexec.mainClass=com.example.online_bookstore.benchmark.SuggestLatencyBenchmark
+ * or, where JMH cannot fork from exec:java, in-process:
+ *           -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args="SuggestLatencyBenchmark -f 0"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SuggestLatencyBenchmark {
+
+    private static final String[] WORDS = {
+            "shadow", "river", "empire", "garden", "silent", "winter", "harbor", "crystal", "forgotten", "kingdom",
+            "midnight", "journey", "stone", "secret", "ocean", "fire", "library", "mountain", "letters", "storm",
+            "history", "modern", "guide", "science", "dragon", "summer", "island", "machine", "light", "city"
+    };
+
+    @Param({"10000", "100000"})
+    private int books;
+
+    private BookSuggester suggester;
+    private String[] exact;
+    private String[] misspelt;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        suggester = new BookSuggester();
+        ReflectionTestUtils.setField(suggester, "maxResults", 10);
+        ReflectionTestUtils.setField(suggester, "maxEdits", 2);
+
+        Random random = new Random(42);
+        List<BookDto> catalog = new ArrayList<>(books);
+        Map<Long, Long> popularity = new HashMap<>();
+        for (long id = 1; id <= books; id++) {
+            BookDto book = new BookDto();
+            book.setId(id);
+            book.setTitle(word(random) + " " + word(random) + " " + word(random) + " " + id);
+            book.setAuthor(capitalize(word(random)) + " " + capitalize(word(random)));
+            catalog.add(book);
+            popularity.put(id, (long) random.nextInt(1000));
+        }
+        suggester.rebuild(consumer -> catalog.forEach(consumer), () -> popularity);
+
+        exact = new String[256];
+        misspelt = new String[256];
+        for (int i = 0; i < exact.length; i++) {
+            String title = catalog.get(random.nextInt(books)).getTitle().toLowerCase();
+            exact[i] = title.substring(0, 3 + random.nextInt(8));
+            // Swap two neighbouring letters of a seven letter prefix
+            char[] typo = title.substring(0, 7).toCharArray();
+            int at = 1 + random.nextInt(4);
+            char swapped = typo[at];
+            typo[at] = typo[at + 1];
+            typo[at + 1] = swapped;
+            misspelt[i] = new String(typo);
+        }
+    }
+
+    @Benchmark
+    public List<BookSuggestionDto> exactPrefix() {
+        return suggester.suggest(exact[next++ & 255], 10);
+    }
+
+    @Benchmark
+    public List<BookSuggestionDto> misspeltPrefix() {
+        return suggester.suggest(misspelt[next++ & 255], 10);
+    }
+
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SuggestLatencyBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.online_bookstore.benchmark;
+
+import com.example.online_bookstore.OnlineBookstoreApplication;
+import com.example.online_bookstore.entity.Book;
+import com.example.online_bookstore.repo.BookRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load test comparing throughput and latency percentiles of the catalog listing
+ * with Tomcat on platform threads and with the "virtual" profile. Each mode boots the
+ * application in-process on H2 with the same seeded catalog, then a fixed number of client
+ * threads issue GET /api/books back to back, for more clients than Tomcat's 200 platform threads.
+ *
+ * Virtual threads need a Java 21 runtime; on older runtimes the second run falls back to
+ * platform threads and the two rows should match.
+ *
+ * Run with: mvn -Pjava21 test-compile exec:java -Dexec.classpathScope=test
+ *           -Dexec.mainClass=com.example.online_bookstore.benchmark.ThreadModeLoadComparison
+ *           [-Dexec.args="clients warmupSeconds measureSeconds"]
+ */
+public class ThreadModeLoadComparison {
+
+    private static final int BOOKS = 2_000;
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        int warmupSeconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int measureSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 15;
+
+        if (Runtime.version().feature() < 21) {
+            System.out.println("Running on Java " + Runtime.version().feature()
+                    + "; virtual threads are unavailable, both runs use platform threads");
+        }
+
+        List<String> rows = new ArrayList<>();
+        rows.add(run("platform", "test", clients, warmupSeconds, measureSeconds));
+        rows.add(run("virtual", "test,virtual", clients, warmupSeconds, measureSeconds));
+
+        System.out.printf("%n%-10s %12s %10s %10s %10s %8s%n", "mode", "requests/s", "p50 ms", "p99 ms", "max ms", "errors");
+        rows.forEach(System.out::println);
+    }
+
+    private static String run(String mode, String profiles, int clients, int warmupSeconds, int measureSeconds)
+            throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(OnlineBookstoreApplication.class)
+                .profiles(profiles.split(","))
+                .properties("server.port=0",
+                        "spring.jpa.properties.hibernate.generate_statistics=false",
+                        "logging.level.root=WARN")
+                .run()) {
+            seed(context.getBean(BookRepository.class));
+            String port = context.getEnvironment().getProperty("local.server.port");
+            URI uri = URI.create("http://localhost:" + port + "/api/books?size=20");
+
+            ExecutorService clientExecutor = Executors.newFixedThreadPool(4);
+            HttpClient client = HttpClient.newBuilder()
+                    .executor(clientExecutor)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+            HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+
+            Sample sample;
+            try {
+                drive(client, request, clients, warmupSeconds);
+                sample = drive(client, request, clients, measureSeconds);
+            } finally {
+                clientExecutor.shutdownNow();
+            }
+
+            long[] latencies = sample.latencies();
+            Arrays.sort(latencies);
+            return String.format("%-10s %12.0f %10.2f %10.2f %10.2f %8d", mode,
+                    latencies.length / (double) measureSeconds,
+                    percentile(latencies, 0.50), percentile(latencies, 0.99),
+                    latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1_000_000.0,
+                    sample.errors());
+        }
+    }
+
+    private static Sample drive(HttpClient client, HttpRequest request, int clients, int seconds) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        AtomicLong errors = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<long[]>> results = new ArrayList<>(clients);
+            for (int i = 0; i < clients; i++) {
+                results.add(pool.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                                continue;
+                            }
+                        } catch (java.io.IOException ex) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - start;
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+
+            List<long[]> perClient = new ArrayList<>(clients);
+            int total = 0;
+            for (Future<long[]> result : results) {
+                long[] latencies = result.get();
+                perClient.add(latencies);
+                total += latencies.length;
+            }
+            long[] all = new long[total];
+            int offset = 0;
+            for (long[] latencies : perClient) {
+                System.arraycopy(latencies, 0, all, offset, latencies.length);
+                offset += latencies.length;
+            }
+            return new Sample(all, errors.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1_000_000.0;
+    }
+
+    private static void seed(BookRepository bookRepository) {
+        List<Book> books = new ArrayList<>(BOOKS);
+        for (int i = 0; i < BOOKS; i++) {
+            Book book = new Book();
+            book.setTitle("Load Book " + i);
+            book.setAuthor("Load Author " + (i % 100));
+            book.setCategory("Category " + (i % 20));
+            book.setPrice(new BigDecimal("9.99"));
+            book.setStockQuantity(100);
+            books.add(book);
+        }
+        bookRepository.saveAll(books);
+    }
+
+    private record Sample(long[] latencies, long errors) {
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.online_bookstore.cache;
+
+import com.example.online_bookstore.dto.BookDto;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookCacheTest {
+
+    private final BookCache cache = new BookCache(100, 10, Duration.ofMinutes(10));
+
+    @Test
+    void invalidationDuringBulkLoadIsNotOverwritten() {
+        Map<Long, BookDto> stale = cache.getAllById(List.of(1L, 2L), ids -> {
+            Map<Long, BookDto> read = Map.of(1L, book(1L, 5), 2L, book(2L, 7));
+            // Book 1 changes and its commit invalidates it after the rows were read
+            cache.stockChanged(1L);
+            return read;
+        });
+        assertThat(stale).containsOnlyKeys(1L, 2L);
+
+        assertThat(cache.getById(1L, id -> Optional.of(book(id, 4))))
+                .hasValueSatisfying(book -> assertThat(book.getStockQuantity()).isEqualTo(4));
+        assertThat(cache.getById(2L, id -> Optional.of(book(id, 0))))
+                .hasValueSatisfying(book -> assertThat(book.getStockQuantity()).isEqualTo(7));
+    }
+
+    private static BookDto book(Long id, int stock) {
+        BookDto book = new BookDto();
+        book.setId(id);
+        book.setTitle("Cached " + id);
+        book.setStockQuantity(stock);
+        return book;
+    }
+}
@@ -0,0 +1,295 @@
+package com.example.online_bookstore.cart;
+
+import com.example.online_bookstore.dto.CartBulkRequest;
+import com.example.online_bookstore.dto.CartDto;
+import com.example.online_bookstore.dto.CartItemDto;
+import com.example.online_bookstore.dto.CheckoutRequest;
+import com.example.online_bookstore.dto.OrderDto;
+import com.example.online_bookstore.entity.Book;
+import com.example.online_bookstore.entity.Cart;
+import com.example.online_bookstore.entity.CartItem;
+import com.example.online_bookstore.entity.Money;
+import com.example.online_bookstore.entity.User;
+import com.example.online_bookstore.repo.BookRepository;
+import com.example.online_bookstore.repo.CartItemRepository;
+import com.example.online_bookstore.repo.CartRepository;
+import com.example.online_bookstore.repo.OrderRepository;
+import com.example.online_bookstore.repo.OutboxEventRepository;
+import com.example.online_bookstore.repo.UserRepository;
+import com.example.online_bookstore.security.UserPrincipal;
+import com.example.online_bookstore.service.BookService;
+import com.example.online_bookstore.service.CartService;
+import com.example.online_bookstore.service.OrderService;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest(properties = {
+        "bookstore.cart.write-behind.enabled=true",
+        "bookstore.cart.write-behind.flush-interval=1h"
+})
+@ActiveProfiles("test")
+class WriteBehindCartStoreTest {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private WriteBehindCartStore store;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Cart cart;
+    private Book first;
+    private Book second;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setName("Write Behind Buyer");
+        user.setEmail("write-behind-buyer@example.com");
+        user.setPassword("unused");
+        user = userRepository.save(user);
+
+        Cart newCart = new Cart();
+        newCart.setUser(user);
+        cart = cartRepository.save(newCart);
+
+        first = saveBook("Buffered Book", "12.00");
+        second = saveBook("Batched Book", "8.50");
+
+        UserPrincipal principal = UserPrincipal.from(user);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    @AfterEach
+    void cleanUp() {
+        SecurityContextHolder.clearContext();
+        store.flushOnShutdown();
+        outboxEventRepository.deleteAll();
+        orderRepository.deleteAll();
+        cartItemRepository.deleteAll();
+        cartRepository.deleteAll();
+        userRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void changesStayInMemoryUntilFlushed() {
+        cartService.addItemToCart(item(first, 2));
+        CartDto afterAdd = cartService.addItemToCart(item(second, 1));
+        Long secondItemId = afterAdd.getItems().get(1).getId();
+        cartService.addItemToCart(item(first, 1));
+        cartService.updateCartItem(secondItemId, item(second, 4));
+        CartDto expected = cartService.getCart();
+
+        assertThat(expected.getTotalPrice()).isEqualByComparingTo("70.00");
+        assertThat(cartItemRepository.findByCartId(cart.getId())).isEmpty();
+
+        store.flushDirtyCarts();
+
+        assertThat(cartItemRepository.findByCartId(cart.getId()))
+                .extracting(CartItem::getId, CartItem::getQuantity)
+                .containsExactlyInAnyOrder(
+                        tuple(expected.getItems().get(0).getId(), 3),
+                        tuple(secondItemId, 4));
+        assertThat(cartRepository.findById(cart.getId()).orElseThrow().getTotalPrice()).isEqualTo(Money.of(new BigDecimal("70.00")));
+
+        cartService.removeCartItem(secondItemId);
+        store.flushDirtyCarts();
+        assertThat(cartItemRepository.findByCartId(cart.getId())).hasSize(1);
+    }
+
+    @Test
+    void checkoutSeesUnflushedChangesAndEmptiesTheCart() {
+        cartService.addItemToCart(item(first, 1));
+        cartService.addItemToCart(item(second, 2));
+
+        CheckoutRequest request = new CheckoutRequest();
+        request.setShippingAddress("1 Buffer Street");
+        request.setPaymentMethod("CARD");
+        OrderDto order = orderService.createOrder(request);
+
+        assertThat(order.getItems()).hasSize(2);
+        assertThat(order.getTotalAmount()).isEqualByComparingTo("29.00");
+        assertThat(cartService.getCart().getItems()).isEmpty();
+        assertThat(cartItemRepository.findByCartId(cart.getId())).isEmpty();
+    }
+
+    @Test
+    void changesDuringCheckoutStayForTheNextFlush() throws Exception {
+        Long userId = cart.getUser().getId();
+        cartService.addItemToCart(item(first, 1));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            store.flushForCheckout(userId);
+            // What checkout does once the order is written
+            cartItemRepository.deleteByCartId(cart.getId());
+            CompletableFuture.runAsync(() -> {
+                store.addItem(userId, second.getId(), 2);
+                store.addItem(userId, first.getId(), 3);
+                store.flushDirtyCarts();
+            }).join();
+        });
+
+        CartDto carried = store.getCart(userId);
+        assertThat(carried.getItems())
+                .extracting(CartItemDto::getBookId, CartItemDto::getQuantity)
+                .containsExactlyInAnyOrder(tuple(first.getId(), 3), tuple(second.getId(), 2));
+        assertThat(carried.getTotalPrice()).isEqualByComparingTo("53.00");
+        assertThat(cartItemRepository.findByCartId(cart.getId())).isEmpty();
+
+        store.flushDirtyCarts();
+        assertThat(cartItemRepository.findByCartId(cart.getId()))
+                .extracting(CartItem::getQuantity)
+                .containsExactlyInAnyOrder(3, 2);
+    }
+
+    @Test
+    void changesSurviveAFlushThatCannotGetAConnection() {
+        Long userId = cart.getUser().getId();
+        FailingTransactionManager failing = new FailingTransactionManager(transactionManager);
+        WriteBehindCartStore failingStore = new WriteBehindCartStore(cartRepository, bookService, jdbcTemplate,
+                failing, entityManagerFactory, 4, Duration.ofMinutes(30), 500);
+
+        Long itemId = failingStore.addItem(userId, first.getId(), 1).getItems().get(0).getId();
+        failing.failures = 1;
+        failingStore.flushDirtyCarts();
+        assertThat(cartItemRepository.findByCartId(cart.getId())).isEmpty();
+
+        // Written as an insert on the next flush, not as an update of a row that never arrived
+        failingStore.updateItem(userId, itemId, 5);
+        failingStore.flushDirtyCarts();
+
+        assertThat(cartItemRepository.findByCartId(cart.getId()))
+                .extracting(CartItem::getId, CartItem::getQuantity)
+                .containsExactly(tuple(itemId, 5));
+        assertThat(cartRepository.findById(cart.getId()).orElseThrow().getTotalPrice())
+                .isEqualTo(Money.of(new BigDecimal("60.00")));
+    }
+
+    @Test
+    void bulkRequestAppliesInMemory() {
+        Long firstItemId = cartService.addItemToCart(item(first, 1)).getItems().get(0).getId();
+
+        CartDto synced = cartService.applyBulk(bulk(
+                operation(CartBulkRequest.Type.ADD, null, second.getId(), 2),
+                operation(CartBulkRequest.Type.REMOVE, firstItemId, null, null)));
+
+        assertThat(synced.getItems()).extracting(CartItemDto::getBookId).containsExactly(second.getId());
+        assertThat(synced.getTotalPrice()).isEqualByComparingTo("17.00");
+        assertThat(cartItemRepository.findByCartId(cart.getId())).isEmpty();
+    }
+
+    private Book saveBook(String title, String price) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor("Write Behind Author");
+        book.setPrice(new BigDecimal(price));
+        book.setStockQuantity(20);
+        return bookRepository.save(book);
+    }
+
+    private static CartBulkRequest bulk(CartBulkRequest.Operation... operations) {
+        CartBulkRequest request = new CartBulkRequest();
+        request.setOperations(List.of(operations));
+        return request;
+    }
+
+    private static CartBulkRequest.Operation operation(CartBulkRequest.Type type, Long itemId, Long bookId, Integer quantity) {
+        CartBulkRequest.Operation operation = new CartBulkRequest.Operation();
+        operation.setType(type);
+        operation.setItemId(itemId);
+        operation.setBookId(bookId);
+        operation.setQuantity(quantity);
+        return operation;
+    }
+
+    private static CartItemDto item(Book book, int quantity) {
+        CartItemDto dto = new CartItemDto();
+        dto.setBookId(book.getId());
+        dto.setQuantity(quantity);
+        return dto;
+    }
+
+    // Refuses the next transactions the way an exhausted connection pool does
+    private static final class FailingTransactionManager implements PlatformTransactionManager {
+        private final PlatformTransactionManager delegate;
+        int failures;
+
+        FailingTransactionManager(PlatformTransactionManager delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            if (failures > 0) {
+                failures--;
+                throw new CannotCreateTransactionException("Could not open JPA EntityManager for transaction");
+            }
+            return delegate.getTransaction(definition);
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            delegate.commit(status);
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            delegate.rollback(status);
+        }
+    }
+}
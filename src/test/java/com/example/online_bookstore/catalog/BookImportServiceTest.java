@@ -0,0 +1,119 @@
+package com.example.online_bookstore.catalog;
+
+import com.example.online_bookstore.dto.BookDto;
+import com.example.online_bookstore.dto.BookImportReport;
+import com.example.online_bookstore.entity.Book;
+import com.example.online_bookstore.repo.BookRepository;
+import com.example.online_bookstore.service.BookService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest(properties = "bookstore.import.chunk-size=2")
+@ActiveProfiles("test")
+class BookImportServiceTest {
+
+    @Autowired
+    private BookImportService importService;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @AfterEach
+    void cleanUp() {
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void csvUpsertsByIsbnAndReportsBadRows() {
+        Book existing = new Book();
+        existing.setTitle("Old Title");
+        existing.setAuthor("Feed Author");
+        existing.setPrice(new BigDecimal("10.00"));
+        existing.setIsbn("978-1");
+        existing.setStockQuantity(1);
+        existing = bookRepository.save(existing);
+        bookService.getBookById(existing.getId());
+
+        String feed = """
+                isbn,title,author,price,stockQuantity,category,unknownColumn
+                978-1,New Title,Feed Author,12.50,5,Fiction,ignored
+                978-2,Second,Feed Author,3.00,2,,
+                978-3,Bad Price,Feed Author,abc,2,,
+                ,No Isbn,Feed Author,1.00,1,,
+                978-4,,Feed Author,1.00,1,,
+                978-5,Fifth,Feed Author,7.25,0,Poetry,
+                """;
+        BookImportReport report = importService.importBooks(stream(feed), BookFeedFormat.CSV);
+
+        assertThat(report.getRowsRead()).isEqualTo(6);
+        assertThat(report.getInserted()).isEqualTo(2);
+        assertThat(report.getUpdated()).isEqualTo(1);
+        assertThat(report.getRejected()).isEqualTo(3);
+        assertThat(report.getErrors())
+                .extracting(BookImportReport.RowError::getRow, BookImportReport.RowError::getMessage)
+                .containsExactly(
+                        tuple(3L, "Invalid value for price: abc"),
+                        tuple(4L, "ISBN is required for import"),
+                        tuple(5L, "Title is required"));
+
+        // The cached copy follows the import once its chunk commits
+        BookDto updated = bookService.getBookById(existing.getId());
+        assertThat(updated.getTitle()).isEqualTo("New Title");
+        assertThat(updated.getStockQuantity()).isEqualTo(5);
+        assertThat(updated.getVersion()).isEqualTo(existing.getVersion() + 1);
+        assertThat(bookRepository.findByIsbnIn(List.of("978-2", "978-5")))
+                .extracting(Book::getTitle)
+                .containsExactlyInAnyOrder("Second", "Fifth");
+    }
+
+    @Test
+    void ndjsonExportImportsBackAsUpdates() throws Exception {
+        String feed = """
+                {"isbn":"111","title":"Streamed One","author":"A","price":1.50,"stockQuantity":3}
+
+                {"isbn":"222","title":"Streamed Two","author":"B","price":2.00,"stockQuantity":4,"category":"Essays"}
+                {"isbn":"333","title":"Broken"
+                {"isbn":"111","title":"Streamed One, Revised","author":"A","price":1.75,"stockQuantity":6}
+                """;
+        BookImportReport imported = importService.importBooks(stream(feed), BookFeedFormat.NDJSON);
+
+        assertThat(imported.getInserted()).isEqualTo(2);
+        assertThat(imported.getUpdated()).isEqualTo(1);
+        assertThat(imported.getErrors()).extracting(BookImportReport.RowError::getRow).containsExactly(4L);
+        assertThat(bookRepository.count()).isEqualTo(2);
+
+        for (BookFeedFormat format : BookFeedFormat.values()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            importService.exportBooks(format, out);
+            BookImportReport reimported = importService.importBooks(
+                    new ByteArrayInputStream(out.toByteArray()), format);
+
+            assertThat(reimported.getRejected()).as(format.name()).isZero();
+            assertThat(reimported.getUpdated()).as(format.name()).isEqualTo(2);
+        }
+        assertThat(bookRepository.findAll())
+                .extracting(Book::getTitle, Book::getPrice, Book::getStockQuantity)
+                .containsExactlyInAnyOrder(
+                        tuple("Streamed One, Revised", new BigDecimal("1.75"), 6),
+                        tuple("Streamed Two", new BigDecimal("2.00"), 4));
+    }
+
+    private static ByteArrayInputStream stream(String feed) {
+        return new ByteArrayInputStream(feed.getBytes(StandardCharsets.UTF_8));
+    }
+}
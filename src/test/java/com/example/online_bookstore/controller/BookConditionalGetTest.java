@@ -0,0 +1,161 @@
+package com.example.online_bookstore.controller;
+
+import com.example.online_bookstore.dto.BookDto;
+import com.example.online_bookstore.entity.Book;
+import com.example.online_bookstore.inventory.StripedInventory;
+import com.example.online_bookstore.repo.BookRepository;
+import com.example.online_bookstore.service.BookService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BookConditionalGetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private StripedInventory stripedInventory;
+
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        book = new Book();
+        book.setTitle("Conditional Book");
+        book.setAuthor("ETag Author");
+        book.setPrice(new BigDecimal("9.99"));
+        book.setStockQuantity(100);
+        book.setCategory("Caching");
+        book = bookRepository.save(book);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        stripedInventory.returnAllLeases();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void stripedReservationChangesTheBookETag() throws Exception {
+        stripedInventory.enable(book.getId(), 4);
+        // The first reservation leases a chunk from the row; later ones come off the stripes only
+        bookService.updateBookStock(book.getId(), 1);
+        String etag = bookETag();
+        long version = bookRepository.findById(book.getId()).orElseThrow().getVersion();
+
+        bookService.updateBookStock(book.getId(), 1);
+
+        assertThat(bookRepository.findById(book.getId()).orElseThrow().getVersion()).isEqualTo(version);
+        String after = mockMvc.perform(get("/api/books/{id}", book.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(after).isNotEqualTo(etag);
+        assertThat(bookService.getBookById(book.getId()).getStockQuantity()).isEqualTo(98);
+    }
+
+    @Test
+    void matchingIfNoneMatchAnswers304WithoutABody() throws Exception {
+        String etag = bookETag();
+
+        mockMvc.perform(get("/api/books/{id}", book.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/api/books/{id}", book.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"stale\""))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void updateAndStockChangeGiveTheBookANewETag() throws Exception {
+        String original = bookETag();
+
+        bookService.updateBook(book.getId(), edit("Conditional Book, Revised"));
+        String updated = bookETag();
+        assertThat(updated).isNotEqualTo(original);
+        // The tag is "id-version-stock": an edit that keeps the stock moves only the version
+        assertThat(etagParts(updated)).containsExactly(
+                book.getId(), etagParts(original)[1] + 1, etagParts(original)[2]);
+        mockMvc.perform(get("/api/books/{id}", book.getId()).header(HttpHeaders.IF_NONE_MATCH, original))
+                .andExpect(status().isOk());
+
+        // The conditional stock UPDATE bumps the version as well as lowering the stock
+        bookService.updateBookStock(book.getId(), 1);
+        String afterSale = bookETag();
+        assertThat(etagParts(afterSale)).containsExactly(
+                book.getId(), etagParts(updated)[1] + 1, etagParts(updated)[2] - 1);
+        mockMvc.perform(get("/api/books/{id}", book.getId()).header(HttpHeaders.IF_NONE_MATCH, updated))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void createAndDeleteChangeTheCatalogETag() throws Exception {
+        String original = catalogETag();
+        // Weak, since the catalog version is kept per process
+        assertThat(original).startsWith("W/\"c-");
+        mockMvc.perform(get("/api/books").header(HttpHeaders.IF_NONE_MATCH, original))
+                .andExpect(status().isNotModified());
+
+        BookDto created = bookService.createBook(edit("Another Conditional Book"));
+        String afterCreate = catalogETag();
+        assertThat(afterCreate).isNotEqualTo(original);
+        mockMvc.perform(get("/api/books").header(HttpHeaders.IF_NONE_MATCH, original))
+                .andExpect(status().isOk());
+
+        bookService.deleteBook(created.getId());
+        String afterDelete = catalogETag();
+        assertThat(afterDelete).isNotEqualTo(afterCreate).isNotEqualTo(original);
+        mockMvc.perform(get("/api/books").header(HttpHeaders.IF_NONE_MATCH, afterCreate))
+                .andExpect(status().isOk());
+    }
+
+    private static Long[] etagParts(String etag) {
+        String[] parts = etag.replace("\"", "").split("-");
+        return new Long[]{Long.valueOf(parts[0]), Long.valueOf(parts[1]), Long.valueOf(parts[2])};
+    }
+
+    private String catalogETag() throws Exception {
+        return mockMvc.perform(get("/api/books"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private BookDto edit(String title) {
+        BookDto dto = new BookDto();
+        dto.setTitle(title);
+        dto.setAuthor(book.getAuthor());
+        dto.setPrice(book.getPrice());
+        dto.setStockQuantity(book.getStockQuantity());
+        dto.setCategory(book.getCategory());
+        return dto;
+    }
+
+    private String bookETag() throws Exception {
+        return mockMvc.perform(get("/api/books/{id}", book.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.online_bookstore.controller;
+
+import com.example.online_bookstore.dto.BookDto;
+import com.example.online_bookstore.dto.BookPageCursor;
+import com.example.online_bookstore.dto.BookPageDto;
+import com.example.online_bookstore.entity.Book;
+import com.example.online_bookstore.repo.BookRepository;
+import com.example.online_bookstore.service.BookService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BookPagingTest {
+
+    // One more than bookstore.catalog.max-page-size so a clamped page still has a next one
+    private static final int BOOK_COUNT = 501;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private List<Book> books;
+
+    @BeforeEach
+    void setUp() {
+        List<Book> fresh = new ArrayList<>();
+        for (int i = 0; i < BOOK_COUNT; i++) {
+            Book book = new Book();
+            book.setTitle("Paged Book " + i);
+            book.setAuthor("Paging Author");
+            book.setCategory("Paging");
+            book.setPrice(new BigDecimal("7.25"));
+            book.setStockQuantity(5);
+            fresh.add(book);
+        }
+        books = bookRepository.saveAll(fresh);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        bookRepository.deleteAllInBatch(books);
+    }
+
+    @Test
+    void walksToTheLastPageWithoutACursorToFollow() throws Exception {
+        String cursor = beforeFirstBook();
+        List<Long> seen = new ArrayList<>();
+        BookPageDto page;
+        do {
+            page = page("/api/books?size=200&cursor=" + cursor);
+            page.getItems().forEach(book -> seen.add(book.getId()));
+            cursor = page.getNextCursor();
+            assertThat(page.isHasMore()).isEqualTo(cursor != null);
+        } while (page.isHasMore());
+
+        assertThat(page.getItems()).hasSize(BOOK_COUNT - 400);
+        assertThat(page.getNextCursor()).isNull();
+        assertThat(seen).containsExactlyElementsOf(books.stream().map(Book::getId).toList());
+    }
+
+    @Test
+    void aFullLastPageStillReportsNoMore() throws Exception {
+        String cursor = BookPageCursor.encode(books.get(BOOK_COUNT - 3).getId());
+
+        BookPageDto page = page("/api/books?size=2&cursor=" + cursor);
+
+        assertThat(page.getItems()).extracting(BookDto::getId)
+                .containsExactly(books.get(BOOK_COUNT - 2).getId(), books.get(BOOK_COUNT - 1).getId());
+        assertThat(page.isHasMore()).isFalse();
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void clampsSizeToTheConfiguredBounds() throws Exception {
+        String cursor = beforeFirstBook();
+
+        BookPageDto tooSmall = page("/api/books?size=0&cursor=" + cursor);
+        assertThat(tooSmall.getItems()).extracting(BookDto::getId).containsExactly(books.get(0).getId());
+        assertThat(tooSmall.isHasMore()).isTrue();
+
+        BookPageDto tooLarge = page("/api/books?size=100000&cursor=" + cursor);
+        assertThat(tooLarge.getItems()).hasSize(500);
+        assertThat(tooLarge.isHasMore()).isTrue();
+        assertThat(tooLarge.getNextCursor()).isEqualTo(BookPageCursor.encode(books.get(499).getId()));
+
+        BookPageDto byDefault = page("/api/books?cursor=" + cursor);
+        assertThat(byDefault.getItems()).hasSize(50);
+    }
+
+    @Test
+    void rejectsBadOrTamperedCursorsWith400() throws Exception {
+        List<String> cursors = List.of(
+                "not-a-cursor!",
+                urlBase64("x:" + books.get(0).getId()),
+                urlBase64("b:abc"),
+                urlBase64("b:"));
+        for (String cursor : cursors) {
+            mockMvc.perform(get("/api/books").param("cursor", cursor))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.message").value("Invalid page cursor"));
+        }
+    }
+
+    @Test
+    void streamsEveryBookAsOneJsonObjectPerLine() throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/books/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(body).endsWith("\n");
+        List<BookDto> streamed = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            streamed.add(objectMapper.readValue(line, BookDto.class));
+        }
+        List<BookDto> expected = new ArrayList<>();
+        bookService.streamAllBooks(expected::add);
+        assertThat(streamed).isEqualTo(expected);
+        assertThat(streamed).extracting(BookDto::getId)
+                .containsAll(books.stream().map(Book::getId).toList());
+    }
+
+    private BookPageDto page(String uri) throws Exception {
+        String json = mockMvc.perform(get(uri))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(json, BookPageDto.class);
+    }
+
+    // Starts paging at this test's books even if another test left rows with lower ids behind
+    private String beforeFirstBook() {
+        return BookPageCursor.encode(books.get(0).getId() - 1);
+    }
+
+    private static String urlBase64(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
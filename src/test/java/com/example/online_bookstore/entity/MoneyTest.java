@@ -0,0 +1,80 @@
+package com.example.online_bookstore.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MoneyTest {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+    private static final Currency JPY = Currency.getInstance("JPY");
+
+    @Test
+    void ofRoundsHalfUpToTheCurrencyScale() {
+        assertThat(Money.of(new BigDecimal("10.005")).minorUnits()).isEqualTo(1001);
+        assertThat(Money.of(new BigDecimal("10.0049")).minorUnits()).isEqualTo(1000);
+        assertThat(Money.of(new BigDecimal("-10.005")).minorUnits()).isEqualTo(-1001);
+        assertThat(Money.of(new BigDecimal("12.5"), JPY).minorUnits()).isEqualTo(13);
+        assertThat(Money.of(new BigDecimal("0.004"))).isSameAs(Money.zero());
+    }
+
+    @Test
+    void ofRejectsAmountsBeyondALongOfMinorUnits() {
+        BigDecimal tooLarge = BigDecimal.valueOf(Long.MAX_VALUE).movePointLeft(2).add(new BigDecimal("0.01"));
+
+        assertThat(Money.of(BigDecimal.valueOf(Long.MAX_VALUE).movePointLeft(2)).minorUnits()).isEqualTo(Long.MAX_VALUE);
+        assertThatThrownBy(() -> Money.of(tooLarge)).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void plusAndTimesThrowOnOverflowInsteadOfWrapping() {
+        Money max = new Money(Long.MAX_VALUE, Money.STORE_CURRENCY);
+        Money min = new Money(Long.MIN_VALUE, Money.STORE_CURRENCY);
+        Money cent = new Money(1, Money.STORE_CURRENCY);
+
+        assertThatThrownBy(() -> max.plus(cent)).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> min.minus(cent)).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> max.times(2)).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> new Money(Long.MAX_VALUE / 3 + 1, Money.STORE_CURRENCY).times(3))
+                .isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void arithmeticStaysExactInMinorUnits() {
+        Money price = Money.of(new BigDecimal("19.99"));
+
+        assertThat(price.times(3)).isEqualTo(new Money(5997, Money.STORE_CURRENCY));
+        assertThat(price.plus(Money.of(new BigDecimal("0.01")))).isEqualTo(Money.of(new BigDecimal("20.00")));
+        assertThat(price.minus(price).isZero()).isTrue();
+        assertThat(price.plus(Money.zero())).isSameAs(price);
+        assertThat(price.times(1)).isSameAs(price);
+    }
+
+    @Test
+    void plusAndMinusRefuseToMixCurrencies() {
+        Money dollars = Money.of(new BigDecimal("5.00"));
+        Money euros = Money.of(new BigDecimal("5.00"), EUR);
+
+        assertThatThrownBy(() -> dollars.plus(euros))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Cannot combine USD with EUR");
+        assertThatThrownBy(() -> euros.minus(dollars))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Cannot combine EUR with USD");
+        // A zero in another currency is still a mismatch, not a no-op
+        assertThatThrownBy(() -> euros.plus(Money.zero())).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void toBigDecimalUsesTheCurrencyScale() {
+        assertThat(Money.of(new BigDecimal("7")).toBigDecimal()).isEqualTo(new BigDecimal("7.00"));
+        assertThat(Money.zero().toBigDecimal()).isEqualTo(new BigDecimal("0.00"));
+        assertThat(new Money(-5, Money.STORE_CURRENCY).toBigDecimal()).isEqualTo(new BigDecimal("-0.05"));
+        assertThat(Money.of(new BigDecimal("1200"), JPY).toBigDecimal().scale()).isZero();
+        assertThat(Money.of(new BigDecimal("19.99")).toString()).isEqualTo("19.99 USD");
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.online_bookstore.inventory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StripedStockCounterTest {
+
+    @Test
+    void leaseWaitingOnTheRowDoesNotBlockOtherTakers() throws Exception {
+        StripedStockCounter counter = new StripedStockCounter(4, 10);
+        CountDownLatch leasing = new CountDownLatch(1);
+        CountDownLatch rowLockReleased = new CountDownLatch(1);
+
+        CompletableFuture<StripedStockCounter.Reservation> blocked = CompletableFuture.supplyAsync(() -> {
+            try {
+                return counter.take(3, units -> {
+                    leasing.countDown();
+                    try {
+                        rowLockReleased.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return units;
+                });
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        assertThat(leasing.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // The holder of the row lock is another checkout taking from the same book
+        StripedStockCounter.Reservation other = CompletableFuture.supplyAsync(() -> {
+            try {
+                return counter.take(2, units -> units);
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }).get(5, TimeUnit.SECONDS);
+        rowLockReleased.countDown();
+
+        assertThat(other.getSurplus()).isEqualTo(8);
+        assertThat(blocked.get(5, TimeUnit.SECONDS).getSurplus()).isEqualTo(7);
+    }
+}
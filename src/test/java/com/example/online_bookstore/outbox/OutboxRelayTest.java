@@ -0,0 +1,207 @@
+package com.example.online_bookstore.outbox;
+
+import com.example.online_bookstore.dto.CheckoutRequest;
+import com.example.online_bookstore.dto.OrderDto;
+import com.example.online_bookstore.entity.Book;
+import com.example.online_bookstore.entity.Cart;
+import com.example.online_bookstore.entity.CartItem;
+import com.example.online_bookstore.entity.Money;
+import com.example.online_bookstore.entity.User;
+import com.example.online_bookstore.exception.BusinessLogicException;
+import com.example.online_bookstore.repo.BookRepository;
+import com.example.online_bookstore.repo.CartItemRepository;
+import com.example.online_bookstore.repo.CartRepository;
+import com.example.online_bookstore.repo.OrderRepository;
+import com.example.online_bookstore.repo.OutboxEventRepository;
+import com.example.online_bookstore.repo.UserRepository;
+import com.example.online_bookstore.security.UserPrincipal;
+import com.example.online_bookstore.service.OrderService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class OutboxRelayTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OutboxRelay relay;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private RecordingListener listener;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private User user;
+    private Cart cart;
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        User newUser = new User();
+        newUser.setName("Outbox Buyer");
+        newUser.setEmail("outbox-buyer@example.com");
+        newUser.setPassword("unused");
+        newUser.setRole("ADMIN");
+        user = userRepository.save(newUser);
+
+        Cart newCart = new Cart();
+        newCart.setUser(user);
+        cart = cartRepository.save(newCart);
+
+        Book newBook = new Book();
+        newBook.setTitle("Outbox Book");
+        newBook.setAuthor("Outbox Author");
+        newBook.setPrice(new BigDecimal("15.00"));
+        newBook.setStockQuantity(50);
+        book = bookRepository.save(newBook);
+
+        UserPrincipal principal = UserPrincipal.from(user);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                principal, null, List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))));
+        relay.drain();
+        listener.messages.clear();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        SecurityContextHolder.clearContext();
+        listener.failNext = false;
+        outboxEventRepository.deleteAll();
+        orderRepository.deleteAll();
+        cartItemRepository.deleteAll();
+        cartRepository.deleteAll();
+        userRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void orderEventsAreRelayedInOrderAfterCommit() {
+        addToCart(2);
+        OrderDto order = orderService.createOrder(checkoutRequest());
+        orderService.updateOrderStatus(order.getId(), "PROCESSING");
+
+        assertThat(outboxEventRepository.count()).isEqualTo(2);
+        assertThat(listener.messages).isEmpty();
+
+        relay.drain();
+
+        assertThat(listener.messages)
+                .extracting(OutboxMessage::getEventType)
+                .containsExactly(OutboxWriter.ORDER_CREATED, OutboxWriter.ORDER_STATUS_CHANGED);
+        assertThat(listener.messages).allMatch(message -> message.getAggregateId().equals(order.getId()));
+        assertThat(listener.messages.get(1).getPayload()).contains("\"status\":\"PROCESSING\"");
+        assertThat(outboxEventRepository.count()).isZero();
+    }
+
+    @Test
+    void illegalStatusChangeWritesNoEvent() {
+        addToCart(1);
+        OrderDto order = orderService.createOrder(checkoutRequest());
+
+        assertThatThrownBy(() -> orderService.updateOrderStatus(order.getId(), "DELIVERED"))
+                .isInstanceOf(BusinessLogicException.class)
+                .hasMessageContaining("from PENDING to DELIVERED");
+        orderService.updateOrderStatus(order.getId(), "pending");
+
+        assertThat(outboxEventRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void failedCheckoutWritesNoEvent() {
+        assertThatThrownBy(() -> orderService.createOrder(checkoutRequest()))
+                .isInstanceOf(BusinessLogicException.class);
+
+        assertThat(outboxEventRepository.count()).isZero();
+    }
+
+    @Test
+    void batchIsRedeliveredWhenTheSinkFails() {
+        addToCart(1);
+        orderService.createOrder(checkoutRequest());
+
+        listener.failNext = true;
+        relay.drain();
+        assertThat(outboxEventRepository.count()).isEqualTo(1);
+
+        relay.drain();
+        assertThat(listener.messages)
+                .extracting(OutboxMessage::getEventType)
+                .containsExactly(OutboxWriter.ORDER_CREATED, OutboxWriter.ORDER_CREATED);
+        assertThat(outboxEventRepository.count()).isZero();
+    }
+
+    private void addToCart(int quantity) {
+        CartItem item = new CartItem();
+        item.setCart(cart);
+        item.setBook(book);
+        item.setQuantity(quantity);
+        item.setPrice(Money.of(book.getPrice()));
+        cartItemRepository.save(item);
+    }
+
+    private static CheckoutRequest checkoutRequest() {
+        CheckoutRequest request = new CheckoutRequest();
+        request.setShippingAddress("1 Outbox Lane");
+        request.setPaymentMethod("CARD");
+        return request;
+    }
+
+    static class RecordingListener {
+        final List<OutboxMessage> messages = new CopyOnWriteArrayList<>();
+        volatile boolean failNext;
+
+        @EventListener
+        public void on(OutboxMessage message) {
+            // Recorded before failing, as a sink that crashed after delivering would have done
+            messages.add(message);
+            if (failNext) {
+                failNext = false;
+                throw new IllegalStateException("Sink unavailable");
+            }
+        }
+    }
+
+    @TestConfiguration
+    static class ListenerConfig {
+        @Bean
+        RecordingListener recordingListener() {
+            return new RecordingListener();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.online_bookstore.reactive;
+
+import com.example.online_bookstore.dto.BookDto;
+import com.example.online_bookstore.dto.BookPageDto;
+import com.example.online_bookstore.entity.Book;
+import com.example.online_bookstore.repo.BookRepository;
+import com.example.online_bookstore.service.BookService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "bookstore.reactive.enabled=true",
+        "bookstore.reactive.port=0",
+        "bookstore.reactive.r2dbc.url=r2dbc:h2:mem:///bookstore?options=DB_CLOSE_DELAY=-1",
+        "bookstore.reactive.r2dbc.username=sa"
+})
+@ActiveProfiles("test")
+class ReactiveCatalogServerTest {
+
+    private static final String CATEGORY = "Reactive Reads";
+
+    @Autowired
+    private ReactiveCatalogServer server;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookService bookService;
+
+    private WebTestClient client;
+    private final List<Book> books = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        client = WebTestClient.bindToServer().baseUrl("http://localhost:" + server.getPort()).build();
+        for (int i = 0; i < 5; i++) {
+            Book book = new Book();
+            book.setTitle("Reactive Book " + i);
+            book.setAuthor("Reactive Author");
+            book.setCategory(CATEGORY);
+            book.setPrice(new BigDecimal("11.50"));
+            book.setStockQuantity(10 + i);
+            books.add(bookRepository.save(book));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.deleteAll(books);
+    }
+
+    @Test
+    void pagesMatchTheServletApiAndShareCursors() {
+        BookPageDto expectedFirst = bookService.getBookPage(null, 2);
+        BookPageDto first = client.get().uri("/api/books?size=2").exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists("ETag")
+                .expectBody(BookPageDto.class).returnResult().getResponseBody();
+        assertThat(first).isEqualTo(expectedFirst);
+
+        BookPageDto expectedSecond = bookService.getBookPage(first.getNextCursor(), 2);
+        BookPageDto second = client.get().uri("/api/books?size=2&cursor={cursor}", first.getNextCursor()).exchange()
+                .expectStatus().isOk()
+                .expectBody(BookPageDto.class).returnResult().getResponseBody();
+        assertThat(second).isEqualTo(expectedSecond);
+    }
+
+    @Test
+    void servesSingleBooksCategoriesAndNotFound() {
+        Book book = books.get(0);
+        client.get().uri("/api/books/{id}", book.getId()).exchange()
+                .expectStatus().isOk()
+                .expectBody(BookDto.class).isEqualTo(bookService.getBookById(book.getId()));
+
+        client.get().uri("/api/books/category/{category}", CATEGORY).exchange()
+                .expectStatus().isOk()
+                .expectBodyList(BookDto.class).isEqualTo(bookService.getBooksByCategory(CATEGORY));
+
+        client.get().uri("/api/books/{id}", Long.MAX_VALUE).exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.message").isEqualTo("Book not found with id: " + Long.MAX_VALUE);
+
+        client.get().uri("/api/books?cursor=not-a-cursor").exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void streamsEveryBookAsNdjson() {
+        List<BookDto> streamed = client.get().uri("/api/books/stream")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(BookDto.class).getResponseBody()
+                .collectList().block();
+
+        List<BookDto> expected = new ArrayList<>();
+        bookService.streamAllBooks(expected::add);
+        assertThat(streamed).isEqualTo(expected);
+    }
+}
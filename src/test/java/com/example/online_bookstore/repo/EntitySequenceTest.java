@@ -0,0 +1,66 @@
+package com.example.online_bookstore.repo;
+
+import com.example.online_bookstore.entity.Book;
+import com.example.online_bookstore.entity.CartItem;
+import com.example.online_bookstore.entity.OutboxEvent;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class EntitySequenceTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Test
+    void readsTheSequenceFromEachEntitysGenerator() {
+        assertThat(EntitySequence.of(entityManagerFactory, Book.class))
+                .isEqualTo(new EntitySequence("books_seq", "books", 50));
+        assertThat(EntitySequence.of(entityManagerFactory, CartItem.class))
+                .isEqualTo(new EntitySequence("cart_items_seq", "cart_items", 50));
+        assertThat(EntitySequence.of(entityManagerFactory, OutboxEvent.class).allocationSize()).isEqualTo(1);
+    }
+
+    @Test
+    void jdbcIdsAndHibernateIdsComeFromDisjointBlocks() {
+        PooledLoSequence jdbcIds = new PooledLoSequence(jdbcTemplate, entityManagerFactory, Book.class);
+        long first = jdbcIds.next();
+        Book saved = bookRepository.save(book());
+        try {
+            long second = jdbcIds.next();
+
+            assertThat(second).isEqualTo(first + 1);
+            // Hibernate's block, whether read before or after ours, never overlaps the 50 ids we may hand out
+            assertThat(saved.getId()).satisfiesAnyOf(
+                    id -> assertThat(id).isLessThan(first),
+                    id -> assertThat(id).isGreaterThanOrEqualTo(first + 50));
+        } finally {
+            bookRepository.delete(saved);
+        }
+    }
+
+    private static Book book() {
+        Book book = new Book();
+        book.setTitle("Sequenced Book");
+        book.setAuthor("Sequence Author");
+        book.setCategory("Sequences");
+        book.setPrice(new BigDecimal("3.00"));
+        book.setStockQuantity(1);
+        return book;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.online_bookstore.repo;
+
+import com.example.online_bookstore.entity.Order;
+import com.example.online_bookstore.entity.OrderStatus;
+import com.example.online_bookstore.entity.User;
+import com.example.online_bookstore.service.OrderService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "bookstore.orders.status-mapping=completed = delivered, CANCELED=CANCELLED")
+@ActiveProfiles("test")
+class OrderStatusNormalizerTest {
+
+    @Autowired
+    private OrderStatusNormalizer normalizer;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        // Rows with a status the converter refuses cannot be loaded, so they are deleted with SQL
+        jdbcTemplate.update("delete from orders");
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void legacyStatusesAreRewrittenToKnownNames() {
+        User user = buyer();
+        Long pending = legacyOrder(user, " pending");
+        Long shipped = legacyOrder(user, "Shipped");
+        Long completed = legacyOrder(user, "COMPLETED");
+        Long delivered = legacyOrder(user, "DELIVERED");
+
+        assertThat(normalizer.normalize()).isEqualTo(3);
+
+        assertThat(jdbcTemplate.queryForList("select status from orders order by id", String.class))
+                .containsExactly("PENDING", "SHIPPED", "DELIVERED", "DELIVERED");
+        assertThat(orderService.getAllOrders(0, 10, "PENDING", null, null).getItems())
+                .singleElement()
+                .satisfies(order -> assertThat(order.getId()).isEqualTo(pending));
+        assertThat(orderRepository.findById(shipped).orElseThrow().getStatus()).isEqualTo(OrderStatus.SHIPPED);
+        assertThat(orderRepository.findById(completed).orElseThrow().getStatus()).isEqualTo(OrderStatus.DELIVERED);
+        assertThat(orderRepository.findById(delivered)).isPresent();
+        assertThat(normalizer.normalize()).isZero();
+        assertThat(jdbcTemplate.queryForList("select legacy_status from orders order by id", String.class))
+                .containsExactly(null, null, "COMPLETED", null);
+    }
+
+    @Test
+    void unmappedStatusesStopTheRewriteAndAreNamed() {
+        User user = buyer();
+        legacyOrder(user, "pending");
+        legacyOrder(user, "Canceled");
+        legacyOrder(user, "RETURNED");
+        legacyOrder(user, "refunded");
+
+        assertThatThrownBy(() -> normalizer.normalize())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("[REFUNDED, RETURNED]");
+        assertThat(jdbcTemplate.queryForList("select status from orders order by id", String.class))
+                .containsExactly("pending", "Canceled", "RETURNED", "refunded");
+    }
+
+    private User buyer() {
+        User user = new User();
+        user.setName("Legacy Buyer");
+        user.setEmail("legacy-buyer@example.com");
+        user.setPassword("unused");
+        return userRepository.save(user);
+    }
+
+    private Long legacyOrder(User user, String status) {
+        Order order = new Order();
+        order.setUser(user);
+        order.setOrderDate(LocalDateTime.now());
+        order.setTotalAmount(BigDecimal.ZERO);
+        Long id = orderRepository.save(order).getId();
+        jdbcTemplate.update("update orders set status = ? where id = ?", status, id);
+        return id;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.online_bookstore.search;
+
+import com.example.online_bookstore.dto.BookDto;
+import com.example.online_bookstore.event.BookChangedEvent;
+import com.example.online_bookstore.event.BookStockChangedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+class BookFacetIndexTest {
+
+    private final BookFacetIndex index = new BookFacetIndex();
+
+    @Test
+    void stockChangesDuringRebuildAreReadBackNotReplayed() {
+        List<Set<Long>> reloaded = new ArrayList<>();
+        index.rebuild(consumer -> {
+            // The stream already sees the committed reservation that takes stock from 2 to 1
+            consumer.accept(book(1L, "Fiction", "12.00", 1));
+            index.onStockChanged(new BookStockChangedEvent(1L, -1));
+            consumer.accept(book(2L, "Poetry", "8.00", 3));
+        }, ids -> {
+            reloaded.add(Set.copyOf(ids));
+            return Map.of(1L, book(1L, "Fiction", "12.00", 1));
+        });
+
+        assertThat(reloaded).containsExactly(Set.of(1L));
+        BookFacetIndex.Result result = index.query(null, null, true, 0, 10);
+        assertThat(result.getBookIds()).containsExactly(1L, 2L);
+        assertThat(result.getAvailability()).containsEntry(BookFacetIndex.IN_STOCK, 2L);
+    }
+
+    @Test
+    void filtersCombineWithAndAcrossFacetsAndOrWithinOne() {
+        rebuildWithCatalog();
+
+        BookFacetIndex.Result result = index.query(List.of("Fiction", "Poetry"), List.of("0-10"), null, 0, 10);
+        assertThat(result.getBookIds()).containsExactly(1L, 4L);
+        assertThat(result.getTotal()).isEqualTo(2);
+
+        assertThat(index.query(List.of("Fiction", "Poetry"), List.of("0-10", "10-25"), true, 0, 10).getBookIds())
+                .containsExactly(1L, 3L, 4L);
+        assertThat(index.query(List.of("Fiction"), null, true, 0, 10).getBookIds()).containsExactly(1L);
+        assertThat(index.query(List.of("Fiction"), null, false, 0, 10).getBookIds()).containsExactly(2L);
+        assertThat(index.query(List.of("Cookery"), null, null, 0, 10).getBookIds()).isEmpty();
+        assertThat(index.query(List.of(), null, null, 0, 10).getTotal()).isEqualTo(5);
+    }
+
+    @Test
+    void eachFacetIsCountedUnderTheOtherFacetsFilters() {
+        rebuildWithCatalog();
+
+        BookFacetIndex.Result result = index.query(List.of("Fiction", "Poetry"), List.of("0-10"), null, 0, 10);
+
+        // Categories ignore the category filter, prices the price filter, availability its own
+        assertThat(result.getCategories()).containsExactly(entry("Fiction", 1L), entry("Poetry", 1L));
+        assertThat(result.getPriceRanges()).containsExactly(
+                entry("0-10", 2L), entry("10-25", 1L), entry("25-50", 1L), entry("50-100", 0L), entry("100+", 0L));
+        assertThat(result.getAvailability()).containsExactly(
+                entry(BookFacetIndex.IN_STOCK, 2L), entry(BookFacetIndex.OUT_OF_STOCK, 0L));
+
+        // Unfiltered, categories come largest first and then by name
+        assertThat(index.query(null, null, null, 0, 10).getCategories())
+                .containsExactly(entry("Fiction", 2L), entry("Poetry", 2L), entry("History", 1L));
+    }
+
+    @Test
+    void offsetAndLimitPageThroughMatchesInOrder() {
+        rebuildWithCatalog();
+
+        assertThat(index.query(null, null, null, 0, 2).getBookIds()).containsExactly(1L, 2L);
+        assertThat(index.query(null, null, null, 2, 2).getBookIds()).containsExactly(3L, 4L);
+        assertThat(index.query(null, null, null, 4, 2).getBookIds()).containsExactly(5L);
+        BookFacetIndex.Result pastTheEnd = index.query(null, null, null, 6, 2);
+        assertThat(pastTheEnd.getBookIds()).isEmpty();
+        assertThat(pastTheEnd.getTotal()).isEqualTo(5);
+    }
+
+    @Test
+    void deletedAndMovedBooksLeaveTheirFacets() {
+        rebuildWithCatalog();
+
+        index.onBookChanged(new BookChangedEvent(5L, book(5L, "History", "60.00", 4), null));
+        index.onBookChanged(new BookChangedEvent(3L, book(3L, "Poetry", "12.00", 2), book(3L, "Fiction", "12.00", 2)));
+        index.onStockChanged(new BookStockChangedEvent(4L, -1));
+
+        BookFacetIndex.Result result = index.query(null, null, null, 0, 10);
+        assertThat(result.getBookIds()).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(result.getCategories()).containsExactly(entry("Fiction", 3L), entry("Poetry", 1L));
+        assertThat(result.getPriceRanges()).containsEntry("50-100", 0L);
+        assertThat(result.getAvailability()).containsExactly(
+                entry(BookFacetIndex.IN_STOCK, 2L), entry(BookFacetIndex.OUT_OF_STOCK, 2L));
+        assertThat(index.query(List.of("History"), null, null, 0, 10).getBookIds()).isEmpty();
+        assertThat(index.query(List.of("Poetry"), null, true, 0, 10).getBookIds()).isEmpty();
+    }
+
+    private void rebuildWithCatalog() {
+        List<BookDto> catalog = List.of(
+                book(1L, "Fiction", "5.00", 3),
+                book(2L, "Fiction", "30.00", 0),
+                book(3L, "Poetry", "12.00", 2),
+                book(4L, "Poetry", "8.00", 1),
+                book(5L, "History", "60.00", 4));
+        index.rebuild(catalog::forEach, ids -> Map.of());
+    }
+
+    static BookDto book(Long id, String category, String price, int stock) {
+        BookDto book = new BookDto();
+        book.setId(id);
+        book.setTitle("Book " + id);
+        book.setAuthor("Facet Author");
+        book.setCategory(category);
+        book.setPrice(new BigDecimal(price));
+        book.setStockQuantity(stock);
+        return book;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.online_bookstore.search;
+
+import com.example.online_bookstore.dto.BookDto;
+import com.example.online_bookstore.event.BookChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookSearchIndexTest {
+
+    private final BookSearchIndex index = new BookSearchIndex();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(index, "maxResults", 100);
+    }
+
+    @Test
+    void ranksWithBm25() {
+        index.rebuild(books -> List.of(
+                book(1L, "Cooking Basics", "Ann Lee", "a gentle guide to rust removal"),
+                book(2L, "Rust in Action", "Tim McNamara", "systems programming"),
+                book(3L, "Programming Rust", "Jim Blandy", "fast, safe systems programming with rust"),
+                book(4L, "Gardening", "Rust Cohle", null)
+        ).forEach(books));
+
+        // Title and repeated mentions rank first, a single mention in a description last
+        assertThat(index.search("rust")).hasSize(4).startsWith(3L).endsWith(1L);
+        // Length normalization: the same weighted match counts for more in a shorter record
+        assertThat(index.search("rust").indexOf(4L)).isLessThan(index.search("rust").indexOf(2L));
+        // Every term must match, in any field
+        assertThat(index.search("systems rust")).containsExactlyInAnyOrder(3L, 2L);
+        assertThat(index.search("rust gardening")).containsExactly(4L);
+        assertThat(index.search("rust baking")).isEmpty();
+    }
+
+    @Test
+    void expandsOnlyTheLastTermAsPrefix() {
+        index.rebuild(books -> List.of(
+                book(1L, "Programming Pearls", "Jon Bentley", null),
+                book(2L, "The Pragmatic Programmer", "Andrew Hunt", null),
+                book(3L, "Progress and Poverty", "Henry George", null)
+        ).forEach(books));
+
+        assertThat(index.search("prog")).containsExactlyInAnyOrder(1L, 2L, 3L);
+        assertThat(index.search("programm")).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(index.search("pearls prog")).containsExactly(1L);
+        assertThat(index.search("prog pearls")).isEmpty();
+    }
+
+    @Test
+    void tombstonedBooksLeaveResultsAndDocumentFrequencies() {
+        // Equal length descriptions: doc 1 leans on java, doc 2 on rust
+        index.onBookChanged(created(book(1L, "One", "A", "java java rust")));
+        index.onBookChanged(created(book(2L, "Two", "B", "java rust rust")));
+        for (long id = 3; id <= 5; id++) {
+            index.onBookChanged(created(book(id, "Filler", "C", "java")));
+        }
+        assertThat(index.search("java rust")).containsExactly(2L, 1L);
+
+        // Rust books that come and go must not make rust look common
+        for (long id = 100; id < 110; id++) {
+            BookDto gone = book(id, "Gone", "D", "rust");
+            index.onBookChanged(created(gone));
+            index.onBookChanged(new BookChangedEvent(id, gone, null));
+        }
+        assertThat(index.search("gone")).isEmpty();
+        assertThat(index.search("java rust")).containsExactly(2L, 1L);
+
+        BookDto before = book(1L, "One", "A", "java java rust");
+        index.onBookChanged(new BookChangedEvent(1L, before, book(1L, "Renamed", "A", "java java rust")));
+        assertThat(index.search("one")).isEmpty();
+        assertThat(index.search("renamed")).containsExactly(1L);
+    }
+
+    @Test
+    void compactionReusesSlotsOfReindexedBooks() {
+        BookDto current = book(1L, "Edition 0", "Churn Author", null);
+        index.onBookChanged(created(current));
+        index.onBookChanged(created(book(2L, "Steady", "Churn Author", null)));
+        for (int edition = 1; edition <= 1000; edition++) {
+            BookDto next = book(1L, "Edition " + edition, "Churn Author", null);
+            index.onBookChanged(new BookChangedEvent(1L, current, next));
+            current = next;
+        }
+
+        assertThat(index.slots()).isLessThan(100);
+        assertThat(index.search("edition 1000")).containsExactly(1L);
+        assertThat(index.search("edition 999")).isEmpty();
+        assertThat(index.search("churn author")).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    private static BookChangedEvent created(BookDto book) {
+        return new BookChangedEvent(book.getId(), null, book);
+    }
+
+    private static BookDto book(Long id, String title, String author, String description) {
+        BookDto book = new BookDto();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setDescription(description);
+        book.setPrice(new BigDecimal("10.00"));
+        book.setStockQuantity(1);
+        return book;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.online_bookstore.search;
+
+import com.example.online_bookstore.dto.BookDto;
+import com.example.online_bookstore.dto.BookSuggestionDto;
+import com.example.online_bookstore.event.BookChangedEvent;
+import com.example.online_bookstore.event.BookStockChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookSuggesterTest {
+
+    private final BookSuggester suggester = new BookSuggester();
+
+    private final List<BookDto> catalog = List.of(
+            book(1L, "Harry Potter and the Philosopher's Stone", "J. K. Rowling"),
+            book(2L, "Harry Potter and the Chamber of Secrets", "J. K. Rowling"),
+            book(3L, "The Hobbit", "J. R. R. Tolkien"),
+            book(4L, "The Lord of the Rings", "J. R. R. Tolkien"),
+            book(5L, "Harvest of Stars", "Poul Anderson"));
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(suggester, "maxResults", 10);
+        ReflectionTestUtils.setField(suggester, "maxEdits", 2);
+        suggester.rebuild(books -> catalog.forEach(books), () -> Map.of(2L, 40L, 1L, 10L, 4L, 5L));
+    }
+
+    @Test
+    void prefixesOfTitlesTitleWordsAndAuthorsRankByPopularity() {
+        assertThat(ids("har")).containsExactly(2L, 1L, 5L);
+        assertThat(ids("Harry Potter and the c")).startsWith(2L);
+        assertThat(ids("potter")).containsExactly(2L, 1L);
+        assertThat(ids("rings")).containsExactly(4L);
+        // Exact matches first, then typo matches fill the rest ("j k r" is one edit away)
+        assertThat(ids("j r r")).startsWith(4L, 3L).hasSize(4);
+        assertThat(ids("har", 2)).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void toleratesTypos() {
+        // One edit below six characters, two from there on; exact matches come first
+        assertThat(ids("hobit")).containsExactly(3L);
+        assertThat(ids("hary pot")).containsExactly(2L, 1L);
+        assertThat(ids("lord of the rnigs")).containsExactly(4L);
+        assertThat(ids("lrod of")).containsExactly(4L);
+        assertThat(ids("hx")).isEmpty();
+        assertThat(ids("zzzzzz")).isEmpty();
+    }
+
+    @Test
+    void checkoutsRaisePopularity() {
+        suggester.onStockChanged(new BookStockChangedEvent(5L, -50));
+        suggester.onStockChanged(new BookStockChangedEvent(1L, 3));
+
+        assertThat(ids("har")).containsExactly(5L, 2L, 1L);
+        assertThat(ids("potter")).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void renamesAndDeletesLeaveNoStaleNodes() {
+        int nodes = suggester.nodeCount();
+        BookDto before = catalog.get(2);
+        BookDto renamed = book(3L, "The Hobbit, or There and Back Again", "J. R. R. Tolkien");
+        suggester.onBookChanged(new BookChangedEvent(3L, before, renamed));
+        assertThat(ids("there and back")).containsExactly(3L);
+        suggester.onBookChanged(new BookChangedEvent(3L, renamed, before));
+        assertThat(ids("there and back")).isEmpty();
+        assertThat(suggester.nodeCount()).isEqualTo(nodes);
+
+        catalog.forEach(book -> suggester.onBookChanged(new BookChangedEvent(book.getId(), book, null)));
+        assertThat(ids("har")).isEmpty();
+        assertThat(suggester.nodeCount()).isEqualTo(1);
+    }
+
+    private List<Long> ids(String prefix) {
+        return ids(prefix, 10);
+    }
+
+    private List<Long> ids(String prefix, int limit) {
+        return suggester.suggest(prefix, limit).stream().map(BookSuggestionDto::getBookId).toList();
+    }
+
+    private static BookDto book(Long id, String title, String author) {
+        BookDto book = new BookDto();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        return book;
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.online_bookstore.security;
+
+import com.example.online_bookstore.SqlStatementCapture;
+import com.example.online_bookstore.entity.Book;
+import com.example.online_bookstore.entity.Cart;
+import com.example.online_bookstore.entity.CartItem;
+import com.example.online_bookstore.entity.Money;
+import com.example.online_bookstore.entity.User;
+import com.example.online_bookstore.repo.BookRepository;
+import com.example.online_bookstore.repo.CartItemRepository;
+import com.example.online_bookstore.repo.CartRepository;
+import com.example.online_bookstore.repo.OrderRepository;
+import com.example.online_bookstore.repo.UserRepository;
+import com.example.online_bookstore.service.UserService;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class JwtPrincipalTest {
+
+    private static final Pattern USERS_LOOKUP = Pattern.compile("\\bfrom users\\b", Pattern.CASE_INSENSITIVE);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TokenRevocationRegistry revocationRegistry;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private User user;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        User newUser = new User();
+        newUser.setName("Token Reader");
+        newUser.setEmail("token-reader@example.com");
+        newUser.setPassword(passwordEncoder.encode("secret-1"));
+        user = userRepository.save(newUser);
+
+        Cart cart = new Cart();
+        cart.setUser(user);
+        cart = cartRepository.save(cart);
+
+        Book book = new Book();
+        book.setTitle("Claims and Principals");
+        book.setAuthor("Token Author");
+        book.setPrice(new BigDecimal("20.00"));
+        book.setStockQuantity(10);
+        book = bookRepository.save(book);
+
+        CartItem item = new CartItem();
+        item.setCart(cart);
+        item.setBook(book);
+        item.setQuantity(1);
+        item.setPrice(Money.of(book.getPrice()));
+        cartItemRepository.save(item);
+
+        UserPrincipal principal = UserPrincipal.from(user);
+        token = tokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    @AfterEach
+    void cleanUp() {
+        orderRepository.deleteAll();
+        cartItemRepository.deleteAll();
+        cartRepository.deleteAll();
+        userRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void cartAndOrderEndpointsDoNotLookUpTheUser() throws Exception {
+        assertNoUsersLookup(get("/api/cart"));
+        assertNoUsersLookup(post("/api/orders/checkout")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"shippingAddress\":\"1 Claim Street\",\"paymentMethod\":\"CARD\"}"));
+        assertNoUsersLookup(get("/api/orders"));
+    }
+
+    @Test
+    void tokensWithoutClaimsStillAuthenticate() throws Exception {
+        Date now = new Date();
+        String legacyToken = Jwts.builder()
+                .setSubject(user.getEmail())
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + 60_000))
+                .signWith(tokenProvider.getSigningKey())
+                .compact();
+
+        mockMvc.perform(get("/api/cart").header("Authorization", "Bearer " + legacyToken))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void passwordChangeRevokesEarlierTokens() throws Exception {
+        mockMvc.perform(get("/api/cart").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        // Tokens carry second precision, so make sure the old one was issued a full second earlier
+        Thread.sleep(1000);
+        userService.changePassword(user.getId(), "secret-1", "secret-2");
+
+        mockMvc.perform(get("/api/cart").header("Authorization", "Bearer " + token))
+                .andExpect(status().is4xxClientError());
+    }
+
+    @Test
+    void revocationIsReadBackFromTheUserRow() throws Exception {
+        Date issuedAt = tokenProvider.parseToken(token).getIssuedAt();
+        Thread.sleep(1000);
+        userService.changePassword(user.getId(), "secret-1", "secret-2");
+
+        // A restarted or second instance starts without the in-memory cutoff
+        TokenRevocationRegistry otherInstance = new TokenRevocationRegistry(userRepository, 60_000);
+        assertThat(otherInstance.isRevoked(user.getId(), issuedAt)).isFalse();
+        otherInstance.refresh();
+        assertThat(otherInstance.isRevoked(user.getId(), issuedAt)).isTrue();
+        assertThat(otherInstance.isRevoked(user.getId(), new Date())).isFalse();
+    }
+
+    @Test
+    void demotedAdminsOldTokenIsRefused() throws Exception {
+        User admin = new User();
+        admin.setName("Former Admin");
+        admin.setEmail("former-admin@example.com");
+        admin.setPassword("unused");
+        admin.setRole("ADMIN");
+        admin = userRepository.save(admin);
+        String adminToken = tokenProvider.generateToken(UserPrincipal.from(admin));
+        mockMvc.perform(get("/api/admin/cache/stats").header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk());
+
+        Thread.sleep(1000);
+        User demoted = userRepository.findById(admin.getId()).orElseThrow();
+        demoted.setRole("USER");
+        userRepository.save(demoted);
+        revocationRegistry.refresh();
+
+        mockMvc.perform(get("/api/admin/cache/stats").header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().is4xxClientError());
+        mockMvc.perform(get("/api/cart").header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().is4xxClientError());
+    }
+
+    @Test
+    void deletedUsersTokenIsRefused() throws Exception {
+        User leaving = new User();
+        leaving.setName("Leaving User");
+        leaving.setEmail("leaving-user@example.com");
+        leaving.setPassword("unused");
+        leaving = userRepository.save(leaving);
+        String leavingToken = tokenProvider.generateToken(UserPrincipal.from(leaving));
+        // Any authenticated endpoint that does not need a cart
+        mockMvc.perform(get("/api/orders").header("Authorization", "Bearer " + leavingToken))
+                .andExpect(status().isOk());
+
+        userRepository.delete(leaving);
+        revocationRegistry.refresh();
+
+        mockMvc.perform(get("/api/orders").header("Authorization", "Bearer " + leavingToken))
+                .andExpect(status().is4xxClientError());
+    }
+
+    private void assertNoUsersLookup(MockHttpServletRequestBuilder request) throws Exception {
+        SqlStatementCapture.clear();
+        mockMvc.perform(request.header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+        assertThat(SqlStatementCapture.statements()).noneMatch(sql -> USERS_LOOKUP.matcher(sql).find());
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.online_bookstore.service;
+
+import com.example.online_bookstore.dto.AuthRequest;
+import com.example.online_bookstore.dto.AuthResponse;
+import com.example.online_bookstore.entity.User;
+import com.example.online_bookstore.repo.UserRepository;
+import com.example.online_bookstore.security.PasswordHashingExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "bookstore.auth.hashing.threads=1",
+        "bookstore.auth.hashing.queue-capacity=1",
+        "bookstore.auth.hashing.retry-after-seconds=7"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AuthServiceTest {
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private PasswordHashingExecutor hashingExecutor;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @AfterEach
+    void cleanUp() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void loginRehashesAnOutdatedHash() {
+        // Stored with a lower BCrypt cost than the configured one
+        User user = new User();
+        user.setName("Old Hash");
+        user.setEmail("old-hash@example.com");
+        user.setPassword("{bcrypt}" + new BCryptPasswordEncoder(4).encode("secret-password"));
+        user.setRole("USER");
+        String oldHash = userRepository.save(user).getPassword();
+
+        AuthResponse response = authService.authenticateUser(login("old-hash@example.com", "secret-password")).join();
+
+        assertThat(response.getEmail()).isEqualTo("old-hash@example.com");
+        String newHash = userRepository.findByEmail("old-hash@example.com").orElseThrow().getPassword();
+        assertThat(newHash).isNotEqualTo(oldHash).startsWith("{bcrypt}$2a$10$");
+        assertThat(passwordEncoder.matches("secret-password", newHash)).isTrue();
+        assertThat(passwordEncoder.upgradeEncoding(newHash)).isFalse();
+
+        // The next login has nothing to upgrade
+        authService.authenticateUser(login("old-hash@example.com", "secret-password")).join();
+        assertThat(userRepository.findByEmail("old-hash@example.com").orElseThrow().getPassword()).isEqualTo(newHash);
+    }
+
+    @Test
+    void fullHashingPoolAnswers503WithRetryAfter() throws Exception {
+        // Occupy the single hashing thread, then the single queue slot
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<CompletableFuture<Boolean>> blockers = new ArrayList<>();
+        blockers.add(hashingExecutor.submit(() -> {
+            running.countDown();
+            return await(release);
+        }));
+        assertThat(running.await(10, TimeUnit.SECONDS)).isTrue();
+        blockers.add(hashingExecutor.submit(() -> await(release)));
+        try {
+            mockMvc.perform(post("/api/auth/login")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"email\":\"nobody@example.com\",\"password\":\"whatever\"}"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "7"));
+        } finally {
+            release.countDown();
+        }
+        blockers.forEach(CompletableFuture::join);
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static AuthRequest login(String email, String password) {
+        AuthRequest request = new AuthRequest();
+        request.setEmail(email);
+        request.setPassword(password);
+        return request;
+    }
+}
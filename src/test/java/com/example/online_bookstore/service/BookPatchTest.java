@@ -0,0 +1,105 @@
+package com.example.online_bookstore.service;
+
+import com.example.online_bookstore.SqlStatementCapture;
+import com.example.online_bookstore.dto.BookDto;
+import com.example.online_bookstore.entity.Book;
+import com.example.online_bookstore.event.BookChangedEvent;
+import com.example.online_bookstore.exception.BusinessLogicException;
+import com.example.online_bookstore.repo.BookRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@RecordApplicationEvents
+class BookPatchTest {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        book = new Book();
+        book.setTitle("Patchable");
+        book.setAuthor("Merge Author");
+        book.setDescription("A long description that a price change should not rewrite");
+        book.setPrice(new BigDecimal("20.00"));
+        book.setIsbn("978-0-00-000000-1");
+        book.setStockQuantity(7);
+        book.setCategory("Reference");
+        book = bookRepository.save(book);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void priceChangeWritesOnlyThePriceColumn() throws Exception {
+        bookService.getBookById(book.getId());
+        events.clear();
+        SqlStatementCapture.clear();
+
+        BookDto patched = bookService.patchBook(book.getId(), objectMapper.readTree("{\"price\": 17.5}"));
+
+        List<String> updates = SqlStatementCapture.statements().stream()
+                .map(sql -> sql.toLowerCase(Locale.ROOT))
+                .filter(sql -> sql.startsWith("update books"))
+                .toList();
+        assertThat(updates).hasSize(1);
+        assertThat(updates.get(0)).contains("price").doesNotContain("description").doesNotContain("title");
+
+        assertThat(patched.getVersion()).isEqualTo(book.getVersion() + 1);
+        assertThat(bookService.getBookById(book.getId()).getPrice()).isEqualByComparingTo("17.50");
+        assertThat(events.stream(BookChangedEvent.class))
+                .singleElement()
+                .satisfies(event -> assertThat(event.getChangedFields()).containsExactly("price"));
+    }
+
+    @Test
+    void mergeSemantics() throws Exception {
+        BookDto cleared = bookService.patchBook(book.getId(),
+                objectMapper.readTree("{\"description\": null, \"category\": \"Essays\", \"title\": \"Patchable\"}"));
+        assertThat(cleared.getDescription()).isNull();
+        assertThat(cleared.getCategory()).isEqualTo("Essays");
+        assertThat(cleared.getPrice()).isEqualByComparingTo("20.00");
+
+        events.clear();
+        BookDto unchanged = bookService.patchBook(book.getId(), objectMapper.readTree("{\"price\": 20}"));
+        assertThat(unchanged.getVersion()).isEqualTo(cleared.getVersion());
+        assertThat(events.stream(BookChangedEvent.class)).isEmpty();
+
+        assertThatThrownBy(() -> bookService.patchBook(book.getId(), objectMapper.readTree("{\"title\": null}")))
+                .isInstanceOf(BusinessLogicException.class)
+                .hasMessageContaining("Title is required");
+        assertThatThrownBy(() -> bookService.patchBook(book.getId(), objectMapper.readTree("{\"version\": 99, \"stockQuantity\": 1}")))
+                .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+    }
+}
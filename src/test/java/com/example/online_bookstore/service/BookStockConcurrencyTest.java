@@ -0,0 +1,109 @@
+package com.example.online_bookstore.service;
+
+import com.example.online_bookstore.entity.Book;
+import com.example.online_bookstore.exception.BusinessLogicException;
+import com.example.online_bookstore.inventory.StripedInventory;
+import com.example.online_bookstore.repo.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class BookStockConcurrencyTest {
+
+    private static final int THREADS = 32;
+    private static final int ATTEMPTS_PER_THREAD = 25;
+    private static final int INITIAL_STOCK = 100;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private StripedInventory stripedInventory;
+
+    @AfterEach
+    void cleanUp() {
+        stripedInventory.returnAllLeases();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        Long bookId = saveHotBook();
+
+        runCheckouts(bookId);
+
+        Book reloaded = bookRepository.findById(bookId).orElseThrow();
+        assertThat(reloaded.getStockQuantity()).isZero();
+        assertThat(reloaded.getVersion()).isEqualTo((long) INITIAL_STOCK);
+    }
+
+    @Test
+    void stripedReservationsNeverOversell() throws Exception {
+        Long bookId = saveHotBook();
+        stripedInventory.enable(bookId, 8);
+
+        runCheckouts(bookId);
+
+        assertThat(stripedInventory.leasedStock(bookId)).isZero();
+        assertThat(bookService.getBookById(bookId).getStockQuantity()).isZero();
+        assertThat(bookRepository.findById(bookId).orElseThrow().getStockQuantity()).isZero();
+    }
+
+    private Long saveHotBook() {
+        Book book = new Book();
+        book.setTitle("Hot Release");
+        book.setAuthor("Popular Author");
+        book.setPrice(new BigDecimal("19.99"));
+        book.setStockQuantity(INITIAL_STOCK);
+        return bookRepository.save(book).getId();
+    }
+
+    private void runCheckouts(Long bookId) throws Exception {
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    try {
+                        bookService.updateBookStock(bookId, 1);
+                        sold.incrementAndGet();
+                    } catch (BusinessLogicException ex) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(sold.get()).isEqualTo(INITIAL_STOCK);
+        assertThat(rejected.get()).isEqualTo(THREADS * ATTEMPTS_PER_THREAD - INITIAL_STOCK);
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.online_bookstore.service;
+
+import com.example.online_bookstore.dto.CartBulkRequest;
+import com.example.online_bookstore.dto.CartDto;
+import com.example.online_bookstore.dto.CartItemDto;
+import com.example.online_bookstore.entity.Book;
+import com.example.online_bookstore.entity.Cart;
+import com.example.online_bookstore.entity.User;
+import com.example.online_bookstore.exception.BusinessLogicException;
+import com.example.online_bookstore.repo.BookRepository;
+import com.example.online_bookstore.repo.CartItemRepository;
+import com.example.online_bookstore.repo.CartRepository;
+import com.example.online_bookstore.repo.UserRepository;
+import com.example.online_bookstore.security.UserPrincipal;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CartBulkSyncTest {
+
+    private static final int BOOKS = 50;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Cart cart;
+    private final List<Book> books = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setName("Offline Shopper");
+        user.setEmail("offline-shopper@example.com");
+        user.setPassword("unused");
+        user = userRepository.save(user);
+
+        Cart newCart = new Cart();
+        newCart.setUser(user);
+        cart = cartRepository.save(newCart);
+
+        for (int i = 0; i < BOOKS; i++) {
+            Book book = new Book();
+            book.setTitle("Synced Book " + i);
+            book.setAuthor("Synced Author");
+            book.setPrice(new BigDecimal("4.25"));
+            book.setStockQuantity(10);
+            books.add(bookRepository.save(book));
+        }
+
+        UserPrincipal principal = UserPrincipal.from(user);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    @AfterEach
+    void cleanUp() {
+        SecurityContextHolder.clearContext();
+        cartItemRepository.deleteAll();
+        cartRepository.deleteAll();
+        userRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void fiftyItemSyncTakesAFewStatements() {
+        CartDto seeded = cartService.addItemToCart(item(books.get(0), 1));
+        Long firstItemId = seeded.getItems().get(0).getId();
+
+        CartBulkRequest request = new CartBulkRequest();
+        List<CartBulkRequest.Operation> operations = new ArrayList<>();
+        for (Book book : books.subList(1, BOOKS)) {
+            operations.add(operation(CartBulkRequest.Type.ADD, null, book.getId(), 2));
+        }
+        operations.add(operation(CartBulkRequest.Type.UPDATE, firstItemId, null, 3));
+        operations.add(operation(CartBulkRequest.Type.REMOVE, null, books.get(1).getId(), null));
+        request.setOperations(operations);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        CartDto synced = cartService.applyBulk(request);
+        long statements = statistics.getPrepareStatementCount();
+
+        assertThat(synced.getItemCount()).isEqualTo(BOOKS - 1);
+        assertThat(synced.getItems().get(0).getQuantity()).isEqualTo(3);
+        assertThat(synced.getTotalPrice()).isEqualByComparingTo(new BigDecimal("4.25").multiply(new BigDecimal(3 + 2 * (BOOKS - 2))));
+        // Cart, new books, sequence, batched inserts, update, delete, cart total and the DTO query
+        assertThat(statements).isLessThanOrEqualTo(10);
+    }
+
+    @Test
+    void shortfallRejectsTheWholeRequest() {
+        CartBulkRequest request = new CartBulkRequest();
+        request.setOperations(List.of(
+                operation(CartBulkRequest.Type.ADD, null, books.get(0).getId(), 2),
+                operation(CartBulkRequest.Type.ADD, null, books.get(1).getId(), 11)));
+
+        assertThatThrownBy(() -> cartService.applyBulk(request))
+                .isInstanceOf(BusinessLogicException.class)
+                .hasMessageContaining("Synced Book 1");
+        assertThat(cartService.getCart().getItems()).isEmpty();
+    }
+
+    private static CartBulkRequest.Operation operation(CartBulkRequest.Type type, Long itemId, Long bookId, Integer quantity) {
+        CartBulkRequest.Operation operation = new CartBulkRequest.Operation();
+        operation.setType(type);
+        operation.setItemId(itemId);
+        operation.setBookId(bookId);
+        operation.setQuantity(quantity);
+        return operation;
+    }
+
+    private static CartItemDto item(Book book, int quantity) {
+        CartItemDto dto = new CartItemDto();
+        dto.setBookId(book.getId());
+        dto.setQuantity(quantity);
+        return dto;
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.online_bookstore.service;
+
+import com.example.online_bookstore.dto.CartDto;
+import com.example.online_bookstore.dto.CartItemDto;
+import com.example.online_bookstore.entity.Book;
+import com.example.online_bookstore.entity.Cart;
+import com.example.online_bookstore.entity.CartItem;
+import com.example.online_bookstore.entity.Money;
+import com.example.online_bookstore.entity.User;
+import com.example.online_bookstore.repo.BookRepository;
+import com.example.online_bookstore.repo.CartItemRepository;
+import com.example.online_bookstore.repo.CartRepository;
+import com.example.online_bookstore.repo.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares statements and latency of building a cart DTO by walking the entity graph, as
+ * CartService used to, against the projection query, for carts of 1, 10 and 100 lines.
+ * Every cart endpoint must use a number of statements that does not depend on the cart size.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CartQueryBenchmarkTest {
+
+    private static final String EMAIL = "cart-bench@example.com";
+    private static final int[] CART_SIZES = {1, 10, 100};
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 9;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private User user;
+    private Cart cart;
+    private final List<Book> books = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        User newUser = new User();
+        newUser.setName("Cart Bench");
+        newUser.setEmail(EMAIL);
+        newUser.setPassword("unused");
+        user = userRepository.save(newUser);
+
+        Cart newCart = new Cart();
+        newCart.setUser(user);
+        cart = cartRepository.save(newCart);
+
+        int maxLines = Arrays.stream(CART_SIZES).max().orElseThrow() + 1;
+        for (int i = 0; i < maxLines; i++) {
+            Book book = new Book();
+            book.setTitle("Cart Book " + i);
+            book.setAuthor("Cart Author");
+            book.setCoverImage("cover-" + i + ".jpg");
+            book.setPrice(new BigDecimal("8.00"));
+            book.setStockQuantity(1000);
+            books.add(bookRepository.save(book));
+        }
+    }
+
+    @AfterEach
+    void cleanUp() {
+        cartItemRepository.deleteAll();
+        cartRepository.deleteAll();
+        userRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL)
+    void cartEndpointsUseConstantStatements() {
+        Map<Integer, long[]> projection = new LinkedHashMap<>();
+        StringBuilder report = new StringBuilder("\nlines  entity walk: statements  median ms  |  projection: statements  median ms  |  add item: statements\n");
+        for (int lines : CART_SIZES) {
+            cartItemRepository.deleteAll();
+            fillCart(lines);
+
+            long[] walk = measure(() -> transactionTemplate.execute(status -> walkEntityGraph()), lines);
+            long[] projected = measure(() -> cartService.getCart(), lines);
+
+            CartItemDto extra = new CartItemDto();
+            extra.setBookId(books.get(lines).getId());
+            extra.setQuantity(1);
+            statistics.clear();
+            assertThat(cartService.addItemToCart(extra).getItemCount()).isEqualTo(lines + 1);
+            long addStatements = statistics.getPrepareStatementCount();
+
+            projection.put(lines, new long[]{projected[0], addStatements});
+            report.append(String.format("%5d  %23d  %9.2f  |  %22d  %9.2f  |  %20d%n",
+                    lines, walk[0], walk[1] / 1_000_000.0, projected[0], projected[1] / 1_000_000.0, addStatements));
+        }
+        System.out.println(report);
+
+        long[] baseline = projection.get(CART_SIZES[0]);
+        projection.forEach((lines, counts) -> {
+            assertThat(counts[0]).as("getCart statements for %d lines", lines).isEqualTo(baseline[0]);
+            assertThat(counts[1]).as("addItemToCart statements for %d lines", lines).isEqualTo(baseline[1]);
+        });
+    }
+
+    // The old conversion: load the cart entity and read every line's book through the association
+    private CartDto walkEntityGraph() {
+        Cart loaded = cartRepository.findByUserId(user.getId()).orElseThrow();
+        CartDto dto = new CartDto();
+        dto.setId(loaded.getId());
+        dto.setTotalPrice(loaded.getTotalPrice().toBigDecimal());
+        List<CartItemDto> items = new ArrayList<>();
+        for (CartItem item : loaded.getItems()) {
+            CartItemDto line = new CartItemDto();
+            line.setId(item.getId());
+            line.setBookId(item.getBook().getId());
+            line.setQuantity(item.getQuantity());
+            line.setBookTitle(item.getBook().getTitle());
+            line.setBookAuthor(item.getBook().getAuthor());
+            line.setBookImage(item.getBook().getCoverImage());
+            items.add(line);
+        }
+        dto.setItems(items);
+        dto.setItemCount(items.size());
+        return dto;
+    }
+
+    // Returns the statement count of one call and the median latency in nanoseconds
+    private long[] measure(Supplier<CartDto> call, int lines) {
+        long[] nanos = new long[MEASURED_RUNS];
+        long statements = 0;
+        for (int run = 0; run < WARMUP_RUNS + MEASURED_RUNS; run++) {
+            statistics.clear();
+            long start = System.nanoTime();
+            CartDto dto = call.get();
+            long elapsed = System.nanoTime() - start;
+            assertThat(dto.getItemCount()).isEqualTo(lines);
+            if (run >= WARMUP_RUNS) {
+                nanos[run - WARMUP_RUNS] = elapsed;
+                statements = statistics.getPrepareStatementCount();
+            }
+        }
+        Arrays.sort(nanos);
+        return new long[]{statements, nanos[MEASURED_RUNS / 2]};
+    }
+
+    private void fillCart(int lines) {
+        List<CartItem> items = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            CartItem item = new CartItem();
+            item.setCart(cart);
+            item.setBook(books.get(i));
+            item.setQuantity(2);
+            item.setPrice(Money.of(books.get(i).getPrice()));
+            items.add(item);
+        }
+        cartItemRepository.saveAll(items);
+    }
+}
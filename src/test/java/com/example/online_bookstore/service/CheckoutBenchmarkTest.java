@@ -0,0 +1,157 @@
+package com.example.online_bookstore.service;
+
+import com.example.online_bookstore.dto.CheckoutRequest;
+import com.example.online_bookstore.dto.OrderDto;
+import com.example.online_bookstore.entity.Book;
+import com.example.online_bookstore.entity.Cart;
+import com.example.online_bookstore.entity.CartItem;
+import com.example.online_bookstore.entity.Money;
+import com.example.online_bookstore.entity.User;
+import com.example.online_bookstore.repo.BookRepository;
+import com.example.online_bookstore.repo.CartItemRepository;
+import com.example.online_bookstore.repo.CartRepository;
+import com.example.online_bookstore.repo.OrderRepository;
+import com.example.online_bookstore.repo.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures JDBC statements and latency of a checkout as the cart grows. The statement count
+ * may only grow by one order item batch and one id block per BATCH_SIZE lines.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CheckoutBenchmarkTest {
+
+    private static final String EMAIL = "checkout-bench@example.com";
+    private static final int[] CART_SIZES = {1, 10, 30, 100};
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 7;
+    private static final int BATCH_SIZE = 50;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Cart cart;
+    private final List<Book> books = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setName("Checkout Bench");
+        user.setEmail(EMAIL);
+        user.setPassword("unused");
+        user = userRepository.save(user);
+
+        Cart newCart = new Cart();
+        newCart.setUser(user);
+        cart = cartRepository.save(newCart);
+
+        int maxLines = Arrays.stream(CART_SIZES).max().orElseThrow();
+        for (int i = 0; i < maxLines; i++) {
+            Book book = new Book();
+            book.setTitle("Bench Book " + i);
+            book.setAuthor("Bench Author");
+            book.setPrice(new BigDecimal("12.50"));
+            book.setStockQuantity(1_000_000);
+            books.add(bookRepository.save(book));
+        }
+    }
+
+    @AfterEach
+    void cleanUp() {
+        orderRepository.deleteAll();
+        cartItemRepository.deleteAll();
+        cartRepository.deleteAll();
+        userRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    @WithMockUser(username = EMAIL)
+    void checkoutStatementCountIsIndependentOfCartSize() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        CheckoutRequest request = new CheckoutRequest();
+        request.setShippingAddress("1 Bench Street");
+        request.setPaymentMethod("CARD");
+
+        Map<Integer, Long> statementsBySize = new LinkedHashMap<>();
+        StringBuilder report = new StringBuilder("\nlines  statements  median ms\n");
+        for (int lines : CART_SIZES) {
+            long[] nanos = new long[MEASURED_RUNS];
+            long statements = Long.MAX_VALUE;
+            for (int run = 0; run < WARMUP_RUNS + MEASURED_RUNS; run++) {
+                fillCart(lines);
+                statistics.clear();
+                long start = System.nanoTime();
+                OrderDto order = orderService.createOrder(request);
+                long elapsed = System.nanoTime() - start;
+
+                assertThat(order.getItems()).hasSize(lines);
+                if (run >= WARMUP_RUNS) {
+                    nanos[run - WARMUP_RUNS] = elapsed;
+                    // The minimum leaves out runs that fetched an extra block of order item ids
+                    statements = Math.min(statements, statistics.getPrepareStatementCount());
+                }
+            }
+            Arrays.sort(nanos);
+            statementsBySize.put(lines, statements);
+            report.append(String.format("%5d  %10d  %9.2f%n", lines, statements, nanos[MEASURED_RUNS / 2] / 1_000_000.0));
+            assertThat(cartItemRepository.findByCartId(cart.getId())).isEmpty();
+        }
+        System.out.println(report);
+
+        long baseline = statementsBySize.get(CART_SIZES[0]);
+        statementsBySize.forEach((lines, statements) ->
+                assertThat(statements).as("statements for %d lines", lines)
+                        .isLessThanOrEqualTo(baseline + 2L * ((lines - 1) / BATCH_SIZE)));
+    }
+
+    private void fillCart(int lines) {
+        List<CartItem> items = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            CartItem item = new CartItem();
+            item.setCart(cart);
+            item.setBook(books.get(i));
+            item.setQuantity(1);
+            item.setPrice(Money.of(books.get(i).getPrice()));
+            items.add(item);
+        }
+        cartItemRepository.saveAll(items);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.online_bookstore.service;
+
+import com.example.online_bookstore.entity.Book;
+import com.example.online_bookstore.repo.BookRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class IdGenerationBatchingTest {
+
+    private static final int BOOKS = 200;
+    private static final int BATCH_SIZE = 50;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void cleanUp() {
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void bulkInsertsAreBatchedAndIdsComeInBlocks() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < BOOKS; i++) {
+            Book book = new Book();
+            book.setTitle("Batched Book " + i);
+            book.setAuthor("Batch Author");
+            book.setPrice(new BigDecimal("9.99"));
+            book.setStockQuantity(10);
+            books.add(book);
+        }
+
+        statistics.clear();
+        transactionTemplate.executeWithoutResult(status -> bookRepository.saveAll(books));
+
+        int blocks = BOOKS / BATCH_SIZE;
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(BOOKS);
+        // One sequence call per block of ids plus one insert batch per BATCH_SIZE rows, give or take a partial block
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(2L * (blocks + 1));
+        assertThat(books).extracting(Book::getId).doesNotHaveDuplicates().doesNotContainNull();
+    }
+}
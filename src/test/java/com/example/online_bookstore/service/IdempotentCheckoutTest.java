@@ -0,0 +1,209 @@
+package com.example.online_bookstore.service;
+
+import com.example.online_bookstore.dto.CheckoutRequest;
+import com.example.online_bookstore.dto.OrderDto;
+import com.example.online_bookstore.entity.Book;
+import com.example.online_bookstore.entity.Cart;
+import com.example.online_bookstore.entity.CartItem;
+import com.example.online_bookstore.entity.Money;
+import com.example.online_bookstore.entity.Order;
+import com.example.online_bookstore.entity.OrderStatus;
+import com.example.online_bookstore.entity.User;
+import com.example.online_bookstore.exception.BusinessLogicException;
+import com.example.online_bookstore.repo.BookRepository;
+import com.example.online_bookstore.repo.CartItemRepository;
+import com.example.online_bookstore.repo.CartRepository;
+import com.example.online_bookstore.repo.CheckoutIdempotencyKeyRepository;
+import com.example.online_bookstore.repo.OrderRepository;
+import com.example.online_bookstore.repo.UserRepository;
+import com.example.online_bookstore.security.UserPrincipal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class IdempotentCheckoutTest {
+
+    private static final int STOCK = 100;
+    private static final int QUANTITY = 3;
+    private static final int CONCURRENT_RETRIES = 8;
+
+    @Autowired
+    private IdempotentCheckoutService checkoutService;
+
+    @Autowired
+    private CheckoutIdempotencyKeyRepository keyRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private UserPrincipal principal;
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setName("Idempotent Buyer");
+        user.setEmail("idempotent-buyer@example.com");
+        user.setPassword("unused");
+        user = userRepository.save(user);
+        principal = UserPrincipal.from(user);
+
+        Cart cart = new Cart();
+        cart.setUser(user);
+        cart = cartRepository.save(cart);
+
+        Book newBook = new Book();
+        newBook.setTitle("Retry Book");
+        newBook.setAuthor("Retry Author");
+        newBook.setPrice(new BigDecimal("20.00"));
+        newBook.setStockQuantity(STOCK);
+        book = bookRepository.save(newBook);
+
+        CartItem item = new CartItem();
+        item.setCart(cart);
+        item.setBook(book);
+        item.setQuantity(QUANTITY);
+        item.setPrice(Money.of(book.getPrice()));
+        cartItemRepository.save(item);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        SecurityContextHolder.clearContext();
+        keyRepository.deleteAll();
+        orderRepository.deleteAll();
+        cartItemRepository.deleteAll();
+        cartRepository.deleteAll();
+        userRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void retryReturnsTheOriginalOrderWithoutCheckingOutAgain() {
+        authenticate();
+        OrderDto first = checkoutService.checkout(request("1 Retry Road"), "key-1");
+        OrderDto retry = checkoutService.checkout(request("1 Retry Road"), "key-1");
+
+        assertThat(retry.getId()).isEqualTo(first.getId());
+        assertThat(retry.getItems()).hasSize(1);
+        assertThat(orderRepository.count()).isEqualTo(1);
+        assertThat(bookRepository.findById(book.getId()).orElseThrow().getStockQuantity()).isEqualTo(STOCK - QUANTITY);
+    }
+
+    @Test
+    void retryReplaysTheFirstResponseNotTheCurrentOrder() {
+        authenticate();
+        OrderDto first = checkoutService.checkout(request("1 Retry Road"), "key-4");
+
+        // The order moves on and the cart is filled again before the retry arrives
+        Order placed = orderRepository.findById(first.getId()).orElseThrow();
+        placed.setStatus(OrderStatus.PROCESSING);
+        orderRepository.save(placed);
+        CartItem refill = new CartItem();
+        refill.setCart(cartRepository.findAll().get(0));
+        refill.setBook(book);
+        refill.setQuantity(1);
+        refill.setPrice(Money.of(book.getPrice()));
+        cartItemRepository.save(refill);
+
+        OrderDto retry = checkoutService.checkout(request("1 Retry Road"), "key-4");
+
+        assertThat(retry.getId()).isEqualTo(first.getId());
+        assertThat(retry.getStatus()).isEqualTo(first.getStatus()).isEqualTo("PENDING");
+        assertThat(retry.getTotalAmount()).isEqualByComparingTo(first.getTotalAmount());
+        assertThat(orderRepository.count()).isEqualTo(1);
+        assertThat(cartItemRepository.count()).isEqualTo(1);
+        assertThat(bookRepository.findById(book.getId()).orElseThrow().getStockQuantity()).isEqualTo(STOCK - QUANTITY);
+    }
+
+    @Test
+    void keyReusedForADifferentRequestIsRejected() {
+        authenticate();
+        checkoutService.checkout(request("1 Retry Road"), "key-2");
+
+        assertThatThrownBy(() -> checkoutService.checkout(request("2 Other Road"), "key-2"))
+                .isInstanceOf(BusinessLogicException.class)
+                .hasMessageContaining("different checkout request");
+    }
+
+    @Test
+    void concurrentDuplicatesPlaceOneOrder() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(CONCURRENT_RETRIES);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<OrderDto>> results = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_RETRIES; i++) {
+                results.add(pool.submit(() -> {
+                    authenticate();
+                    start.await();
+                    try {
+                        return checkoutService.checkout(request("1 Retry Road"), "key-3");
+                    } finally {
+                        SecurityContextHolder.clearContext();
+                    }
+                }));
+            }
+            start.countDown();
+
+            Set<Long> orderIds = results.stream()
+                    .map(result -> {
+                        try {
+                            return result.get().getId();
+                        } catch (Exception ex) {
+                            throw new AssertionError(ex);
+                        }
+                    })
+                    .collect(Collectors.toSet());
+
+            assertThat(orderIds).hasSize(1);
+            assertThat(orderRepository.count()).isEqualTo(1);
+            assertThat(bookRepository.findById(book.getId()).orElseThrow().getStockQuantity()).isEqualTo(STOCK - QUANTITY);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void authenticate() {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    private static CheckoutRequest request(String address) {
+        CheckoutRequest request = new CheckoutRequest();
+        request.setShippingAddress(address);
+        request.setPaymentMethod("CARD");
+        return request;
+    }
+}
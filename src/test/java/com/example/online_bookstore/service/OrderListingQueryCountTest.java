@@ -0,0 +1,164 @@
+package com.example.online_bookstore.service;
+
+import com.example.online_bookstore.entity.Book;
+import com.example.online_bookstore.entity.Cart;
+import com.example.online_bookstore.entity.Order;
+import com.example.online_bookstore.entity.OrderItem;
+import com.example.online_bookstore.entity.User;
+import com.example.online_bookstore.repo.BookRepository;
+import com.example.online_bookstore.repo.CartRepository;
+import com.example.online_bookstore.repo.OrderRepository;
+import com.example.online_bookstore.repo.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Fails if an order listing path goes back to loading users, items or books one order at a time:
+ * the number of statements must not depend on how many orders or items are listed.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderListingQueryCountTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private final List<Book> books = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        for (int i = 0; i < 5; i++) {
+            Book book = new Book();
+            book.setTitle("Listed Book " + i);
+            book.setAuthor("Listed Author");
+            book.setPrice(new BigDecimal("15.00"));
+            book.setStockQuantity(100);
+            books.add(bookRepository.save(book));
+        }
+    }
+
+    @AfterEach
+    void cleanUp() {
+        SecurityContextHolder.clearContext();
+        orderRepository.deleteAll();
+        cartRepository.deleteAll();
+        userRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void userOrderHistoryUsesConstantStatements() {
+        User few = createUserWithOrders("few@example.com", 2, 1);
+        User many = createUserWithOrders("many@example.com", 25, 5);
+
+        long forFew = statementsAs(few, () -> assertThat(orderService.getUserOrders()).hasSize(2));
+        long forMany = statementsAs(many, () -> assertThat(orderService.getUserOrders()).hasSize(25));
+
+        assertThat(forMany).isEqualTo(forFew);
+    }
+
+    @Test
+    void adminListingUsesConstantStatements() {
+        for (int i = 0; i < 12; i++) {
+            createUserWithOrders("customer" + i + "@example.com", 4, 3);
+        }
+
+        long smallPage = statements(() ->
+                assertThat(orderService.getAllOrders(0, 3, null, null, null).getItems()).hasSize(3));
+        long largePage = statements(() ->
+                assertThat(orderService.getAllOrders(0, 48, "PENDING", null, null).getItems()).hasSize(48));
+
+        assertThat(largePage).isEqualTo(smallPage);
+    }
+
+    @Test
+    void orderDetailUsesConstantStatements() {
+        User small = createUserWithOrders("small@example.com", 1, 1);
+        User large = createUserWithOrders("large@example.com", 1, 5);
+        Long smallOrder = orderRepository.findByUserId(small.getId()).get(0).getId();
+        Long largeOrder = orderRepository.findByUserId(large.getId()).get(0).getId();
+
+        long forSmall = statementsAs(small, () -> assertThat(orderService.getOrderById(smallOrder).getItems()).hasSize(1));
+        long forLarge = statementsAs(large, () -> assertThat(orderService.getOrderById(largeOrder).getItems()).hasSize(5));
+
+        assertThat(forLarge).isEqualTo(forSmall);
+    }
+
+    private long statementsAs(User user, Runnable listing) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user.getEmail(), null, List.of()));
+        return statements(listing);
+    }
+
+    private long statements(Runnable listing) {
+        statistics.clear();
+        listing.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private User createUserWithOrders(String email, int orders, int itemsPerOrder) {
+        User user = new User();
+        user.setName(email);
+        user.setEmail(email);
+        user.setPassword("unused");
+        user = userRepository.save(user);
+
+        Cart cart = new Cart();
+        cart.setUser(user);
+        cartRepository.save(cart);
+
+        List<Order> created = new ArrayList<>();
+        for (int o = 0; o < orders; o++) {
+            Order order = new Order();
+            order.setUser(user);
+            order.setOrderDate(LocalDateTime.now().minusMinutes(o));
+            order.setTotalAmount(BigDecimal.ZERO);
+            for (int i = 0; i < itemsPerOrder; i++) {
+                Book book = books.get(i);
+                OrderItem item = new OrderItem();
+                item.setBook(book);
+                item.setBookTitle(book.getTitle());
+                item.setBookAuthor(book.getAuthor());
+                item.setQuantity(1);
+                item.setPrice(book.getPrice());
+                order.addOrderItem(item);
+            }
+            created.add(order);
+        }
+        orderRepository.saveAll(created);
+        return user;
+    }
+}